@@ -0,0 +1,73 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tech.neatnet.core.rule.engine.domain.Category;
+import tech.neatnet.core.rule.engine.domain.HitPolicy;
+import tech.neatnet.core.rule.engine.domain.RuleExecutionResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RuleEngine#evaluateMatrices} and {@link RuleEngine#evaluateInto} over
+ * {@link SyntheticRules#decisionTable} rules, with the rule set loaded before measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class DecisionTableBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int rules;
+
+    @Param({"FIRST", "COLLECT"})
+    private HitPolicy hitPolicy;
+
+    private RuleEngine ruleEngine;
+    private Map<String, Object> input;
+    private RuleInput ruleInput;
+
+    @Setup
+    public void setUp() {
+        ruleEngine = new RuleEngine(new CoreRuleEngine(), new InMemoryRuleCache(SyntheticRules.decisionTable(rules)),
+                new RuleEngineProperties());
+        input = SyntheticRules.decisionTableInput(7, 250);
+        ruleInput = ruleEngine.newInput(Category.PRICING, Category.DEFAULT).setAll(input);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ruleEngine.close();
+    }
+
+    @Benchmark
+    public List<RuleExecutionResult> evaluateMatrices() {
+        return ruleEngine.evaluateMatrices(input, Category.PRICING, Category.DEFAULT, hitPolicy);
+    }
+
+    @Benchmark
+    public int evaluateIntoMap(Blackhole blackhole) {
+        return ruleEngine.evaluateInto(input, Category.PRICING, Category.DEFAULT, hitPolicy, (index, rule) -> blackhole.consume(index));
+    }
+
+    @Benchmark
+    public int evaluateIntoRuleInput(Blackhole blackhole) {
+        return ruleEngine.evaluateInto(ruleInput, Category.PRICING, Category.DEFAULT, hitPolicy, (index, rule) -> blackhole.consume(index));
+    }
+}
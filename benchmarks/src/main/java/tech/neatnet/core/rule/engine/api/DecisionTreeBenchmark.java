@@ -0,0 +1,63 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tech.neatnet.core.rule.engine.domain.Category;
+import tech.neatnet.core.rule.engine.domain.HitPolicy;
+import tech.neatnet.core.rule.engine.domain.TreeExecutionResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RuleEngine#evaluateTrees} over ten {@link SyntheticRules#decisionTrees} of increasing depth.
+ * Every walk reaches a leaf, so the cost grows with the depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecisionTreeBenchmark {
+
+    private static final int TREES = 10;
+
+    @Param({"2", "6", "12"})
+    private int depth;
+
+    @Param({"FIRST", "COLLECT"})
+    private HitPolicy hitPolicy;
+
+    private RuleEngine ruleEngine;
+    private Map<String, Object> input;
+
+    @Setup
+    public void setUp() {
+        ruleEngine = new RuleEngine(new CoreRuleEngine(), new InMemoryRuleCache(SyntheticRules.decisionTrees(TREES, depth)),
+                new RuleEngineProperties());
+        input = SyntheticRules.decisionTreeInput(depth, 0b1010_1010_1010);
+        ruleEngine.evaluateTrees(input, Category.PRICING, Category.DEFAULT, hitPolicy);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ruleEngine.close();
+    }
+
+    @Benchmark
+    public List<TreeExecutionResult> evaluateTrees() {
+        return ruleEngine.evaluateTrees(input, Category.PRICING, Category.DEFAULT, hitPolicy);
+    }
+}
@@ -0,0 +1,53 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single condition and action evaluation through {@link CoreRuleEngine}, with the compiled expression
+ * already cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    private static final String CONDITION = "customerType == 'premium' && orderTotal >= 100";
+    private static final String ACTION = "orderTotal * 0.9";
+
+    private CoreRuleEngine coreRuleEngine;
+    private Map<String, Object> input;
+
+    @Setup
+    public void setUp() {
+        coreRuleEngine = new CoreRuleEngine();
+        input = Map.of("customerType", "premium", "orderTotal", 150);
+        coreRuleEngine.evaluateCondition(CONDITION, input);
+        coreRuleEngine.executeAction(ACTION, input);
+    }
+
+    @Benchmark
+    public boolean evaluateCondition() {
+        return coreRuleEngine.evaluateCondition(CONDITION, input);
+    }
+
+    @Benchmark
+    public Optional<Object> executeAction() {
+        return coreRuleEngine.executeAction(ACTION, input);
+    }
+}
@@ -0,0 +1,58 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conditions cycling through more distinct expressions than the expression cache holds. With
+ * {@code cacheSize} below {@code expressions} most lookups miss and compile; comparing the two
+ * settings shows the cost of an undersized cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionCacheBenchmark {
+
+    @Param({"256", "8192"})
+    private int cacheSize;
+
+    @Param({"4096"})
+    private int expressions;
+
+    private CoreRuleEngine coreRuleEngine;
+    private String[] conditions;
+    private Map<String, Object> input;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        coreRuleEngine = new CoreRuleEngine(cacheSize);
+        conditions = new String[expressions];
+        for (int i = 0; i < expressions; i++) {
+            conditions[i] = "orderTotal >= " + i;
+        }
+        input = Map.of("orderTotal", expressions / 2);
+    }
+
+    @Benchmark
+    public boolean evaluateCondition() {
+        String condition = conditions[next];
+        next = next + 1 == conditions.length ? 0 : next + 1;
+        return coreRuleEngine.evaluateCondition(condition, input);
+    }
+}
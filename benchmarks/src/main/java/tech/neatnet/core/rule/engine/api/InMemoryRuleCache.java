@@ -0,0 +1,33 @@
+package tech.neatnet.core.rule.engine.api;
+
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link RuleCache} serving a fixed list of rules for every category, so engine benchmarks measure
+ * evaluation only.
+ */
+final class InMemoryRuleCache implements RuleCache {
+
+    private final List<Rule> rules;
+
+    InMemoryRuleCache(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    @Override
+    public Collection<Rule> findRules(BaseRuleCategory baseRuleCategory, BaseRuleSubCategory baseRuleSubCategory) {
+        return rules;
+    }
+
+    @Override
+    public Collection<Rule> findActive() {
+        return rules;
+    }
+
+    @Override
+    public void reloadRules() {
+    }
+}
@@ -0,0 +1,27 @@
+package tech.neatnet.core.rule.engine.api;
+
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+/**
+ * {@link RuleRepository} stub answering the two queries the engine issues from a fixed list of rules.
+ * Any other repository method throws.
+ */
+final class InMemoryRuleRepository {
+
+    private InMemoryRuleRepository() {
+    }
+
+    static RuleRepository of(List<Rule> rules) {
+        return (RuleRepository) Proxy.newProxyInstance(RuleRepository.class.getClassLoader(),
+                new Class<?>[]{RuleRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findRulesByBaseRuleCategoryAndBaseRuleSubCategory", "findRulesByActive" -> rules;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryRuleRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
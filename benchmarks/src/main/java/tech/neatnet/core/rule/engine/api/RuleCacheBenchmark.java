@@ -0,0 +1,76 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import tech.neatnet.core.rule.engine.domain.Category;
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cached category lookup through {@link RuleCacheImpl}: the Spring cache proxy, the key generator,
+ * the cache resolver and the Ehcache heap store, as configured by {@link CacheConfiguration}. The
+ * repository behind it is an in-memory stub and is only hit once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleCacheBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private RuleCache ruleCache;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(CacheContext.class);
+        ruleCache = context.getBean(RuleCache.class);
+        ruleCache.findRules(Category.PRICING, Category.DEFAULT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Collection<Rule> findRules() {
+        return ruleCache.findRules(Category.PRICING, Category.DEFAULT);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @Import(CacheConfiguration.class)
+    static class CacheContext {
+
+        @Bean
+        RuleEngineProperties ruleEngineProperties() {
+            return new RuleEngineProperties();
+        }
+
+        @Bean
+        RuleRepositoryService ruleRepositoryService() {
+            return new RuleRepositoryService(InMemoryRuleRepository.of(SyntheticRules.decisionTable(100)));
+        }
+
+        @Bean
+        RuleCache ruleCache(RuleRepositoryService ruleRepositoryService) {
+            return new RuleCacheImpl(ruleRepositoryService);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package tech.neatnet.core.rule.engine.api;
+
+import tech.neatnet.core.rule.engine.domain.Category;
+import tech.neatnet.core.rule.engine.domain.Condition;
+import tech.neatnet.core.rule.engine.domain.Rule;
+import tech.neatnet.core.rule.engine.domain.RuleType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates rules with a known shape so benchmark results are comparable between runs.
+ */
+final class SyntheticRules {
+
+    /**
+     * Number of distinct {@code segment} values decision table rules are spread over.
+     */
+    static final int SEGMENTS = 50;
+
+    private SyntheticRules() {
+    }
+
+    /**
+     * Decision table rules: rule {@code i} requires {@code segment == 'S<i % 50>'} and
+     * {@code orderTotal >= i % 500}. An input matches about one rule in a hundred.
+     */
+    static List<Rule> decisionTable(int count) {
+        List<Rule> rules = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rules.add(rule("table-" + i, RuleType.DECISION_TABLE, List.of(
+                    Condition.builder().condition("segment == 'S" + (i % SEGMENTS) + "'").build(),
+                    Condition.builder().condition("orderTotal >= " + (i % 500)).build()),
+                    Map.of("discount", i % 30)));
+        }
+        return rules;
+    }
+
+    /**
+     * Input for {@link #decisionTable(int)} rules.
+     */
+    static Map<String, Object> decisionTableInput(int segment, int orderTotal) {
+        Map<String, Object> input = new HashMap<>();
+        input.put("segment", "S" + segment);
+        input.put("orderTotal", orderTotal);
+        return input;
+    }
+
+    /**
+     * Decision tree rules, each with one complete tree of the given depth. Node {@code n} at level
+     * {@code l} tests {@code x<l> > 0}; every leaf returns its own label.
+     */
+    static List<Rule> decisionTrees(int count, int depth) {
+        List<Rule> rules = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rules.add(rule("tree-" + i, RuleType.DECISION_TREE, List.of(tree(0, depth, "")), Map.of()));
+        }
+        return rules;
+    }
+
+    /**
+     * Input for {@link #decisionTrees(int, int)} rules; bit {@code l} of {@code path} chooses the branch at level {@code l}.
+     */
+    static Map<String, Object> decisionTreeInput(int depth, int path) {
+        Map<String, Object> input = new HashMap<>();
+        for (int level = 0; level < depth; level++) {
+            input.put("x" + level, (path >> level & 1) == 1 ? 1 : -1);
+        }
+        return input;
+    }
+
+    private static Condition tree(int level, int depth, String label) {
+        if (level == depth) {
+            return Condition.builder().action("'leaf" + label + "'").build();
+        }
+        return Condition.builder()
+                .condition("x" + level + " > 0")
+                .trueBranch(tree(level + 1, depth, label + "1"))
+                .falseBranch(tree(level + 1, depth, label + "0"))
+                .build();
+    }
+
+    private static Rule rule(String id, RuleType ruleType, List<Condition> conditions, Map<String, Object> results) {
+        return Rule.builder()
+                .id(id)
+                .name(id)
+                .active(true)
+                .baseRuleCategory(Category.PRICING)
+                .baseRuleSubCategory(Category.DEFAULT)
+                .ruleType(ruleType)
+                .conditions(conditions)
+                .results(results)
+                .build();
+    }
+}
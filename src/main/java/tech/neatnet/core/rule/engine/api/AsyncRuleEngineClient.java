@@ -0,0 +1,23 @@
+package tech.neatnet.core.rule.engine.api;
+
+import tech.neatnet.core.rule.engine.domain.HitPolicy;
+import tech.neatnet.core.rule.engine.domain.RuleExecutionResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link RuleEngineClient}.
+ * <p>
+ * Evaluations run on the {@code ruleEngineAsyncExecutor} (virtual threads on JDK 21+) with at most
+ * {@code rule.engine.async.max-concurrency} in flight. Validation errors complete the future
+ * exceptionally with a {@link tech.neatnet.core.rule.engine.exceptions.RuleEngineClientProcessingException}.
+ */
+public interface AsyncRuleEngineClient {
+
+    CompletableFuture<List<RuleExecutionResult>> evaluateRulesAsync(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy);
+
+    CompletableFuture<List<List<RuleExecutionResult>>> evaluateRulesBatchAsync(List<Map<String, Object>> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy);
+
+}
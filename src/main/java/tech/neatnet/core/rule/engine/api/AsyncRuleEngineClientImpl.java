@@ -0,0 +1,132 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.neatnet.core.rule.engine.domain.HitPolicy;
+import tech.neatnet.core.rule.engine.domain.RuleExecutionResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link RuleEngineClient} calls on a bounded executor.
+ * <p>
+ * The first call for a category starts a single load of its rules; concurrent calls for the same
+ * category wait on that load instead of each querying MongoDB, and no caller thread blocks on it.
+ */
+@Slf4j
+public class AsyncRuleEngineClientImpl implements AsyncRuleEngineClient {
+
+    private final RuleEngineClient ruleEngineClient;
+    private final RuleEngine ruleEngine;
+    private final Executor executor;
+    private final Map<List<Object>, CompletableFuture<Void>> loading = new ConcurrentHashMap<>();
+
+    public AsyncRuleEngineClientImpl(RuleEngineClient ruleEngineClient, RuleEngine ruleEngine, Executor executor,
+                                     int maxConcurrency) {
+        this(ruleEngineClient, ruleEngine, executor, maxConcurrency, new RuleEngineProperties.AsyncProperties().getQueueCapacity());
+    }
+
+    /**
+     * @param queueCapacity calls that may wait for a free slot; further calls fail with a
+     *                      {@link java.util.concurrent.RejectedExecutionException}
+     */
+    public AsyncRuleEngineClientImpl(RuleEngineClient ruleEngineClient, RuleEngine ruleEngine, Executor executor,
+                                     int maxConcurrency, int queueCapacity) {
+        this.ruleEngineClient = ruleEngineClient;
+        this.ruleEngine = ruleEngine;
+        this.executor = new BoundedExecutor(executor, maxConcurrency, queueCapacity);
+    }
+
+    @Override
+    public CompletableFuture<List<RuleExecutionResult>> evaluateRulesAsync(Map<String, Object> inputVariables,
+            BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy) {
+        return loaded(ruleCategory, subCategory).thenCompose(ignored ->
+                supply(() -> ruleEngineClient.evaluateRules(inputVariables, ruleCategory, subCategory, hitPolicy)));
+    }
+
+    @Override
+    public CompletableFuture<List<List<RuleExecutionResult>>> evaluateRulesBatchAsync(List<Map<String, Object>> inputVariables,
+            BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy) {
+        return loaded(ruleCategory, subCategory).thenCompose(ignored ->
+                supply(() -> ruleEngineClient.evaluateRulesBatch(inputVariables, ruleCategory, subCategory, hitPolicy)));
+    }
+
+    /**
+     * Completes once the rules for the category are loaded, sharing one load between concurrent callers.
+     * A failed load is not remembered; the next call retries it.
+     */
+    private CompletableFuture<Void> loaded(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        if (ruleCategory == null || subCategory == null || ruleEngine.isLoaded(ruleCategory, subCategory)) {
+            // missing categories are reported by the client's validation
+            return CompletableFuture.completedFuture(null);
+        }
+        List<Object> key = List.of(ruleCategory, subCategory);
+        CompletableFuture<Void> load = loading.computeIfAbsent(key, k -> {
+            log.debug("Loading rules for {}:{} asynchronously", ruleCategory, subCategory);
+            return supply(() -> {
+                ruleEngine.load(ruleCategory, subCategory);
+                return null;
+            });
+        });
+        load.whenComplete((ignored, error) -> loading.remove(key, load));
+        return load;
+    }
+
+    private <T> CompletableFuture<T> supply(Callable<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(new BoundedExecutor.Task() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete(call.call());
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+
+                @Override
+                public void reject(RejectedExecutionException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Creates the default executor: one virtual thread per task on JDK 21+ when {@code virtualThreads}
+     * is set, otherwise a cached pool of daemon threads (bounded in practice by the client's
+     * concurrency limit).
+     */
+    static ExecutorService defaultExecutor(boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                ExecutorService executor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                log.info("Rule engine async client uses virtual threads");
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                log.info("Virtual threads are not available on this JVM, using a platform thread pool");
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "rule-engine-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(threadFactory);
+    }
+}
@@ -0,0 +1,77 @@
+package tech.neatnet.core.rule.engine.api;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs at most {@code maxConcurrency} tasks on a delegate executor at a time.
+ * <p>
+ * Tasks over the limit are queued without blocking the submitting thread and started as running
+ * tasks finish. At most {@code queueCapacity} tasks wait; further tasks are rejected with a
+ * {@link RejectedExecutionException}. A queued task the delegate rejects later, for example after it
+ * was shut down, may be started from another task's thread; if it is a {@link Task} it is failed
+ * through {@link Task#reject}, so whoever waits for it is not left hanging.
+ */
+final class BoundedExecutor implements Executor {
+
+    private final Executor delegate;
+    private final Semaphore permits;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int queueCapacity;
+
+    BoundedExecutor(Executor delegate, int maxConcurrency, int queueCapacity) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(Math.max(1, maxConcurrency));
+        this.queueCapacity = Math.max(0, queueCapacity);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (queued.incrementAndGet() > queueCapacity && permits.availablePermits() == 0) {
+            queued.decrementAndGet();
+            throw new RejectedExecutionException("Queue of " + queueCapacity + " waiting tasks is full");
+        }
+        queue.add(task);
+        drain();
+    }
+
+    private void drain() {
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            Runnable next = queue.poll();
+            if (next == null) {
+                permits.release();
+                continue;
+            }
+            queued.decrementAndGet();
+            try {
+                delegate.execute(() -> {
+                    try {
+                        next.run();
+                    } finally {
+                        permits.release();
+                        drain();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                if (!(next instanceof Task rejected)) {
+                    throw e;
+                }
+                rejected.reject(e);
+            }
+        }
+    }
+
+    /**
+     * A task that can be told it will never run.
+     */
+    interface Task extends Runnable {
+
+        void reject(RejectedExecutionException e);
+    }
+}
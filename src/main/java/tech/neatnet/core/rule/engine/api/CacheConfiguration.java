@@ -1,13 +1,21 @@
 package tech.neatnet.core.rule.engine.api;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
 import org.ehcache.config.builders.CacheEventListenerConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
 import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.core.config.DefaultConfiguration;
 import org.ehcache.event.CacheEvent;
 import org.ehcache.event.CacheEventListener;
 import org.ehcache.event.EventType;
+import org.ehcache.impl.config.persistence.DefaultPersistenceConfiguration;
 import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.ehcache.spi.serialization.Serializer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.annotation.EnableCaching;
@@ -20,12 +28,18 @@ import org.springframework.context.annotation.Configuration;
 import javax.cache.CacheManager;
 import javax.cache.Caching;
 import javax.cache.spi.CachingProvider;
+import java.io.File;
+import java.net.URI;
 import java.util.List;
 
 /**
  * Auto-configuration for the Rule Engine cache layer.
  * <p>
- * Creates a JCache-based cache manager using EhCache with a default "rules" cache.
+ * Creates a JCache-based cache manager using EhCache with a default "rules" cache. Configured caches
+ * size the heap tier in entries and may add off-heap and disk tiers sized in bytes; entries in the off-heap and disk tiers are
+ * serialized with {@link RuleCollectionSerializer}. When a cache has a disk tier, the cache manager
+ * keeps its data under {@code rule.engine.cache.disk-path} and is closed with the context, so
+ * tiers configured as persistent are reused after a restart.
  */
 @Slf4j
 @Configuration
@@ -36,6 +50,7 @@ public class CacheConfiguration {
     private static final String DEFAULT_CACHE_NAME = "rules";
 
     private final RuleEngineProperties properties;
+    private CacheManager persistentCacheManager;
 
     public CacheConfiguration(RuleEngineProperties properties) {
         this.properties = properties;
@@ -45,31 +60,34 @@ public class CacheConfiguration {
     @ConditionalOnMissingBean
     public JCacheCacheManager jCacheCacheManager() {
         log.info("Initializing Rule Engine cache manager");
-        CachingProvider provider = Caching.getCachingProvider();
-        CacheManager cacheManager = provider.getCacheManager();
-
         List<RuleEngineProperties.CacheProperties.CacheConfig> configs =
                 properties.getCache().getConfigs();
+        CacheManager cacheManager = cacheManager(configs);
 
         if (configs == null || configs.isEmpty()) {
             log.info("No custom cache configs, creating default '{}' cache", DEFAULT_CACHE_NAME);
-            createCache(DEFAULT_CACHE_NAME, cacheManager, String.class, Object.class,
-                    properties.getCache().getDefaultHeapSize());
+            RuleEngineProperties.CacheProperties.CacheConfig config = new RuleEngineProperties.CacheProperties.CacheConfig();
+            config.setName(DEFAULT_CACHE_NAME);
+            createCache(config, cacheManager);
         } else {
             log.info("Creating {} configured cache(s)", configs.size());
-            configs.forEach(config -> createCache(
-                    config.getName(),
-                    cacheManager,
-                    config.getKeyTypeClass(),
-                    config.getValueTypeClass(),
-                    config.getHeapSize() != null ? config.getHeapSize()
-                            : properties.getCache().getDefaultHeapSize()
-            ));
+            configs.forEach(config -> createCache(config, cacheManager));
         }
 
         return new JCacheCacheManager(cacheManager);
     }
 
+    /**
+     * Flushes and closes the disk tiers, so persistent ones are reused on the next start.
+     */
+    @PreDestroy
+    public void closePersistentCaches() {
+        if (persistentCacheManager != null) {
+            log.info("Closing persistent rule caches");
+            persistentCacheManager.close();
+        }
+    }
+
     @Bean("customCacheResolver")
     @ConditionalOnMissingBean(name = "customCacheResolver")
     public CacheResolver customCacheResolver(JCacheCacheManager jCacheCacheManager) {
@@ -82,15 +100,61 @@ public class CacheConfiguration {
         return new CacheKeyGenerator();
     }
 
-    private <K, V> void createCache(String cacheName, CacheManager cacheManager,
-                                    Class<K> keyType, Class<V> valueType, int heapSize) {
-        log.info("Creating cache '{}' [keyType={}, valueType={}, heapSize={}]",
-                cacheName, keyType.getSimpleName(), valueType.getSimpleName(), heapSize);
+    /**
+     * @return the provider's default cache manager, or one with a persistence directory if any cache
+     * has a disk tier
+     */
+    private CacheManager cacheManager(List<RuleEngineProperties.CacheProperties.CacheConfig> configs) {
+        CachingProvider provider = Caching.getCachingProvider();
+        if (configs == null || configs.stream().noneMatch(config -> config.getDiskSize() != null)) {
+            return provider.getCacheManager();
+        }
+        String diskPath = properties.getCache().getDiskPath();
+        if (diskPath == null || diskPath.isBlank()) {
+            throw new IllegalStateException("rule.engine.cache.disk-path is required for caches with a disk tier");
+        }
+        if (!(provider instanceof EhcacheCachingProvider ehcacheProvider)) {
+            throw new IllegalStateException("Disk tiers require the Ehcache JCache provider, found "
+                    + provider.getClass().getName());
+        }
+        File directory = new File(diskPath).getAbsoluteFile();
+        log.info("Keeping rule cache disk tiers in {}", directory);
+        persistentCacheManager = ehcacheProvider.getCacheManager(URI.create("urn:rule-engine:" + directory.toURI()),
+                new DefaultConfiguration(provider.getDefaultClassLoader(), new DefaultPersistenceConfiguration(directory)));
+        return persistentCacheManager;
+    }
+
+    private void createCache(RuleEngineProperties.CacheProperties.CacheConfig config, CacheManager cacheManager) {
+        ResourcePoolsBuilder pools = ResourcePoolsBuilder.newResourcePoolsBuilder().heap(config.getHeapSize() != null
+                ? config.getHeapSize() : properties.getCache().getDefaultHeapSize(), EntryUnit.ENTRIES);
+        if (config.getOffHeapSize() != null) {
+            pools = pools.offheap(config.getOffHeapSize().toBytes(), MemoryUnit.B);
+        }
+        if (config.getDiskSize() != null) {
+            pools = pools.disk(config.getDiskSize().toBytes(), MemoryUnit.B, config.isDiskPersistent());
+        }
+        createCache(config.getName(), cacheManager, config.getKeyTypeClass(), config.getValueTypeClass(), pools, config);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K, V> void createCache(String cacheName, CacheManager cacheManager, Class<K> keyType, Class<V> valueType,
+                                    ResourcePoolsBuilder pools, RuleEngineProperties.CacheProperties.CacheConfig config) {
+        log.info("Creating cache '{}' [keyType={}, valueType={}, resources={}]",
+                cacheName, keyType.getSimpleName(), valueType.getSimpleName(), pools.build().getResourceTypeSet());
+
+        CacheConfigurationBuilder<K, V> builder =
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(keyType, valueType, pools);
+        if ((config.getOffHeapSize() != null || config.getDiskSize() != null) && valueType.isAssignableFrom(List.class)) {
+            builder = builder.withValueSerializer((Serializer<V>) new RuleCollectionSerializer(getClass().getClassLoader()));
+        }
+        if (config.getTimeToLive() != null) {
+            builder = builder.withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(config.getTimeToLive()));
+        } else if (config.getTimeToIdle() != null) {
+            builder = builder.withExpiry(ExpiryPolicyBuilder.timeToIdleExpiration(config.getTimeToIdle()));
+        }
 
         org.ehcache.config.CacheConfiguration<K, V> cacheConfiguration =
-                CacheConfigurationBuilder.newCacheConfigurationBuilder(keyType, valueType,
-                                ResourcePoolsBuilder.heap(heapSize))
-                        .withService(CacheEventListenerConfigurationBuilder
+                builder.withService(CacheEventListenerConfigurationBuilder
                                 .newEventListenerConfiguration(
                                         new CacheEventLogger<K, V>(),
                                         EventType.CREATED, EventType.UPDATED,
@@ -0,0 +1,30 @@
+package tech.neatnet.core.rule.engine.api;
+
+/**
+ * Statistics of the expression cache, also reported for the result cache of
+ * {@link RuleEngineClient#resultCacheStats()}, where an entry is one evaluation and loading it means
+ * evaluating the rules.
+ *
+ * @param size               number of cached entries
+ * @param maxSize            configured maximum number of entries
+ * @param hitCount           lookups served from the cache
+ * @param missCount          lookups that loaded the entry
+ * @param evictionCount      entries evicted by the size or weight bound
+ * @param totalLoadTimeNanos time spent loading entries
+ */
+public record CacheStats(int size, int maxSize, long hitCount, long missCount, long evictionCount,
+                         long totalLoadTimeNanos) {
+
+    public double utilizationPercent() {
+        return maxSize > 0 ? (size * 100.0 / maxSize) : 0;
+    }
+
+    public double hitRate() {
+        long requests = hitCount + missCount;
+        return requests > 0 ? (double) hitCount / requests : 1.0;
+    }
+
+    public double averageLoadPenaltyNanos() {
+        return missCount > 0 ? (double) totalLoadTimeNanos / missCount : 0;
+    }
+}
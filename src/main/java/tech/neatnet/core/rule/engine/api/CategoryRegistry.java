@@ -0,0 +1,65 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves persisted category strings ({@code <class name>:<name>}) to category constants.
+ * <p>
+ * The first lookup of a string loads the class and calls its static {@code valueOf(String)}; the
+ * result is remembered, so every later lookup of that string is a single map read. Enums can be
+ * registered up front with {@link #register(Class)}.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class CategoryRegistry {
+
+    /**
+     * Stands in for strings that resolve to no constant of the requested type.
+     */
+    private static final Object UNRESOLVED = new Object();
+
+    private static final Map<String, Object> CATEGORIES = new ConcurrentHashMap<>();
+
+    /**
+     * Registers all constants of a category enum.
+     */
+    static <E extends Enum<E>> void register(Class<E> categoryType) {
+        for (E constant : categoryType.getEnumConstants()) {
+            CATEGORIES.put(categoryType.getName() + ":" + constant.name(), constant);
+        }
+    }
+
+    /**
+     * @return the constant, or {@code null} if the class does not implement {@code type}
+     * @throws IllegalArgumentException if the class or constant does not exist
+     */
+    static <T> T resolve(String persisted, Class<T> type) {
+        Object category = CATEGORIES.get(persisted);
+        if (category == null) {
+            category = load(persisted);
+            CATEGORIES.putIfAbsent(persisted, category);
+        }
+        return type.isInstance(category) ? type.cast(category) : null;
+    }
+
+    private static Object load(String persisted) {
+        int separator = persisted.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Not a persisted category: " + persisted);
+        }
+        try {
+            Class<?> categoryClass = Class.forName(persisted.substring(0, separator));
+            if (!BaseRuleCategory.class.isAssignableFrom(categoryClass)
+                    && !BaseRuleSubCategory.class.isAssignableFrom(categoryClass)) {
+                return UNRESOLVED;
+            }
+            Object category = categoryClass.getMethod("valueOf", String.class).invoke(null, persisted.substring(separator + 1));
+            return category != null ? category : UNRESOLVED;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot resolve category " + persisted, e);
+        }
+    }
+}
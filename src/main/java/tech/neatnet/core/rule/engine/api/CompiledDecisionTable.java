@@ -0,0 +1,127 @@
+package tech.neatnet.core.rule.engine.api;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A decision table whose simple predicates were compiled into a generated class.
+ * <p>
+ * The generated {@link Evaluator} reads every input variable once and tests all rows in order with
+ * plain JVM branches. A row whose predicates all hold gets its bit set in the result; conditions
+ * outside the supported subset are listed in {@link #residualConditions(int)} and still have to be
+ * run through MVEL for rows that were matched by the generated code.
+ *
+ * @see DecisionTableCompiler
+ */
+final class CompiledDecisionTable {
+
+    /**
+     * Implemented by the generated class.
+     */
+    interface Evaluator {
+
+        /**
+         * Sets bit {@code i} of {@code matched} for every row whose compiled predicates hold.
+         * With {@code first} set, returns after the first row that has no residual conditions.
+         */
+        void evaluate(Object[] values, double[] numbers, long[] matched, boolean first);
+    }
+
+    enum Kind {
+        NUMBER, STRING, BOOLEAN
+    }
+
+    private static final long MAX_EXACT_LONG = 1L << 53;
+
+    private final String[] variables;
+    private final Kind[] kinds;
+    private final int[][] residualConditions;
+    private final Evaluator evaluator;
+
+    CompiledDecisionTable(String[] variables, Kind[] kinds, int[][] residualConditions, Evaluator evaluator) {
+        this.variables = variables;
+        this.kinds = kinds;
+        this.residualConditions = residualConditions;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Runs the generated evaluator.
+     *
+     * @return one bit per row, or {@code null} if an input is missing or has a type the generated
+     * code does not handle exactly like MVEL; the caller then falls back to the interpreted path
+     */
+    long[] match(Map<String, Object> inputVariables, boolean first) {
+        return match(inputVariables, first, new Object[slots()], new double[slots()], new long[words()]);
+    }
+
+    /**
+     * Runs the generated evaluator into caller-owned arrays, which may be longer than needed.
+     *
+     * @param values  at least {@link #slots()} long
+     * @param numbers at least {@link #slots()} long
+     * @param matched at least {@link #words()} long, cleared before use
+     * @return {@code matched}, or {@code null} as for {@link #match(Map, boolean)}
+     */
+    long[] match(Map<String, Object> inputVariables, boolean first, Object[] values, double[] numbers, long[] matched) {
+        for (int slot = 0; slot < variables.length; slot++) {
+            Object value = inputVariables.get(variables[slot]);
+            if (value == null && !inputVariables.containsKey(variables[slot])) {
+                return null;
+            }
+            switch (kinds[slot]) {
+                case NUMBER -> {
+                    if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                        numbers[slot] = ((Number) value).intValue();
+                    } else if (value instanceof Long l && Math.abs(l) <= MAX_EXACT_LONG) {
+                        numbers[slot] = l;
+                    } else if (value instanceof Double d && Double.isFinite(d)) {
+                        numbers[slot] = d;
+                    } else {
+                        return null;
+                    }
+                }
+                case STRING -> {
+                    if (value != null && !(value instanceof String)) {
+                        return null;
+                    }
+                    values[slot] = value;
+                }
+                case BOOLEAN -> {
+                    if (value != null && !(value instanceof Boolean)) {
+                        return null;
+                    }
+                    values[slot] = value;
+                }
+            }
+        }
+        Arrays.fill(matched, 0, words(), 0L);
+        evaluator.evaluate(values, numbers, matched, first);
+        return matched;
+    }
+
+    /**
+     * Number of input variables the generated code reads.
+     */
+    int slots() {
+        return variables.length;
+    }
+
+    /**
+     * Number of {@code long}s holding one bit per row.
+     */
+    int words() {
+        return (residualConditions.length + 63) >>> 6;
+    }
+
+    /**
+     * Positions of the conditions of row {@code ruleIndex} that were not compiled and must be run by MVEL.
+     */
+    int[] residualConditions(int ruleIndex) {
+        return residualConditions[ruleIndex];
+    }
+
+    static boolean isSet(long[] matched, int ruleIndex) {
+        return (matched[ruleIndex >>> 6] & (1L << ruleIndex)) != 0;
+    }
+}
@@ -0,0 +1,206 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.neatnet.core.rule.engine.domain.Condition;
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The decision trees of a rule set flattened into arrays.
+ * <p>
+ * Every {@link Condition} reachable from a rule becomes a node. A node stores its compiled expression
+ * (the condition of an inner node, the action of a leaf), its {@code inValues} and the indices of its
+ * true and false children, so evaluation is a loop over ints instead of a recursion over objects.
+ * Rule {@code r} owns the root nodes {@code roots[rootStart[r]] .. roots[rootStart[r + 1] - 1]}.
+ */
+@Slf4j
+final class CompiledDecisionTrees {
+
+    static final int NO_CHILD = -1;
+
+    private final Condition[] nodes;
+    private final String[] expressions;
+    private final Serializable[] compiled;
+    private final Object[] inValues;
+    private final int[] trueChild;
+    private final int[] falseChild;
+    private final int[] roots;
+    private final int[] rootStart;
+
+    private CompiledDecisionTrees(Condition[] nodes, String[] expressions, Serializable[] compiled, Object[] inValues,
+                                  int[] trueChild, int[] falseChild, int[] roots, int[] rootStart) {
+        this.nodes = nodes;
+        this.expressions = expressions;
+        this.compiled = compiled;
+        this.inValues = inValues;
+        this.trueChild = trueChild;
+        this.falseChild = falseChild;
+        this.roots = roots;
+        this.rootStart = rootStart;
+    }
+
+    /**
+     * Flattens and compiles the trees of all rules.
+     * <p>
+     * An expression that does not compile is kept as source, so the error surfaces when (and only when)
+     * evaluation reaches its node, as it did before trees were compiled.
+     *
+     * @param schema input schema the expressions are compiled against, or {@code null}
+     */
+    static CompiledDecisionTrees compile(List<Rule> rules, CoreRuleEngine coreRuleEngine, InputSchema schema) {
+        List<Condition> nodes = new ArrayList<>();
+        IntArray trueChild = new IntArray();
+        IntArray falseChild = new IntArray();
+        IntArray roots = new IntArray();
+        int[] rootStart = new int[rules.size() + 1];
+        // pending children as (condition, parent index, 1 for the true branch / 0 for the false branch)
+        Deque<Object[]> pending = new ArrayDeque<>();
+
+        for (int r = 0; r < rules.size(); r++) {
+            rootStart[r] = roots.size();
+            List<Condition> conditions = rules.get(r).getConditions();
+            if (conditions == null) {
+                continue;
+            }
+            for (Condition root : conditions) {
+                roots.add(nodes.size());
+                pending.push(new Object[]{root, NO_CHILD, 0});
+                while (!pending.isEmpty()) {
+                    Object[] next = pending.pop();
+                    Condition condition = (Condition) next[0];
+                    int parent = (int) next[1];
+                    int node = nodes.size();
+                    nodes.add(condition);
+                    trueChild.add(NO_CHILD);
+                    falseChild.add(NO_CHILD);
+                    if (parent != NO_CHILD) {
+                        (((int) next[2]) == 1 ? trueChild : falseChild).set(parent, node);
+                    }
+                    if (condition.isLeaf()) {
+                        continue;
+                    }
+                    if (condition.getFalseBranch() != null) {
+                        pending.push(new Object[]{condition.getFalseBranch(), node, 0});
+                    }
+                    if (condition.getTrueBranch() != null) {
+                        pending.push(new Object[]{condition.getTrueBranch(), node, 1});
+                    }
+                }
+            }
+        }
+        rootStart[rules.size()] = roots.size();
+
+        int size = nodes.size();
+        String[] expressions = new String[size];
+        Serializable[] compiled = new Serializable[size];
+        Object[] inValues = new Object[size];
+        for (int node = 0; node < size; node++) {
+            Condition condition = nodes.get(node);
+            expressions[node] = condition.isLeaf() ? condition.getAction() : condition.getCondition();
+            try {
+                compiled[node] = coreRuleEngine.compile(expressions[node], schema);
+            } catch (RuntimeException e) {
+                log.warn("Could not compile decision tree expression '{}': {}", expressions[node], e.getMessage());
+            }
+            List<Object> values = condition.getInValues();
+            inValues[node] = values != null && !values.isEmpty() ? values : null;
+        }
+        log.debug("Compiled {} decision trees with {} nodes", roots.size(), size);
+        return new CompiledDecisionTrees(nodes.toArray(new Condition[0]), expressions, compiled, inValues,
+                trueChild.toArray(), falseChild.toArray(), roots.toArray(), rootStart);
+    }
+
+    int rootStart(int ruleIndex) {
+        return rootStart[ruleIndex];
+    }
+
+    int rootEnd(int ruleIndex) {
+        return rootStart[ruleIndex + 1];
+    }
+
+    int root(int rootIndex) {
+        return roots[rootIndex];
+    }
+
+    Condition node(int node) {
+        return nodes[node];
+    }
+
+    boolean isLeaf(int node) {
+        return nodes[node].isLeaf();
+    }
+
+    int child(int node, boolean branch) {
+        return branch ? trueChild[node] : falseChild[node];
+    }
+
+    /**
+     * Evaluates the condition of an inner node.
+     */
+    boolean test(int node, CoreRuleEngine coreRuleEngine, InputVariableResolverFactory variables) {
+        variables.forCondition(inValues[node]);
+        if (compiled[node] == null && expressions[node] != null && !expressions[node].isBlank()) {
+            return coreRuleEngine.evaluateCondition(expressions[node], variables);
+        }
+        return coreRuleEngine.evaluateCompiledCondition(compiled[node], variables);
+    }
+
+    /**
+     * Executes the action of a leaf.
+     */
+    Object execute(int node, CoreRuleEngine coreRuleEngine, InputVariableResolverFactory variables) {
+        variables.forCondition(null);
+        if (compiled[node] == null && expressions[node] != null && !expressions[node].isBlank()) {
+            return coreRuleEngine.executeAction(expressions[node], variables).orElse(null);
+        }
+        return coreRuleEngine.executeCompiledAction(compiled[node], variables);
+    }
+
+    /**
+     * Rebuilds the executed nodes from a root and a branch path.
+     */
+    List<Condition> path(int root, BitSet branches, int length) {
+        List<Condition> executed = new ArrayList<>(length + 1);
+        int node = root;
+        executed.add(nodes[node]);
+        for (int depth = 0; depth < length; depth++) {
+            node = child(node, branches.get(depth));
+            if (node == NO_CHILD) {
+                break;
+            }
+            executed.add(nodes[node]);
+        }
+        return executed;
+    }
+
+    private static final class IntArray {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void set(int index, int value) {
+            values[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package tech.neatnet.core.rule.engine.api;
+
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sampled cost and outcome of the conditions of one {@link RuleSet}, from which the conditions of each
+ * rule are ordered so that the cheapest and most selective run first, and sampled first-match hits,
+ * from which the rules of each run of {@link ExclusiveGroups} are ordered so the most frequent
+ * matches are found first.
+ * <p>
+ * One in {@code sampleRate} rule evaluations times each condition it runs. A condition is only
+ * measured when the conditions before it in the current order were true, so its false-rate is
+ * conditional on them; conditions that are rarely reached keep their place until they have been
+ * measured often enough.
+ */
+final class ConditionStats {
+
+    /**
+     * Measurements a condition needs before it is moved.
+     */
+    private static final long MIN_SAMPLES = 32;
+
+    /**
+     * A new order is only adopted if its expected cost is below this share of the current order's,
+     * so timing noise does not make conditions swap back and forth.
+     */
+    private static final double MIN_GAIN = 0.9;
+
+    /**
+     * Methods taken to only read their target, the only calls a movable condition may make.
+     */
+    private static final Set<String> READ_ONLY_METHODS = Set.of(
+            "contains", "containsKey", "containsValue", "size", "length", "isEmpty", "isBlank",
+            "startsWith", "endsWith", "equals", "equalsIgnoreCase", "compareTo", "matches",
+            "indexOf", "lastIndexOf", "charAt", "get", "getOrDefault", "toLowerCase", "toUpperCase",
+            "trim", "strip", "substring", "intValue", "longValue", "doubleValue", "signum", "hashCode",
+            "toString", "name", "ordinal");
+
+    private final int[] offsets;
+    private final AtomicLongArray evaluations;
+    private final AtomicLongArray falses;
+    private final AtomicLongArray nanos;
+    private final AtomicLongArray hits;
+    private final AtomicLong sampled = new AtomicLong();
+    private final int sampleRate;
+    private final long interval;
+
+    /**
+     * @param sampleRate one in this many rule evaluations is measured
+     * @param interval   number of measured rule evaluations between reorderings
+     */
+    ConditionStats(List<Rule> rules, int sampleRate, long interval) {
+        this.offsets = new int[rules.size() + 1];
+        for (int i = 0; i < rules.size(); i++) {
+            offsets[i + 1] = offsets[i] + rules.get(i).getConditions().size();
+        }
+        this.evaluations = new AtomicLongArray(offsets[rules.size()]);
+        this.falses = new AtomicLongArray(offsets[rules.size()]);
+        this.nanos = new AtomicLongArray(offsets[rules.size()]);
+        this.hits = new AtomicLongArray(rules.size());
+        this.sampleRate = Math.max(1, sampleRate);
+        this.interval = Math.max(1, interval);
+    }
+
+    /**
+     * @return whether the current rule evaluation should be measured
+     */
+    boolean sample() {
+        return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
+    void record(int i, int c, boolean met, long elapsedNanos) {
+        int counter = offsets[i] + c;
+        evaluations.incrementAndGet(counter);
+        nanos.addAndGet(counter, elapsedNanos);
+        if (!met) {
+            falses.incrementAndGet(counter);
+        }
+    }
+
+    /**
+     * Counts a first match of rule {@code i}, one in {@code sampleRate} of them.
+     */
+    void hit(int i) {
+        if (sample()) {
+            hits.incrementAndGet(i);
+        }
+    }
+
+    /**
+     * Counts a measured rule evaluation.
+     *
+     * @return {@code true} once every {@code interval} measured evaluations, when the rule set should be reordered
+     */
+    boolean sampled() {
+        return sampled.incrementAndGet() % interval == 0;
+    }
+
+    /**
+     * Orders the conditions of rule {@code i} by expected cost per rejection, mean cost over
+     * false-rate, keeping conditions that have not been measured enough in their current place.
+     *
+     * @param current the current order of the rule's conditions
+     * @return the better order, or {@code current} if it is not clearly better
+     */
+    int[] order(int i, int[] current) {
+        int conditions = current.length;
+        double[] rank = new double[conditions];
+        for (int c = 0; c < conditions; c++) {
+            long evaluated = evaluations.get(offsets[i] + c);
+            if (evaluated < MIN_SAMPLES) {
+                rank[c] = Double.POSITIVE_INFINITY;
+            } else {
+                long rejected = falses.get(offsets[i] + c);
+                rank[c] = rejected == 0 ? Double.MAX_VALUE : (double) nanos.get(offsets[i] + c) / rejected;
+            }
+        }
+        int[] order = current.clone();
+        // insertion sort, stable so that equally ranked conditions keep their current order
+        for (int k = 1; k < conditions; k++) {
+            int c = order[k];
+            int j = k - 1;
+            while (j >= 0 && rank[order[j]] > rank[c]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = c;
+        }
+        return expectedCost(i, order) < MIN_GAIN * expectedCost(i, current) ? order : current;
+    }
+
+    /**
+     * Orders the rules within each exclusive run by descending hits, keeping runs with too few hits
+     * or no clear gain in their current order.
+     *
+     * @param current rule indices in the current evaluation order
+     * @return the better order, or {@code current} if no run changed
+     */
+    int[] rowOrder(ExclusiveGroups groups, int[] current) {
+        int[] order = null;
+        for (int g = 0; g < groups.size(); g++) {
+            int from = groups.from(g);
+            int to = groups.to(g);
+            long total = 0;
+            for (int k = from; k < to; k++) {
+                total += hits.get(current[k]);
+            }
+            if (total < MIN_SAMPLES) {
+                continue;
+            }
+            int[] run = Arrays.copyOfRange(current, from, to);
+            for (int k = 1; k < run.length; k++) {
+                int i = run[k];
+                int j = k - 1;
+                while (j >= 0 && hits.get(run[j]) < hits.get(i)) {
+                    run[j + 1] = run[j];
+                    j--;
+                }
+                run[j + 1] = i;
+            }
+            if (expectedEvaluations(run, 0, run.length) < MIN_GAIN * expectedEvaluations(current, from, to)) {
+                if (order == null) {
+                    order = current.clone();
+                }
+                System.arraycopy(run, 0, order, from, run.length);
+            }
+        }
+        return order != null ? order : current;
+    }
+
+    /**
+     * Hit-weighted number of rules evaluated within a run until its match is found.
+     */
+    private double expectedEvaluations(int[] order, int from, int to) {
+        double evaluations = 0;
+        for (int k = from; k < to; k++) {
+            evaluations += (double) hits.get(order[k]) * (k - from + 1);
+        }
+        return evaluations;
+    }
+
+    /**
+     * Mean cost of evaluating the rule's conditions in the given order, assuming independent
+     * conditions: each condition's cost is weighted by the chance that all before it were true.
+     * Conditions that have not been measured enough are left out.
+     */
+    private double expectedCost(int i, int[] order) {
+        double cost = 0;
+        double reached = 1;
+        for (int c : order) {
+            long evaluated = evaluations.get(offsets[i] + c);
+            if (evaluated >= MIN_SAMPLES) {
+                cost += reached * nanos.get(offsets[i] + c) / evaluated;
+                reached *= 1 - (double) falses.get(offsets[i] + c) / evaluated;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Whether a condition can be moved. An assignment, increment or method call outside string literals
+     * is taken as a sign the condition is written for its effect, and its rule keeps the stored order.
+     * Calls of methods in {@link #READ_ONLY_METHODS} are allowed.
+     */
+    static boolean isSideEffectFree(String expression) {
+        if (expression == null) {
+            return true;
+        }
+        char quote = 0;
+        for (int k = 0; k < expression.length(); k++) {
+            char ch = expression.charAt(k);
+            if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                }
+            } else if (ch == '\'' || ch == '"') {
+                quote = ch;
+            } else if (ch == '=') {
+                char before = k > 0 ? expression.charAt(k - 1) : ' ';
+                char after = k + 1 < expression.length() ? expression.charAt(k + 1) : ' ';
+                if (after == '=') {
+                    k++;
+                } else if (before != '!' && before != '<' && before != '>' && before != '~') {
+                    return false;
+                }
+            } else if ((ch == '+' || ch == '-') && k + 1 < expression.length() && expression.charAt(k + 1) == ch) {
+                return false;
+            } else if (ch == '(' && !isReadOnlyCall(expression, k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param paren position of an opening parenthesis
+     * @return whether it does not open a call of a method, or opens a call of a read-only one
+     */
+    private static boolean isReadOnlyCall(String expression, int paren) {
+        int end = paren;
+        while (end > 0 && Character.isWhitespace(expression.charAt(end - 1))) {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && Character.isJavaIdentifierPart(expression.charAt(start - 1))) {
+            start--;
+        }
+        int dot = start;
+        while (dot > 0 && Character.isWhitespace(expression.charAt(dot - 1))) {
+            dot--;
+        }
+        if (start == end || dot == 0 || expression.charAt(dot - 1) != '.') {
+            return true;
+        }
+        return READ_ONLY_METHODS.contains(expression.substring(start, end));
+    }
+}
@@ -1,22 +1,32 @@
 package tech.neatnet.core.rule.engine.api;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import lombok.extern.slf4j.Slf4j;
 import org.mvel2.MVEL;
 import org.mvel2.ParserContext;
+import org.mvel2.integration.VariableResolverFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Core MVEL expression evaluation engine with compiled expression caching.
  * <p>
  * Performance optimizations:
  * <ul>
- *     <li>Compiled expressions are cached in a ConcurrentHashMap</li>
+ *     <li>Compiled expressions are cached in a bounded Caffeine cache (W-TinyLFU admission and eviction)</li>
+ *     <li>Compilation runs outside of any cache lock; concurrent callers wait for the same result</li>
  *     <li>Thread-safe expression evaluation</li>
  *     <li>Lazy compilation on first use</li>
+ *     <li>Strongly typed compilation against an {@link InputSchema}, cached apart from the untyped form</li>
  * </ul>
  */
 @Slf4j
@@ -24,9 +34,9 @@ class CoreRuleEngine {
 
     /**
      * Cache for compiled MVEL expressions.
-     * Key: expression string, Value: compiled expression
+     * Key: expression string and input schema, Value: compiled expression
      */
-    private final ConcurrentHashMap<String, Serializable> expressionCache = new ConcurrentHashMap<>();
+    private final AsyncCache<ExpressionKey, CompiledExpression> expressionCache;
 
     /**
      * Shared parser context for consistent compilation settings.
@@ -38,32 +48,72 @@ class CoreRuleEngine {
      */
     private final int maxCacheSize;
 
+    /**
+     * Maximum total weight of the cache in bytes of serialized compiled expressions, or 0 to bound by count only.
+     */
+    private final long maxCacheWeight;
+
+    private static final String[] NO_INPUTS = new String[0];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loadTimeNanos = new LongAdder();
+
     public CoreRuleEngine() {
         this(10_000);
     }
 
     public CoreRuleEngine(int maxCacheSize) {
+        this(maxCacheSize, 0);
+    }
+
+    public CoreRuleEngine(int maxCacheSize, long maxCacheWeight) {
         this.maxCacheSize = maxCacheSize;
+        this.maxCacheWeight = maxCacheWeight;
         this.parserContext = createParserContext();
-        log.info("CoreRuleEngine initialized with expression cache (maxSize={})", maxCacheSize);
+        this.expressionCache = createExpressionCache();
+        log.info("CoreRuleEngine initialized with expression cache (maxSize={}, maxWeight={})", maxCacheSize, maxCacheWeight);
     }
 
     /**
      * Evaluates a boolean condition against the provided data.
      *
      * @param condition MVEL expression that returns a boolean
-     * @param data      variables available to the expression
+     * @param data      variables available to the expression, never modified
      * @return result of condition evaluation
      */
     public boolean evaluateCondition(String condition, Map<String, Object> data) {
+        return evaluateCondition(condition, new InputVariableResolverFactory(data));
+    }
+
+    /**
+     * Evaluates a boolean condition against the provided variables.
+     *
+     * @param condition MVEL expression that returns a boolean
+     * @param variables variables available to the expression
+     * @return result of condition evaluation
+     */
+    public boolean evaluateCondition(String condition, VariableResolverFactory variables) {
         if (condition == null || condition.isBlank()) {
             log.debug("Empty condition, returning true");
             return true;
         }
 
-        log.debug("Evaluating condition: {} with data: {}", condition, data);
-        Serializable compiledExpression = getCompiledExpression(condition);
-        Object result = MVEL.executeExpression(compiledExpression, data);
+        log.debug("Evaluating condition: {}", condition);
+        return evaluateCompiledCondition(getCompiledExpression(condition), variables);
+    }
+
+    /**
+     * Evaluates a condition previously returned by {@link #compile(String)}.
+     *
+     * @param compiledCondition compiled condition, {@code null} for an empty condition
+     */
+    boolean evaluateCompiledCondition(Serializable compiledCondition, VariableResolverFactory variables) {
+        if (compiledCondition == null) {
+            return true;
+        }
+        Object result = MVEL.executeExpression(compiledCondition, variables);
 
         boolean boolResult = result instanceof Boolean ? (Boolean) result : Boolean.parseBoolean(String.valueOf(result));
         log.debug("Condition result: {}", boolResult);
@@ -74,57 +124,194 @@ class CoreRuleEngine {
      * Executes an action expression and returns the result.
      *
      * @param action MVEL expression to execute
-     * @param data   variables available to the expression
+     * @param data   variables available to the expression, never modified
      * @return result of action execution
      */
     public Optional<Object> executeAction(String action, Map<String, Object> data) {
+        return executeAction(action, new InputVariableResolverFactory(data));
+    }
+
+    /**
+     * Executes an action expression and returns the result.
+     *
+     * @param action    MVEL expression to execute
+     * @param variables variables available to the expression
+     * @return result of action execution
+     */
+    public Optional<Object> executeAction(String action, VariableResolverFactory variables) {
         if (action == null || action.isBlank()) {
             log.debug("Empty action, returning empty");
             return Optional.empty();
         }
 
-        log.debug("Executing action: {} with data: {}", action, data);
-        Serializable compiledExpression = getCompiledExpression(action);
-        Object result = MVEL.executeExpression(compiledExpression, data);
+        log.debug("Executing action: {}", action);
+        return Optional.ofNullable(executeCompiledAction(getCompiledExpression(action), variables));
+    }
+
+    /**
+     * Executes an action previously returned by {@link #compile(String)}.
+     *
+     * @param compiledAction compiled action, {@code null} for an empty action
+     * @return the result, or {@code null} if the action is empty or produced none
+     */
+    Object executeCompiledAction(Serializable compiledAction, VariableResolverFactory variables) {
+        if (compiledAction == null) {
+            return null;
+        }
+        Object result = MVEL.executeExpression(compiledAction, variables);
         log.debug("Action result: {}", result);
-        return Optional.ofNullable(result);
+        return result;
+    }
+
+    /**
+     * Compiles an expression through the cache for a caller that keeps the compiled form,
+     * such as a decision tree compiled at load time.
+     *
+     * @return the compiled expression, or {@code null} for an empty expression
+     */
+    Serializable compile(String expression) {
+        return compile(expression, null);
+    }
+
+    /**
+     * Compiles an expression through the cache in strict mode, with the schema's variables declared.
+     *
+     * @param schema input schema of the expression's category, or {@code null} to compile untyped
+     * @return the compiled expression, or {@code null} for an empty expression
+     * @throws org.mvel2.CompileException if the expression does not type-check against the schema
+     */
+    Serializable compile(String expression, InputSchema schema) {
+        return expression == null || expression.isBlank() ? null : getCompiledExpression(new ExpressionKey(expression, schema));
+    }
+
+    /**
+     * Names of the input variables an expression reads, excluding {@code inValues}. They are recorded
+     * when the expression is compiled; an expression that is not in the cache is analysed without
+     * being compiled.
+     */
+    String[] inputs(String expression, InputSchema schema) {
+        if (expression == null || expression.isBlank()) {
+            return NO_INPUTS;
+        }
+        CompletableFuture<CompiledExpression> cached = expressionCache.getIfPresent(new ExpressionKey(expression, schema));
+        if (cached != null && cached.isDone() && cached.join().failure() == null) {
+            return cached.join().inputs();
+        }
+        return analyseInputs(expression);
+    }
+
+    private static String[] analyseInputs(String expression) {
+        ParserContext context = new ParserContext();
+        try {
+            MVEL.analysisCompile(expression, context);
+        } catch (RuntimeException e) {
+            return NO_INPUTS;
+        }
+        return context.getInputs().keySet().stream()
+                .filter(name -> !InputVariableResolverFactory.IN_VALUES.equals(name))
+                .toArray(String[]::new);
     }
 
     /**
      * Evaluates a condition with optional inValues parameter.
      *
      * @param condition MVEL expression
-     * @param data      variables available to the expression
-     * @param inValues  optional array of values to include as "inValues" variable
+     * @param data      variables available to the expression, never modified
+     * @param inValues  optional array of values to expose as the "inValues" variable
      * @return result of evaluation
      */
     public boolean evaluate(String condition, Map<String, Object> data, Optional<String[]> inValues) {
-        inValues.ifPresent(values -> data.put("inValues", values));
-        return evaluateCondition(condition, data);
+        return evaluateCondition(condition, new InputVariableResolverFactory(data).forCondition(inValues.orElse(null)));
     }
 
     /**
      * Gets a compiled expression from cache, or compiles and caches it.
+     * <p>
+     * On a miss an incomplete future is published first and the expression is compiled afterwards by the
+     * calling thread, so no cache lock is held while MVEL compiles. Other threads asking for the same
+     * expression wait on that future instead of compiling it again.
      *
      * @param expression MVEL expression string
      * @return compiled expression
      */
     private Serializable getCompiledExpression(String expression) {
-        return expressionCache.computeIfAbsent(expression, this::compileExpression);
+        return getCompiledExpression(new ExpressionKey(expression, null));
+    }
+
+    private Serializable getCompiledExpression(ExpressionKey expression) {
+        CompletableFuture<CompiledExpression> cached = expressionCache.getIfPresent(expression);
+        if (cached == null) {
+            CompletableFuture<CompiledExpression> loading = new CompletableFuture<>();
+            cached = expressionCache.get(expression, (key, executor) -> loading);
+            if (cached == loading) {
+                misses.increment();
+                return load(expression, loading);
+            }
+        }
+        hits.increment();
+        CompiledExpression compiled = cached.join();
+        if (compiled.failure() != null) {
+            throw compiled.failure();
+        }
+        return compiled.expression();
+    }
+
+    private Serializable load(ExpressionKey expression, CompletableFuture<CompiledExpression> loading) {
+        long startTime = System.nanoTime();
+        try {
+            CompiledExpression compiled = compileExpression(expression);
+            loading.complete(compiled);
+            return compiled.expression();
+        } catch (RuntimeException e) {
+            // removed first and completed normally, so the cache neither keeps nor logs the failure;
+            // threads already waiting see the same exception
+            expressionCache.asMap().remove(expression, loading);
+            loading.complete(CompiledExpression.failed(e));
+            throw e;
+        } finally {
+            loadTimeNanos.add(System.nanoTime() - startTime);
+        }
     }
 
     /**
      * Compiles an MVEL expression.
      */
-    private Serializable compileExpression(String expression) {
-        // Evict oldest entries if cache is full (simple strategy)
-        if (expressionCache.size() >= maxCacheSize) {
-            log.warn("Expression cache full (size={}), clearing cache", maxCacheSize);
-            expressionCache.clear();
+    private CompiledExpression compileExpression(ExpressionKey key) {
+        log.debug("Compiling expression: {}", key.expression());
+        Serializable compiled = MVEL.compileExpression(key.expression(),
+                key.schema() != null ? key.schema().parserContext() : parserContext);
+        return new CompiledExpression(compiled, maxCacheWeight > 0 ? weigh(key.expression(), compiled) : 1,
+                analyseInputs(key.expression()));
+    }
+
+    /**
+     * Weighs a compiled expression by its serialized size, falling back to the expression length
+     * if the compiled form does not serialize.
+     */
+    private static int weigh(String expression, Serializable compiled) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(compiled);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Could not serialize compiled expression '{}', weighing by length", expression);
+            return Math.max(1, expression.length());
         }
+        return bytes.size();
+    }
 
-        log.debug("Compiling expression: {}", expression);
-        return MVEL.compileExpression(expression, parserContext);
+    private AsyncCache<ExpressionKey, CompiledExpression> createExpressionCache() {
+        // cache maintenance is cheap, run it on the calling thread rather than the common pool
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .executor(Runnable::run);
+        if (maxCacheWeight > 0) {
+            builder.maximumWeight(maxCacheWeight)
+                    .weigher((ExpressionKey expression, CompiledExpression compiled) -> compiled.weight());
+        } else {
+            builder.maximumSize(maxCacheSize);
+        }
+        return builder
+                .evictionListener((ExpressionKey expression, CompiledExpression compiled, RemovalCause cause) -> evictions.increment())
+                .buildAsync();
     }
 
     /**
@@ -160,20 +347,36 @@ class CoreRuleEngine {
      * Clears the expression cache.
      */
     public void clearCache() {
-        log.info("Clearing expression cache (size={})", expressionCache.size());
-        expressionCache.clear();
+        log.info("Clearing expression cache (size={})", expressionCache.synchronous().estimatedSize());
+        expressionCache.synchronous().invalidateAll();
     }
 
     /**
      * Returns current cache statistics.
      */
     public CacheStats getCacheStats() {
-        return new CacheStats(expressionCache.size(), maxCacheSize);
+        return new CacheStats((int) expressionCache.synchronous().estimatedSize(), maxCacheSize,
+                hits.sum(), misses.sum(), evictions.sum(), loadTimeNanos.sum());
     }
 
-    public record CacheStats(int size, int maxSize) {
-        public double utilizationPercent() {
-            return maxSize > 0 ? (size * 100.0 / maxSize) : 0;
+    /**
+     * @param failure why the expression did not compile, or {@code null}; only seen by threads that
+     *                waited for a failed compile, never stored in the cache
+     */
+    private record CompiledExpression(Serializable expression, int weight, String[] inputs, RuntimeException failure) {
+
+        CompiledExpression(Serializable expression, int weight, String[] inputs) {
+            this(expression, weight, inputs, null);
+        }
+
+        static CompiledExpression failed(RuntimeException failure) {
+            return new CompiledExpression(null, 0, NO_INPUTS, failure);
         }
     }
+
+    /**
+     * Schemas are compared by identity; each is created once, when the engine starts.
+     */
+    private record ExpressionKey(String expression, InputSchema schema) {
+    }
 }
@@ -2,18 +2,18 @@ package tech.neatnet.core.rule.engine.api;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import org.mvel2.integration.VariableResolverFactory;
 
 import java.util.List;
-import java.util.Map;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 class CoreRuleEngineHelper {
 
-    static Map<String, Object> mergeInputVariables(Map<String, Object> inputVariables, List<Object> inValues) {
-        if (inValues != null && !inValues.isEmpty()) {
-            inputVariables.put("inValues", inValues);
-        }
-        return inputVariables;
+    /**
+     * Exposes a condition's {@code inValues} on top of the input variables without touching the input map.
+     */
+    static VariableResolverFactory conditionVariables(InputVariableResolverFactory inputVariables, List<Object> inValues) {
+        return inputVariables.forCondition(inValues != null && !inValues.isEmpty() ? inValues : null);
     }
 
 }
\ No newline at end of file
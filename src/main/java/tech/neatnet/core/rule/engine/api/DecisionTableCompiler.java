@@ -0,0 +1,402 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import tech.neatnet.core.rule.engine.domain.Condition;
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates a hidden class that evaluates a whole decision table with plain JVM branches.
+ * <p>
+ * Supported are conditions that are a conjunction of {@link SimplePredicate}s: numbers compared
+ * with {@code == != < <= > >=}, strings and booleans compared with {@code ==} and {@code !=}.
+ * Every other condition of a rule is left to MVEL, see {@link CompiledDecisionTable#residualConditions(int)}.
+ * <p>
+ * Rows are split into methods of at most {@value #METHOD_BYTES} bytes of bytecode, so every method
+ * stays below HotSpot's {@code HugeMethodLimit} of 8000 bytes and is compiled by the JIT.
+ * <p>
+ * Hidden classes are not strongly referenced by their loader, so a table is unloaded together with
+ * the rule set that owns it.
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+class DecisionTableCompiler {
+
+    private static final int METHOD_BYTES = 6000;
+    // a call emitted by generateCall is 12 bytes
+    private static final int CALLS_PER_METHOD = METHOD_BYTES / 12;
+    private static final BigDecimal MAX_EXACT_LONG = BigDecimal.valueOf(1L << 53);
+
+    private static final String CLASS_NAME = "tech/neatnet/core/rule/engine/api/GeneratedDecisionTable";
+    private static final String EVALUATOR = Type.getInternalName(CompiledDecisionTable.Evaluator.class);
+    private static final String EVALUATE_DESC = "([Ljava/lang/Object;[D[JZ)V";
+    private static final String ROWS_DESC = "([Ljava/lang/Object;[D[JZ)Z";
+
+    // local variable slots of the generated methods
+    private static final int VALUES = 1;
+    private static final int NUMBERS = 2;
+    private static final int MATCHED = 3;
+    private static final int FIRST = 4;
+    private static final int FIRST_VARIABLE = 5;
+
+    /**
+     * Compiles the rules into a table.
+     *
+     * @return the table, or {@code null} if no condition could be compiled or generation failed
+     */
+    static CompiledDecisionTable compile(List<Rule> rules) {
+        Table table = analyze(rules);
+        if (table == null) {
+            return null;
+        }
+        String[] variables = table.slots().keySet().toArray(new String[0]);
+        CompiledDecisionTable.Kind[] kinds = table.slots().values().stream()
+                .map(Slot::kind)
+                .toArray(CompiledDecisionTable.Kind[]::new);
+        try {
+            byte[] bytecode = generate(table);
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytecode, true);
+            CompiledDecisionTable.Evaluator evaluator = (CompiledDecisionTable.Evaluator) lookup
+                    .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+            log.debug("Compiled decision table of {} rules ({} conditions compiled) into {}",
+                    rules.size(), table.compiled(), lookup.lookupClass().getName());
+            return new CompiledDecisionTable(variables, kinds, table.residuals(), evaluator);
+        } catch (Throwable e) {
+            log.warn("Failed to generate decision table class for {} rules, using MVEL instead", rules.size(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the class file generated for the rules, or {@code null} if no condition could be compiled
+     */
+    static byte[] bytecode(List<Rule> rules) {
+        Table table = analyze(rules);
+        return table != null ? generate(table) : null;
+    }
+
+    private static Table analyze(List<Rule> rules) {
+        Map<String, Slot> slots = new LinkedHashMap<>();
+        List<List<Check>> checks = new ArrayList<>(rules.size());
+        int[][] residuals = new int[rules.size()][];
+        int compiled = 0;
+
+        for (int i = 0; i < rules.size(); i++) {
+            List<Check> rowChecks = new ArrayList<>();
+            List<Integer> rowResiduals = new ArrayList<>();
+            List<Condition> conditions = rules.get(i).getConditions() != null ? rules.get(i).getConditions() : List.of();
+            for (int c = 0; c < conditions.size(); c++) {
+                List<Check> conditionChecks = compileCondition(conditions.get(c), slots);
+                if (conditionChecks == null) {
+                    rowResiduals.add(c);
+                } else {
+                    rowChecks.addAll(conditionChecks);
+                    compiled++;
+                }
+            }
+            checks.add(rowChecks);
+            residuals[i] = rowResiduals.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return compiled > 0 ? new Table(slots, checks, residuals, compiled) : null;
+    }
+
+    /**
+     * Returns the checks for a condition, or {@code null} if any part of it is outside the supported subset.
+     */
+    private static List<Check> compileCondition(Condition condition, Map<String, Slot> slots) {
+        if (condition.getInValues() != null && !condition.getInValues().isEmpty()) {
+            return null;
+        }
+        SimplePredicate.Conjunction conjunction = SimplePredicate.parseConjunction(condition.getCondition());
+        if (!conjunction.complete()) {
+            return null;
+        }
+        List<Check> conditionChecks = new ArrayList<>(conjunction.predicates().size());
+        for (SimplePredicate predicate : conjunction.predicates()) {
+            CompiledDecisionTable.Kind kind = kindOf(predicate);
+            if (kind == null || kind != kindOf(predicate.variable(), slots, conditionChecks, kind)) {
+                return null;
+            }
+            conditionChecks.add(new Check(predicate.variable(), kind, predicate.operator(), predicate.literal()));
+        }
+        for (Check check : conditionChecks) {
+            slots.computeIfAbsent(check.variable(), v -> new Slot(slots.size(), check.kind()));
+        }
+        return conditionChecks;
+    }
+
+    /**
+     * The kind a variable already has in the table or in the pending checks, or {@code kind} if it is new.
+     */
+    private static CompiledDecisionTable.Kind kindOf(String variable, Map<String, Slot> slots,
+                                                    List<Check> pending, CompiledDecisionTable.Kind kind) {
+        Slot slot = slots.get(variable);
+        if (slot != null) {
+            return slot.kind();
+        }
+        for (Check check : pending) {
+            if (check.variable().equals(variable)) {
+                return check.kind();
+            }
+        }
+        return kind;
+    }
+
+    private static CompiledDecisionTable.Kind kindOf(SimplePredicate predicate) {
+        Object literal = predicate.literal();
+        boolean equality = predicate.operator() == SimplePredicate.Operator.EQ
+                || predicate.operator() == SimplePredicate.Operator.NE;
+        if (literal instanceof String) {
+            return equality ? CompiledDecisionTable.Kind.STRING : null;
+        }
+        if (literal instanceof Boolean) {
+            return equality ? CompiledDecisionTable.Kind.BOOLEAN : null;
+        }
+        if (literal instanceof BigDecimal number && isExactDouble(number)) {
+            return CompiledDecisionTable.Kind.NUMBER;
+        }
+        return null;
+    }
+
+    /**
+     * Whether comparing against {@code number.doubleValue()} gives the same answer as MVEL's numeric comparison.
+     */
+    private static boolean isExactDouble(BigDecimal number) {
+        if (number.abs().compareTo(MAX_EXACT_LONG) > 0) {
+            return false;
+        }
+        return BigDecimal.valueOf(number.doubleValue()).compareTo(number) == 0;
+    }
+
+    private static byte[] generate(Table table) {
+        Map<String, Slot> slots = table.slots();
+        List<List<Check>> checks = table.checks();
+        int[][] residuals = table.residuals();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V17, Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, CLASS_NAME, null,
+                "java/lang/Object", new String[]{EVALUATOR});
+
+        MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        List<String> methods = new ArrayList<>();
+        for (int from = 0; from < checks.size(); ) {
+            int to = rowsEnd(slots, checks, residuals, from);
+            String name = "rows" + methods.size();
+            generateRows(cw, name, slots, checks, residuals, from, to);
+            methods.add(name);
+            from = to;
+        }
+        // very large tables call their rows methods through intermediate methods of the same size limit
+        for (int level = 0; methods.size() > CALLS_PER_METHOD; level++) {
+            List<String> groups = new ArrayList<>();
+            for (int from = 0; from < methods.size(); from += CALLS_PER_METHOD) {
+                String name = "group" + level + "_" + groups.size();
+                generateCalls(cw, name, methods.subList(from, Math.min(from + CALLS_PER_METHOD, methods.size())));
+                groups.add(name);
+            }
+            methods = groups;
+        }
+
+        MethodVisitor evaluate = cw.visitMethod(Opcodes.ACC_PUBLIC, "evaluate", EVALUATE_DESC, null, null);
+        evaluate.visitCode();
+        Label done = new Label();
+        for (String method : methods) {
+            generateCall(evaluate, method, done);
+        }
+        evaluate.visitLabel(done);
+        evaluate.visitInsn(Opcodes.RETURN);
+        evaluate.visitMaxs(0, 0);
+        evaluate.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Emits a method calling rows or group methods in order, returning {@code true} as soon as one does.
+     */
+    private static void generateCalls(ClassWriter cw, String name, List<String> methods) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PRIVATE, name, ROWS_DESC, null, null);
+        mv.visitCode();
+        Label stop = new Label();
+        for (String method : methods) {
+            generateCall(mv, method, stop);
+        }
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitLabel(stop);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void generateCall(MethodVisitor mv, String method, Label stop) {
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, VALUES);
+        mv.visitVarInsn(Opcodes.ALOAD, NUMBERS);
+        mv.visitVarInsn(Opcodes.ALOAD, MATCHED);
+        mv.visitVarInsn(Opcodes.ILOAD, FIRST);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, CLASS_NAME, method, ROWS_DESC, false);
+        mv.visitJumpInsn(Opcodes.IFNE, stop);
+    }
+
+    /**
+     * The end of the rows from {@code from} that fit into one method, at least one row. Sizes are upper
+     * bounds of what {@link #generateRows} and {@link #generateCheck} emit.
+     */
+    private static int rowsEnd(Map<String, Slot> slots, List<List<Check>> checks, int[][] residuals, int from) {
+        // variable reads (aload, push index, xaload, wide xstore) and the final return
+        int bytes = 9 * slots.size() + 2;
+        int row = from;
+        while (row < checks.size()) {
+            // matched bit (aload, push index, dup2, laload, ldc2_w, lor, lastore)
+            int rowBytes = 11;
+            for (Check check : checks.get(row)) {
+                // number: wide dload, ldc2_w, dcmpl, jump; string and boolean: ldc_w or getstatic, wide aload, invoke, jump
+                rowBytes += check.kind() == CompiledDecisionTable.Kind.NUMBER ? 11 : 13;
+            }
+            if (residuals[row].length == 0) {
+                // iload, ifeq, iconst_1, ireturn
+                rowBytes += 7;
+            }
+            if (row > from && bytes + rowBytes > METHOD_BYTES) {
+                break;
+            }
+            bytes += rowBytes;
+            row++;
+        }
+        return row;
+    }
+
+    /**
+     * Emits a method testing rows {@code [from, to)}. It returns {@code true} when evaluation can stop.
+     */
+    private static void generateRows(ClassWriter cw, String name, Map<String, Slot> slots,
+                                     List<List<Check>> checks, int[][] residuals, int from, int to) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PRIVATE, name, ROWS_DESC, null, null);
+        mv.visitCode();
+
+        // read every variable once into a local
+        int[] locals = new int[slots.size()];
+        int next = FIRST_VARIABLE;
+        for (Slot slot : slots.values()) {
+            locals[slot.index()] = next;
+            if (slot.kind() == CompiledDecisionTable.Kind.NUMBER) {
+                mv.visitVarInsn(Opcodes.ALOAD, NUMBERS);
+                pushInt(mv, slot.index());
+                mv.visitInsn(Opcodes.DALOAD);
+                mv.visitVarInsn(Opcodes.DSTORE, next);
+                next += 2;
+            } else {
+                mv.visitVarInsn(Opcodes.ALOAD, VALUES);
+                pushInt(mv, slot.index());
+                mv.visitInsn(Opcodes.AALOAD);
+                mv.visitVarInsn(Opcodes.ASTORE, next);
+                next += 1;
+            }
+        }
+
+        for (int row = from; row < to; row++) {
+            Label nextRow = new Label();
+            for (Check check : checks.get(row)) {
+                generateCheck(mv, check, locals[slots.get(check.variable()).index()], nextRow);
+            }
+            // matched[row >>> 6] |= 1L << row
+            mv.visitVarInsn(Opcodes.ALOAD, MATCHED);
+            pushInt(mv, row >>> 6);
+            mv.visitInsn(Opcodes.DUP2);
+            mv.visitInsn(Opcodes.LALOAD);
+            mv.visitLdcInsn(1L << row);
+            mv.visitInsn(Opcodes.LOR);
+            mv.visitInsn(Opcodes.LASTORE);
+            if (residuals[row].length == 0) {
+                mv.visitVarInsn(Opcodes.ILOAD, FIRST);
+                mv.visitJumpInsn(Opcodes.IFEQ, nextRow);
+                mv.visitInsn(Opcodes.ICONST_1);
+                mv.visitInsn(Opcodes.IRETURN);
+            }
+            mv.visitLabel(nextRow);
+        }
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Emits a test of one predicate that jumps to {@code fail} when it does not hold.
+     */
+    private static void generateCheck(MethodVisitor mv, Check check, int local, Label fail) {
+        switch (check.kind()) {
+            case NUMBER -> {
+                mv.visitVarInsn(Opcodes.DLOAD, local);
+                mv.visitLdcInsn(((BigDecimal) check.literal()).doubleValue());
+                mv.visitInsn(Opcodes.DCMPL);
+                int jumpIfFalse = switch (check.operator()) {
+                    case EQ -> Opcodes.IFNE;
+                    case NE -> Opcodes.IFEQ;
+                    case LT -> Opcodes.IFGE;
+                    case LE -> Opcodes.IFGT;
+                    case GT -> Opcodes.IFLE;
+                    case GE -> Opcodes.IFLT;
+                };
+                mv.visitJumpInsn(jumpIfFalse, fail);
+            }
+            case STRING -> {
+                mv.visitLdcInsn(check.literal());
+                mv.visitVarInsn(Opcodes.ALOAD, local);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+                mv.visitJumpInsn(check.operator() == SimplePredicate.Operator.EQ ? Opcodes.IFEQ : Opcodes.IFNE, fail);
+            }
+            case BOOLEAN -> {
+                mv.visitFieldInsn(Opcodes.GETSTATIC, "java/lang/Boolean",
+                        Boolean.TRUE.equals(check.literal()) ? "TRUE" : "FALSE", "Ljava/lang/Boolean;");
+                mv.visitVarInsn(Opcodes.ALOAD, local);
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Boolean", "equals", "(Ljava/lang/Object;)Z", false);
+                mv.visitJumpInsn(check.operator() == SimplePredicate.Operator.EQ ? Opcodes.IFEQ : Opcodes.IFNE, fail);
+            }
+        }
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(value <= Byte.MAX_VALUE ? Opcodes.BIPUSH : Opcodes.SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private record Table(Map<String, Slot> slots, List<List<Check>> checks, int[][] residuals, int compiled) {
+    }
+
+    private record Slot(int index, CompiledDecisionTable.Kind kind) {
+    }
+
+    private record Check(String variable, CompiledDecisionTable.Kind kind, SimplePredicate.Operator operator,
+                         Object literal) {
+    }
+}
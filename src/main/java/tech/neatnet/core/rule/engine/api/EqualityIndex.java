@@ -0,0 +1,321 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.neatnet.core.rule.engine.domain.Condition;
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Discrimination index over the equality tests of a rule set.
+ * <p>
+ * The variable that appears in an equality test ({@code customerType == 'premium'}) in most
+ * rules is chosen as the discriminator. Rules are hashed by the literal they require for it;
+ * rules that do not test it stay in an unkeyed list. At evaluation time only the bucket for the
+ * input's value plus the unkeyed rules can match, every other rule is known to be false without
+ * running MVEL.
+ * <p>
+ * The index is only consulted when the input value has a type whose equality semantics match
+ * MVEL's (strings, booleans, integral numbers, doubles, big decimals) and matches the type of the
+ * indexed literals. For anything else, or when the variable is missing from the input,
+ * {@link #lookup(Map)} returns {@code null} and every rule is evaluated as before.
+ */
+@Slf4j
+final class EqualityIndex {
+
+    static final EqualityIndex NONE = new EqualityIndex(null, null, Map.of(), new int[0], new int[0]);
+
+    private static final int[] EMPTY = new int[0];
+
+    private final String variable;
+    private final Class<?> keyType;
+    private final Map<Object, int[]> buckets;
+    private final int[] unkeyed;
+
+    /**
+     * Per rule: the position of the condition that is fully decided by the index, or -1.
+     */
+    private final int[] coveredCondition;
+
+    private EqualityIndex(String variable, Class<?> keyType, Map<Object, int[]> buckets, int[] unkeyed,
+                          int[] coveredCondition) {
+        this.variable = variable;
+        this.keyType = keyType;
+        this.buckets = buckets;
+        this.unkeyed = unkeyed;
+        this.coveredCondition = coveredCondition;
+    }
+
+    static EqualityIndex build(List<Rule> rules) {
+        Map<String, Integer> usage = new LinkedHashMap<>();
+        Map<String, Class<?>> literalTypes = new HashMap<>();
+        for (Rule rule : rules) {
+            for (Condition condition : conditionsOf(rule)) {
+                if (!hasInValues(condition)) {
+                    for (SimplePredicate predicate : SimplePredicate.parseConjunction(condition.getCondition()).predicates()) {
+                        if (predicate.operator() == SimplePredicate.Operator.EQ) {
+                            usage.merge(predicate.variable(), 1, Integer::sum);
+                            literalTypes.merge(predicate.variable(), predicate.literal().getClass(),
+                                    (a, b) -> a == b ? a : Object.class);
+                        }
+                    }
+                }
+            }
+        }
+        // MVEL coerces across types ("100" == 100), so only variables compared against one literal type qualify
+        String discriminator = usage.entrySet().stream()
+                .filter(e -> literalTypes.get(e.getKey()) != Object.class)
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+        if (discriminator == null) {
+            return NONE;
+        }
+
+        Map<Object, IntList> keyed = new HashMap<>();
+        IntList unkeyed = new IntList();
+        int[] covered = new int[rules.size()];
+        Arrays.fill(covered, -1);
+        for (int i = 0; i < rules.size(); i++) {
+            Object key = null;
+            List<Condition> conditions = conditionsOf(rules.get(i));
+            for (int c = 0; c < conditions.size() && key == null; c++) {
+                Condition condition = conditions.get(c);
+                if (hasInValues(condition)) {
+                    continue;
+                }
+                SimplePredicate.Conjunction conjunction = SimplePredicate.parseConjunction(condition.getCondition());
+                for (SimplePredicate predicate : conjunction.predicates()) {
+                    if (predicate.operator() == SimplePredicate.Operator.EQ && predicate.variable().equals(discriminator)) {
+                        key = predicate.literal();
+                        if (conjunction.complete() && conjunction.predicates().size() == 1) {
+                            covered[i] = c;
+                        }
+                        break;
+                    }
+                }
+            }
+            if (key != null) {
+                keyed.computeIfAbsent(key, k -> new IntList()).add(i);
+            } else {
+                unkeyed.add(i);
+            }
+        }
+
+        Map<Object, int[]> buckets = new HashMap<>(keyed.size() * 2);
+        keyed.forEach((key, list) -> buckets.put(key, list.toArray()));
+        log.debug("Built equality index on '{}' with {} buckets and {} unkeyed rules out of {}",
+                discriminator, buckets.size(), unkeyed.size(), rules.size());
+        return new EqualityIndex(discriminator, literalTypes.get(discriminator), buckets, unkeyed.toArray(), covered);
+    }
+
+    /**
+     * Looks up the rules that can still match the input.
+     *
+     * @return the candidates, or {@code null} if the index cannot be used for this input
+     */
+    Candidates lookup(Map<String, Object> inputVariables) {
+        return lookup(inputVariables, null);
+    }
+
+    /**
+     * Looks up the rules that can still match the input into {@code reuse}, if given, instead of a new
+     * {@link Candidates}. String and boolean keys are looked up without allocating.
+     *
+     * @return the candidates, or {@code null} if the index cannot be used for this input
+     */
+    Candidates lookup(Map<String, Object> inputVariables, Candidates reuse) {
+        if (variable == null) {
+            return null;
+        }
+        Object value = inputVariables.get(variable);
+        if (value == null) {
+            return inputVariables.containsKey(variable) ? candidates(reuse, EMPTY) : null;
+        }
+        Object key = SimplePredicate.normalize(value);
+        if (key == null || key.getClass() != keyType) {
+            return null;
+        }
+        int[] bucket = buckets.get(key);
+        return candidates(reuse, bucket != null ? bucket : EMPTY);
+    }
+
+    private Candidates candidates(Candidates reuse, int[] keyed) {
+        return reuse != null ? reuse.reset(keyed, unkeyed) : new Candidates(keyed, unkeyed);
+    }
+
+    /**
+     * Position of the condition of rule {@code ruleIndex} that a successful lookup already proved true, or -1.
+     */
+    int coveredCondition(int ruleIndex) {
+        return coveredCondition.length > ruleIndex ? coveredCondition[ruleIndex] : -1;
+    }
+
+    private static List<Condition> conditionsOf(Rule rule) {
+        return rule.getConditions() != null ? rule.getConditions() : List.of();
+    }
+
+    private static boolean hasInValues(Condition condition) {
+        return condition.getInValues() != null && !condition.getInValues().isEmpty();
+    }
+
+    /**
+     * Ascending lists of rule positions, walked in rule order: the equality bucket and unkeyed rules,
+     * if the equality index was used, and for every variable narrowed by the {@link RangeIndex} the
+     * rules admitting the input's segment and the rules that do not constrain the variable. A rule is
+     * a candidate if it is in one list of every pair.
+     */
+    static final class Candidates {
+        static final int[] NO_RULES = new int[0];
+
+        private int[] keyed;
+        private int[] unkeyed;
+        private int keyedPos;
+        private int unkeyedPos;
+        private boolean equality;
+        private final int[][] inRange = new int[RangeIndex.MAX_VARIABLES][];
+        private final int[][] unbounded = new int[RangeIndex.MAX_VARIABLES][];
+        private final int[] inRangePos = new int[RangeIndex.MAX_VARIABLES];
+        private final int[] unboundedPos = new int[RangeIndex.MAX_VARIABLES];
+        private int ranges;
+        private int resolved;
+
+        /**
+         * Candidates that do not rule out anything until {@link #narrow narrowed}.
+         */
+        Candidates() {
+            reset();
+        }
+
+        Candidates(int[] keyed, int[] unkeyed) {
+            reset(keyed, unkeyed);
+        }
+
+        Candidates reset(int[] keyed, int[] unkeyed) {
+            reset();
+            this.keyed = keyed;
+            this.unkeyed = unkeyed;
+            this.equality = true;
+            return this;
+        }
+
+        Candidates reset() {
+            this.keyed = NO_RULES;
+            this.unkeyed = NO_RULES;
+            this.keyedPos = 0;
+            this.unkeyedPos = 0;
+            this.equality = false;
+            this.ranges = 0;
+            this.resolved = 0;
+            return this;
+        }
+
+        /**
+         * Also requires candidates to admit the input's value of range index variable {@code variable}.
+         *
+         * @param inRange   ascending rules whose ranges admit the value
+         * @param unbounded ascending rules that do not constrain the variable
+         */
+        void narrow(int variable, int[] inRange, int[] unbounded) {
+            this.inRange[ranges] = inRange;
+            this.unbounded[ranges] = unbounded;
+            this.inRangePos[ranges] = 0;
+            this.unboundedPos[ranges] = 0;
+            ranges++;
+            resolved |= 1 << variable;
+        }
+
+        /**
+         * The range index variables that narrowed the candidates, as a bit mask.
+         */
+        int resolved() {
+            return resolved;
+        }
+
+        /**
+         * Whether the rule at {@code ruleIndex} is a candidate. Must be called with ascending indexes.
+         */
+        boolean contains(int ruleIndex) {
+            if (equality) {
+                keyedPos = skipTo(keyed, keyedPos, ruleIndex);
+                unkeyedPos = skipTo(unkeyed, unkeyedPos, ruleIndex);
+                if (!isAt(keyed, keyedPos, ruleIndex) && !isAt(unkeyed, unkeyedPos, ruleIndex)) {
+                    return false;
+                }
+            }
+            for (int r = 0; r < ranges; r++) {
+                inRangePos[r] = skipTo(inRange[r], inRangePos[r], ruleIndex);
+                unboundedPos[r] = skipTo(unbounded[r], unboundedPos[r], ruleIndex);
+                if (!isAt(inRange[r], inRangePos[r], ruleIndex) && !isAt(unbounded[r], unboundedPos[r], ruleIndex)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Whether the candidate at {@code ruleIndex} came from the keyed bucket, i.e. the index proved its key condition.
+         */
+        boolean isKeyed(int ruleIndex) {
+            return equality && isAt(keyed, keyedPos, ruleIndex);
+        }
+
+        /**
+         * Whether the rule at {@code ruleIndex} is a candidate, asked in any order. Does not move the
+         * position {@link #contains(int)} continues from.
+         */
+        boolean probe(int ruleIndex) {
+            if (equality && Arrays.binarySearch(keyed, ruleIndex) < 0 && Arrays.binarySearch(unkeyed, ruleIndex) < 0) {
+                return false;
+            }
+            for (int r = 0; r < ranges; r++) {
+                if (Arrays.binarySearch(inRange[r], ruleIndex) < 0 && Arrays.binarySearch(unbounded[r], ruleIndex) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * {@link #isKeyed(int)} for a rule asked about with {@link #probe(int)}.
+         */
+        boolean probeKeyed(int ruleIndex) {
+            return equality && Arrays.binarySearch(keyed, ruleIndex) >= 0;
+        }
+
+        private static int skipTo(int[] rules, int pos, int ruleIndex) {
+            while (pos < rules.length && rules[pos] < ruleIndex) {
+                pos++;
+            }
+            return pos;
+        }
+
+        private static boolean isAt(int[] rules, int pos, int ruleIndex) {
+            return pos < rules.length && rules[pos] == ruleIndex;
+        }
+    }
+
+    static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package tech.neatnet.core.rule.engine.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Per-thread scratch state for one evaluation: the variable resolver, the equality index candidates
+ * and the compiled table's buffers. Reusing them is what keeps a steady-state evaluation free of
+ * allocations.
+ * <p>
+ * {@link #acquire(Map, InputLayout)} hands out the calling thread's context, or a fresh one if that context is
+ * already in use further up the stack (a {@link ResultSink} that evaluates again). Every acquire must
+ * be paired with {@link #release()}, which drops the reference to the input.
+ */
+final class EvaluationContext {
+
+    private static final ThreadLocal<EvaluationContext> CURRENT = ThreadLocal.withInitial(EvaluationContext::new);
+
+    private final InputVariableResolverFactory variables = new InputVariableResolverFactory(Collections.emptyMap());
+    private final EqualityIndex.Candidates candidates = new EqualityIndex.Candidates();
+    private Object[] values = new Object[0];
+    private double[] numbers = new double[0];
+    private long[] matched = new long[0];
+    private boolean inUse;
+
+    /**
+     * Rules evaluated by the last evaluation run with this context.
+     */
+    int evaluated;
+
+    private EvaluationContext() {
+    }
+
+    /**
+     * @param layout slots of the rule set about to be evaluated
+     */
+    static EvaluationContext acquire(Map<String, Object> inputVariables, InputLayout layout) {
+        EvaluationContext context = acquire();
+        context.variables.reset(inputVariables, layout);
+        return context;
+    }
+
+    /**
+     * @param layout slots of the rule set about to be evaluated
+     */
+    static EvaluationContext acquire(RuleInput input, InputLayout layout) {
+        EvaluationContext context = acquire();
+        context.variables.reset(input, layout);
+        return context;
+    }
+
+    private static EvaluationContext acquire() {
+        EvaluationContext context = CURRENT.get();
+        if (context.inUse) {
+            context = new EvaluationContext();
+        }
+        context.inUse = true;
+        context.evaluated = 0;
+        return context;
+    }
+
+    void release() {
+        variables.reset(Collections.emptyMap());
+        Arrays.fill(values, null);
+        inUse = false;
+    }
+
+    InputVariableResolverFactory variables() {
+        return variables;
+    }
+
+    /**
+     * Runs the compiled table into this context's buffers, see {@link CompiledDecisionTable#match(Map, boolean)}.
+     */
+    long[] match(CompiledDecisionTable table, boolean first) {
+        if (values.length < table.slots()) {
+            values = new Object[table.slots()];
+            numbers = new double[table.slots()];
+        }
+        if (matched.length < table.words()) {
+            matched = new long[table.words()];
+        }
+        return table.match(variables.values(), first, values, numbers, matched);
+    }
+
+    /**
+     * Looks up the candidates of the rule set's equality and range indexes into this context's
+     * {@link EqualityIndex.Candidates}.
+     */
+    EqualityIndex.Candidates candidates(RuleSet ruleSet) {
+        Map<String, Object> inputVariables = variables.values();
+        return ruleSet.rangeIndex().lookup(inputVariables, ruleSet.equalityIndex().lookup(inputVariables, candidates), candidates);
+    }
+}
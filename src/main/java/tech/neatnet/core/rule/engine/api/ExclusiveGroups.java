@@ -0,0 +1,298 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.neatnet.core.rule.engine.domain.Condition;
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs of consecutive rules of a rule set that are proven mutually exclusive: no input matches two
+ * rules of the same run. Under {@link tech.neatnet.core.rule.engine.domain.HitPolicy#FIRST} the
+ * rules of a run can be evaluated in any order without changing which rule matches first, since
+ * every rule before the run is evaluated before it and every rule after it after.
+ * <p>
+ * Two rules are exclusive if both constrain a variable with {@link SimplePredicate}s that no value
+ * satisfies together: different literals of the same type for {@code ==}, or an equality or numeric
+ * range outside the other rule's range. Literals of different types prove nothing, since MVEL
+ * coerces them. A rule whose own predicates contradict each other never matches and is exclusive
+ * with every rule.
+ */
+@Slf4j
+final class ExclusiveGroups {
+
+    /**
+     * Largest run grown by comparing a rule with every member; runs discriminated by one equality
+     * variable are checked against a set of literals and may grow further.
+     */
+    private static final int MAX_PAIRWISE = 256;
+
+    private final int[] from;
+    private final int[] to;
+    private final List<Set<String>> variables;
+    /**
+     * Per rule: the run it belongs to, or -1.
+     */
+    private final int[] group;
+
+    private ExclusiveGroups(int[] from, int[] to, List<Set<String>> variables, int rules) {
+        this.from = from;
+        this.to = to;
+        this.variables = variables;
+        this.group = new int[rules];
+        Arrays.fill(group, -1);
+        for (int g = 0; g < from.length; g++) {
+            for (int i = from[g]; i < to[g]; i++) {
+                group[i] = g;
+            }
+        }
+    }
+
+    static ExclusiveGroups analyze(List<Rule> rules) {
+        List<Map<String, Bounds>> bounds = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            bounds.add(bounds(rule));
+        }
+        List<int[]> runs = new ArrayList<>();
+        List<Set<String>> variables = new ArrayList<>();
+        int start = 0;
+        while (start < rules.size()) {
+            Set<String> proofs = new LinkedHashSet<>();
+            Map<String, Set<Object>> literals = equalities(bounds.get(start));
+            int end = start + 1;
+            while (end < rules.size() && exclusiveWithRun(bounds, start, end, literals, proofs)) {
+                Map<String, Bounds> next = bounds.get(end);
+                Iterator<Map.Entry<String, Set<Object>>> entries = literals.entrySet().iterator();
+                while (entries.hasNext()) {
+                    Map.Entry<String, Set<Object>> entry = entries.next();
+                    Bounds bound = next.get(entry.getKey());
+                    // the set only proves exclusivity while all its literals have one type
+                    if (bound == null || bound.equal == null || bound.conflicting
+                            || bound.equal.getClass() != entry.getValue().iterator().next().getClass()) {
+                        entries.remove();
+                    } else {
+                        entry.getValue().add(bound.equal);
+                    }
+                }
+                end++;
+            }
+            if (end - start > 1) {
+                runs.add(new int[]{start, end});
+                variables.add(Collections.unmodifiableSet(proofs));
+            }
+            start = end;
+        }
+        int[] from = new int[runs.size()];
+        int[] to = new int[runs.size()];
+        for (int g = 0; g < runs.size(); g++) {
+            from[g] = runs.get(g)[0];
+            to[g] = runs.get(g)[1];
+        }
+        if (!runs.isEmpty()) {
+            log.debug("Found {} runs of mutually exclusive rules among {} rules", runs.size(), rules.size());
+        }
+        return new ExclusiveGroups(from, to, Collections.unmodifiableList(variables), rules.size());
+    }
+
+    int size() {
+        return from.length;
+    }
+
+    int from(int g) {
+        return from[g];
+    }
+
+    int to(int g) {
+        return to[g];
+    }
+
+    /**
+     * Variables whose predicates proved the rules of run {@code g} exclusive.
+     */
+    Set<String> variables(int g) {
+        return variables.get(g);
+    }
+
+    /**
+     * @return the run rule {@code i} belongs to, or {@code -1}
+     */
+    int groupOf(int i) {
+        return group[i];
+    }
+
+    /**
+     * Whether rule {@code candidate} is exclusive with every rule of {@code [start, candidate)}.
+     *
+     * @param literals per variable, the literals every rule of the run requires it to equal
+     */
+    private static boolean exclusiveWithRun(List<Map<String, Bounds>> bounds, int start, int candidate,
+                                            Map<String, Set<Object>> literals, Set<String> proofs) {
+        Map<String, Bounds> next = bounds.get(candidate);
+        for (Map.Entry<String, Set<Object>> entry : literals.entrySet()) {
+            Bounds bound = next.get(entry.getKey());
+            if (bound != null && bound.equal != null && !bound.conflicting
+                    && bound.equal.getClass() == entry.getValue().iterator().next().getClass()
+                    && !entry.getValue().contains(bound.equal)) {
+                proofs.add(entry.getKey());
+                return true;
+            }
+        }
+        if (candidate - start > MAX_PAIRWISE) {
+            return false;
+        }
+        Set<String> used = new HashSet<>();
+        for (int member = start; member < candidate; member++) {
+            String variable = exclusiveOn(bounds.get(member), next);
+            if (variable == null) {
+                return false;
+            }
+            used.add(variable);
+        }
+        proofs.addAll(used);
+        return true;
+    }
+
+    /**
+     * @return a variable on which the two rules cannot both hold, or {@code null} if none is proven
+     */
+    private static String exclusiveOn(Map<String, Bounds> a, Map<String, Bounds> b) {
+        for (Map.Entry<String, Bounds> entry : a.entrySet()) {
+            if (entry.getValue().conflicting) {
+                return entry.getKey();
+            }
+            Bounds other = b.get(entry.getKey());
+            if (other != null && entry.getValue().disjoint(other)) {
+                return entry.getKey();
+            }
+        }
+        for (Map.Entry<String, Bounds> entry : b.entrySet()) {
+            if (entry.getValue().conflicting) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The equality literals of a rule, as mutable single-element sets.
+     */
+    private static Map<String, Set<Object>> equalities(Map<String, Bounds> bounds) {
+        Map<String, Set<Object>> literals = new HashMap<>();
+        bounds.forEach((variable, bound) -> {
+            if (bound.equal != null && !bound.conflicting) {
+                Set<Object> values = new HashSet<>();
+                values.add(bound.equal);
+                literals.put(variable, values);
+            }
+        });
+        return literals;
+    }
+
+    /**
+     * What the simple predicates among the top-level conjuncts of a rule's conditions require of each
+     * variable. Every such predicate must hold for the rule to match.
+     */
+    private static Map<String, Bounds> bounds(Rule rule) {
+        Map<String, Bounds> bounds = new HashMap<>();
+        if (rule.getConditions() == null) {
+            return bounds;
+        }
+        for (Condition condition : rule.getConditions()) {
+            if (condition == null) {
+                continue;
+            }
+            for (SimplePredicate predicate : SimplePredicate.parseConjunction(condition.getCondition()).predicates()) {
+                bounds.computeIfAbsent(predicate.variable(), key -> new Bounds()).add(predicate);
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * The values one rule allows for one variable.
+     */
+    private static final class Bounds {
+        private Object equal;
+        private BigDecimal lower;
+        private boolean lowerInclusive;
+        private BigDecimal upper;
+        private boolean upperInclusive;
+        /**
+         * The rule requires two different literals of the same type, so it never matches.
+         */
+        private boolean conflicting;
+
+        void add(SimplePredicate predicate) {
+            Object literal = predicate.literal();
+            switch (predicate.operator()) {
+                case EQ -> {
+                    if (equal == null) {
+                        equal = literal;
+                    } else if (equal.getClass() == literal.getClass() && !equal.equals(literal)) {
+                        conflicting = true;
+                    }
+                }
+                case GT, GE -> {
+                    if (literal instanceof BigDecimal value && (lower == null || value.compareTo(lower) >= 0)) {
+                        lowerInclusive = predicate.operator() == SimplePredicate.Operator.GE
+                                && (lower == null || value.compareTo(lower) > 0 || lowerInclusive);
+                        lower = value;
+                    }
+                }
+                case LT, LE -> {
+                    if (literal instanceof BigDecimal value && (upper == null || value.compareTo(upper) <= 0)) {
+                        upperInclusive = predicate.operator() == SimplePredicate.Operator.LE
+                                && (upper == null || value.compareTo(upper) < 0 || upperInclusive);
+                        upper = value;
+                    }
+                }
+                default -> {
+                    // != narrows nothing that can be used as a proof
+                }
+            }
+        }
+
+        boolean disjoint(Bounds other) {
+            if (conflicting || other.conflicting) {
+                return true;
+            }
+            if (equal != null && other.equal != null && equal.getClass() == other.equal.getClass()) {
+                return !equal.equals(other.equal);
+            }
+            if (equal instanceof BigDecimal value && !other.admits(value)) {
+                return true;
+            }
+            if (other.equal instanceof BigDecimal value && !admits(value)) {
+                return true;
+            }
+            return below(upper, upperInclusive, other.lower, other.lowerInclusive)
+                    || below(other.upper, other.upperInclusive, lower, lowerInclusive);
+        }
+
+        private boolean admits(BigDecimal value) {
+            return (lower == null || (lowerInclusive ? value.compareTo(lower) >= 0 : value.compareTo(lower) > 0))
+                    && (upper == null || (upperInclusive ? value.compareTo(upper) <= 0 : value.compareTo(upper) < 0));
+        }
+
+        /**
+         * Whether every value under {@code upper} is below every value over {@code lower}.
+         */
+        private static boolean below(BigDecimal upper, boolean upperInclusive, BigDecimal lower, boolean lowerInclusive) {
+            if (upper == null || lower == null) {
+                return false;
+            }
+            int comparison = upper.compareTo(lower);
+            return comparison < 0 || (comparison == 0 && !(upperInclusive && lowerInclusive));
+        }
+    }
+}
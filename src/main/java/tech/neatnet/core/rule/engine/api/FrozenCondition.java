@@ -0,0 +1,51 @@
+package tech.neatnet.core.rule.engine.api;
+
+import tech.neatnet.core.rule.engine.domain.Condition;
+
+import java.io.Serial;
+import java.util.List;
+
+/**
+ * A condition of a {@link FrozenRule}. Its setters throw {@link UnsupportedOperationException}.
+ * <p>
+ * Equal to a {@link Condition} with the same fields. Serializes as a plain {@link Condition}.
+ */
+final class FrozenCondition extends Condition {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    FrozenCondition(Condition condition, List<Object> inValues, Condition trueBranch, Condition falseBranch) {
+        super(condition.getCondition(), condition.getAction(), inValues, trueBranch, falseBranch);
+    }
+
+    @Override
+    public void setCondition(String condition) {
+        throw FrozenRule.frozen();
+    }
+
+    @Override
+    public void setAction(String action) {
+        throw FrozenRule.frozen();
+    }
+
+    @Override
+    public void setInValues(List<Object> inValues) {
+        throw FrozenRule.frozen();
+    }
+
+    @Override
+    public void setTrueBranch(Condition trueBranch) {
+        throw FrozenRule.frozen();
+    }
+
+    @Override
+    public void setFalseBranch(Condition falseBranch) {
+        throw FrozenRule.frozen();
+    }
+
+    @Serial
+    private Object writeReplace() {
+        return toBuilder().build();
+    }
+}
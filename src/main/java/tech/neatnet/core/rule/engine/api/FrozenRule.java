@@ -0,0 +1,102 @@
+package tech.neatnet.core.rule.engine.api;
+
+import tech.neatnet.core.rule.engine.domain.Condition;
+import tech.neatnet.core.rule.engine.domain.Rule;
+import tech.neatnet.core.rule.engine.domain.RuleType;
+
+import java.io.Serial;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A rule of a loaded {@link RuleSet}. It is handed to callers in evaluation results, so its setters
+ * throw {@link UnsupportedOperationException}; {@link #toBuilder()} gives a mutable copy.
+ * <p>
+ * Equal to a {@link Rule} with the same fields. Serializes as a plain {@link Rule}.
+ */
+final class FrozenRule extends Rule {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    FrozenRule(Rule rule, List<Condition> conditions, Map<String, Object> results) {
+        super(rule.getId(), rule.getDateCreated(), rule.getDateModified(), rule.getModifiedBy(), rule.getVersion(),
+                rule.isActive(), rule.getName(), rule.getDescription(), rule.getBaseRuleCategory(),
+                rule.getBaseRuleSubCategory(), rule.getRuleType(), conditions, results);
+    }
+
+    @Override
+    public void setId(String id) {
+        throw frozen();
+    }
+
+    @Override
+    public void setDateCreated(Instant dateCreated) {
+        throw frozen();
+    }
+
+    @Override
+    public void setDateModified(Instant dateModified) {
+        throw frozen();
+    }
+
+    @Override
+    public void setModifiedBy(String modifiedBy) {
+        throw frozen();
+    }
+
+    @Override
+    public void setVersion(int version) {
+        throw frozen();
+    }
+
+    @Override
+    public void setActive(boolean active) {
+        throw frozen();
+    }
+
+    @Override
+    public void setName(String name) {
+        throw frozen();
+    }
+
+    @Override
+    public void setDescription(String description) {
+        throw frozen();
+    }
+
+    @Override
+    public void setBaseRuleCategory(BaseRuleCategory baseRuleCategory) {
+        throw frozen();
+    }
+
+    @Override
+    public void setBaseRuleSubCategory(BaseRuleSubCategory baseRuleSubCategory) {
+        throw frozen();
+    }
+
+    @Override
+    public void setRuleType(RuleType ruleType) {
+        throw frozen();
+    }
+
+    @Override
+    public void setConditions(List<Condition> conditions) {
+        throw frozen();
+    }
+
+    @Override
+    public void setResults(Map<String, Object> results) {
+        throw frozen();
+    }
+
+    static UnsupportedOperationException frozen() {
+        return new UnsupportedOperationException("Rules of a loaded rule set cannot be changed, use toBuilder() for a copy");
+    }
+
+    @Serial
+    private Object writeReplace() {
+        return toBuilder().build();
+    }
+}
@@ -0,0 +1,179 @@
+package tech.neatnet.core.rule.engine.api;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * The {@code inValues} of a loaded condition: an immutable list in the original order whose
+ * {@link #contains(Object)} is a hash lookup, so {@code inValues contains x} does not scan the list.
+ * <p>
+ * Lists of only {@link Integer}s or only {@link Long}s are stored as primitive {@code long}s, in an
+ * array for their order and an open-addressing table for lookups; no boxed element is kept. Other
+ * lists keep their elements and a {@link HashSet} of them. In both forms integral numbers
+ * ({@code Byte}, {@code Short}, {@code Integer}, {@code Long}) are compared by value, so a
+ * {@code Long} input is found in a list of {@code Integer}s.
+ * <p>
+ * Serializes as a plain {@link ArrayList}.
+ */
+final class InValues extends AbstractList<Object> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Marks a free cell of {@link #table}; the value 0 itself is tracked by {@link #hasZero}.
+     */
+    private static final long FREE = 0L;
+
+    private final long[] longs;
+    private final boolean integers;
+    private final long[] table;
+    private final boolean hasZero;
+
+    private final Object[] objects;
+    private final Set<Object> set;
+
+    private InValues(long[] longs, boolean integers) {
+        this.longs = longs;
+        this.integers = integers;
+        this.table = new long[Math.max(2, Integer.highestOneBit(Math.max(1, longs.length * 2 - 1)) << 1)];
+        boolean zero = false;
+        for (long value : longs) {
+            if (value == FREE) {
+                zero = true;
+            } else {
+                insert(value);
+            }
+        }
+        this.hasZero = zero;
+        this.objects = null;
+        this.set = null;
+    }
+
+    private InValues(Object[] objects) {
+        this.longs = null;
+        this.integers = false;
+        this.table = null;
+        this.hasZero = false;
+        this.objects = objects;
+        this.set = new HashSet<>(objects.length * 2);
+        for (Object value : objects) {
+            set.add(key(value));
+        }
+    }
+
+    /**
+     * @return the compiled values, or {@code null} for {@code null}
+     */
+    static List<Object> of(Collection<Object> values) {
+        if (values == null) {
+            return null;
+        }
+        if (values instanceof InValues compiled) {
+            return compiled;
+        }
+        Class<?> type = integralType(values);
+        if (type == null) {
+            return new InValues(values.toArray());
+        }
+        long[] longs = new long[values.size()];
+        int i = 0;
+        for (Object value : values) {
+            longs[i++] = ((Number) value).longValue();
+        }
+        return new InValues(longs, type == Integer.class);
+    }
+
+    /**
+     * {@code Integer} or {@code Long} if every value has that type, otherwise {@code null}.
+     */
+    private static Class<?> integralType(Collection<Object> values) {
+        Class<?> type = null;
+        for (Object value : values) {
+            if (value == null || (value.getClass() != Integer.class && value.getClass() != Long.class)
+                    || (type != null && value.getClass() != type)) {
+                return null;
+            }
+            type = value.getClass();
+        }
+        return type;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        if (set != null) {
+            return set.contains(key(value));
+        }
+        if (!isIntegral(value)) {
+            return false;
+        }
+        long key = ((Number) value).longValue();
+        return key == FREE ? hasZero : find(key);
+    }
+
+    @Override
+    public Object get(int index) {
+        if (objects != null) {
+            return objects[index];
+        }
+        long value = longs[index];
+        if (integers) {
+            return Integer.valueOf((int) value);
+        }
+        return Long.valueOf(value);
+    }
+
+    @Override
+    public int size() {
+        return objects != null ? objects.length : longs.length;
+    }
+
+    private void insert(long value) {
+        int mask = table.length - 1;
+        int cell = hash(value) & mask;
+        while (table[cell] != FREE) {
+            if (table[cell] == value) {
+                return;
+            }
+            cell = (cell + 1) & mask;
+        }
+        table[cell] = value;
+    }
+
+    private boolean find(long value) {
+        int mask = table.length - 1;
+        int cell = hash(value) & mask;
+        while (table[cell] != FREE) {
+            if (table[cell] == value) {
+                return true;
+            }
+            cell = (cell + 1) & mask;
+        }
+        return false;
+    }
+
+    private static int hash(long value) {
+        long mixed = value * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * Integral numbers as {@code Long}, so they are found by value whatever their boxed type.
+     */
+    private static Object key(Object value) {
+        return isIntegral(value) && !(value instanceof Long) ? Long.valueOf(((Number) value).longValue()) : value;
+    }
+
+    private Object writeReplace() {
+        return new ArrayList<>(this);
+    }
+}
@@ -0,0 +1,55 @@
+package tech.neatnet.core.rule.engine.api;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Slot numbers of the input variables read by the conditions of one rule set, assigned when the rule
+ * set is built. Evaluations keep variable values in an array indexed by slot, so a variable read by
+ * many rows is looked up in the caller's input once per evaluation, and a {@link RuleInput} filled
+ * by slot is not looked up by name at all.
+ */
+final class InputLayout {
+
+    /**
+     * Value of a slot whose variable is not in the input.
+     */
+    static final Object ABSENT = new Object();
+
+    static final InputLayout EMPTY = new InputLayout(new String[0]);
+
+    private final String[] names;
+    private final Map<String, Integer> slots;
+
+    private InputLayout(String[] names) {
+        this.names = names;
+        this.slots = new HashMap<>(names.length * 2);
+        for (int slot = 0; slot < names.length; slot++) {
+            slots.put(names[slot], slot);
+        }
+    }
+
+    /**
+     * @param names variable names in slot order, without duplicates
+     */
+    static InputLayout of(Collection<String> names) {
+        return names.isEmpty() ? EMPTY : new InputLayout(names.toArray(new String[0]));
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the slot of the variable, or {@code -1} if no condition of the rule set reads it
+     */
+    int slot(String name) {
+        Integer slot = slots.get(name);
+        return slot != null ? slot : -1;
+    }
+
+    String name(int slot) {
+        return names[slot];
+    }
+}
@@ -0,0 +1,124 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.Builder;
+import lombok.Singular;
+import org.mvel2.ParserContext;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Names and Java types of the input variables of one (category, subcategory).
+ * <p>
+ * Conditions of a category with a schema are compiled in MVEL's strict mode with the variables
+ * declared, so MVEL resolves their types and accessors at compile time instead of on every
+ * evaluation. A condition that references an undeclared variable, or a method or property its type
+ * does not have, fails to compile, which {@link RuleEngineClient#saveRule} reports when the rule is
+ * saved. The condition's {@code inValues} are always declared as a {@link Collection}.
+ * <p>
+ * Variables missing from an input, or {@code null}, are accepted by {@link #accepts(Map)}; any
+ * other value must be an instance of the declared type.
+ */
+public final class InputSchema {
+
+    private final Map<String, Class<?>> variables;
+    private final String[] names;
+    private final Class<?>[] types;
+
+    @Builder
+    private InputSchema(@Singular Map<String, Class<?>> variables) {
+        this.variables = Collections.unmodifiableMap(new LinkedHashMap<>(variables));
+        this.names = variables.keySet().toArray(new String[0]);
+        this.types = new Class<?>[names.length];
+        for (int i = 0; i < names.length; i++) {
+            types[i] = boxed(variables.get(names[i]));
+        }
+    }
+
+    /**
+     * Declared variables and their types, in declaration order.
+     */
+    public Map<String, Class<?>> variables() {
+        return variables;
+    }
+
+    /**
+     * Checks the input against the declared types without allocating.
+     *
+     * @return whether every declared variable present in the input has a value of its type
+     */
+    public boolean accepts(Map<String, Object> input) {
+        for (int i = 0; i < names.length; i++) {
+            Object value = input.get(names[i]);
+            if (value != null && !types[i].isInstance(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Describes the first variable of the input that does not have its declared type.
+     *
+     * @return the description, or {@code null} if the input is {@linkplain #accepts(Map) accepted}
+     */
+    public String mismatch(Map<String, Object> input) {
+        for (int i = 0; i < names.length; i++) {
+            Object value = input.get(names[i]);
+            if (value != null && !types[i].isInstance(value)) {
+                return "'" + names[i] + "' is a " + value.getClass().getName() + ", expected " + types[i].getName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A new strict parser context with the variables declared. Contexts collect state while compiling,
+     * so each compilation gets its own.
+     */
+    ParserContext parserContext() {
+        ParserContext context = new ParserContext();
+        context.setStrictTypeEnforcement(true);
+        context.setStrongTyping(true);
+        for (int i = 0; i < names.length; i++) {
+            context.addInput(names[i], types[i]);
+        }
+        context.addInput(InputVariableResolverFactory.IN_VALUES, Collection.class);
+        return context;
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        if (type == float.class) {
+            return Float.class;
+        }
+        if (type == short.class) {
+            return Short.class;
+        }
+        if (type == byte.class) {
+            return Byte.class;
+        }
+        return type == char.class ? Character.class : type;
+    }
+
+    @Override
+    public String toString() {
+        return "InputSchema" + variables;
+    }
+}
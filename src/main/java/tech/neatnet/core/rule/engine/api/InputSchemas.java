@@ -0,0 +1,58 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The configured {@link InputSchema}s, keyed by category and subcategory name. Type names are
+ * resolved once, when the engine starts; an unknown type fails startup.
+ */
+@Slf4j
+final class InputSchemas {
+
+    private static final Map<String, Class<?>> PRIMITIVES = Map.of(
+            "int", int.class, "long", long.class, "double", double.class, "boolean", boolean.class,
+            "float", float.class, "short", short.class, "byte", byte.class, "char", char.class);
+
+    private final Map<String, Map<String, InputSchema>> schemas = new HashMap<>();
+
+    InputSchemas(RuleEngineProperties.SchemaProperties properties) {
+        for (Map.Entry<String, Map<String, String>> category : properties.getCategories().entrySet()) {
+            String name = category.getKey();
+            int separator = name.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Input schema key must be CATEGORY:SUBCATEGORY, was " + name);
+            }
+            InputSchema.InputSchemaBuilder schema = InputSchema.builder();
+            category.getValue().forEach((variable, type) -> schema.variable(variable, resolve(name, variable, type)));
+            schemas.computeIfAbsent(name.substring(0, separator), key -> new HashMap<>())
+                    .put(name.substring(separator + 1), schema.build());
+            log.info("Input schema for {}: {}", name, category.getValue());
+        }
+    }
+
+    /**
+     * @return the schema, or {@code null} if the category has none
+     */
+    InputSchema get(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        if (schemas.isEmpty()) {
+            return null;
+        }
+        return schemas.getOrDefault(ruleCategory.getName(), Collections.emptyMap()).get(subCategory.getName());
+    }
+
+    private static Class<?> resolve(String category, String variable, String type) {
+        Class<?> primitive = PRIMITIVES.get(type);
+        if (primitive != null) {
+            return primitive;
+        }
+        try {
+            return Class.forName(type.indexOf('.') < 0 ? "java.lang." + type : type);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown type " + type + " of input '" + variable + "' in " + category, e);
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.mvel2.UnresolveablePropertyException;
+import org.mvel2.integration.VariableResolver;
+import org.mvel2.integration.impl.BaseVariableResolverFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MVEL variable resolution for one evaluation: condition-local values layered over a read-only view of the input.
+ * <p>
+ * The top layer holds the {@code inValues} of the condition being evaluated and any variable an
+ * expression assigns. The bottom layer reads the caller's input map and never writes to it, so
+ * immutable maps ({@code Map.of(...)}) work and callers can share one input across threads.
+ * <p>
+ * A factory is not thread-safe. Create one per evaluation, or keep one per thread and {@link #reset(Map)}
+ * it, and call {@link #forCondition(Object)} before each condition to reset the top layer.
+ * <p>
+ * Resolvers for input variables read the current input when asked for their value, so one resolver
+ * per variable name is created for the life of the factory and a reused factory allocates nothing
+ * once the names its expressions use have been seen.
+ * <p>
+ * With an {@link InputLayout}, variables of the layout are kept in slots: a map input is read once
+ * per variable and evaluation, when a condition first asks for it, and a {@link RuleInput} with the
+ * same layout is read straight from its array.
+ * <p>
+ * The factory also remembers the outcome of each shared predicate of a {@link RuleSet} for the
+ * current input, so a condition repeated across rules is evaluated once per evaluation.
+ */
+final class InputVariableResolverFactory extends BaseVariableResolverFactory {
+
+    static final String IN_VALUES = "inValues";
+
+    /**
+     * Slot value not yet read from the input map.
+     */
+    private static final Object UNREAD = new Object();
+
+    private Map<String, Object> input;
+    private Map<String, Object> inputView;
+    private Object inValues;
+
+    /**
+     * Variables created by assignments in the current condition, allocated on first use.
+     */
+    private Map<String, VariableResolver> locals;
+
+    private final Map<String, InputResolver> resolvers = new HashMap<>();
+    private final InputResolver inValuesResolver = new InputResolver(IN_VALUES);
+
+    private InputLayout layout = InputLayout.EMPTY;
+    /**
+     * Values by slot of the current layout: {@link #slotValues} for a map input, a {@link RuleInput}'s own array otherwise.
+     */
+    private Object[] slots;
+    private Object[] slotValues = new Object[0];
+    private SlotResolver[] slotResolvers = new SlotResolver[0];
+
+    /**
+     * Outcome by predicate id, valid where {@link #predicateEvaluations} holds the current {@link #evaluation}.
+     */
+    private boolean[] predicateValues = new boolean[0];
+    private int[] predicateEvaluations = new int[0];
+    private int evaluation;
+
+    InputVariableResolverFactory(Map<String, Object> input) {
+        reset(input);
+    }
+
+    InputVariableResolverFactory(Map<String, Object> input, InputLayout layout) {
+        reset(input, layout);
+    }
+
+    /**
+     * Points the factory at the next input, so one factory can be reused by a thread across evaluations.
+     *
+     * @return this factory
+     */
+    InputVariableResolverFactory reset(Map<String, Object> input) {
+        return reset(input, InputLayout.EMPTY);
+    }
+
+    /**
+     * Points the factory at the next input, keeping the layout's variables in slots.
+     *
+     * @return this factory
+     */
+    InputVariableResolverFactory reset(Map<String, Object> input, InputLayout layout) {
+        if (slotValues.length < layout.size()) {
+            slotValues = new Object[layout.size()];
+        }
+        // also clears what the previous input left in slots beyond the new layout
+        Arrays.fill(slotValues, 0, Math.min(slotValues.length, Math.max(layout.size(), this.layout.size())), UNREAD);
+        this.input = input;
+        this.inputView = null;
+        this.layout = layout;
+        this.slots = slotValues;
+        nextEvaluation();
+        return forCondition(null);
+    }
+
+    /**
+     * Points the factory at a slot-indexed input. An input laid out for other rules is read by name.
+     *
+     * @return this factory
+     */
+    InputVariableResolverFactory reset(RuleInput input, InputLayout layout) {
+        if (input.layout() != layout) {
+            return reset(input.asMap(), layout);
+        }
+        this.input = input.asMap();
+        this.inputView = input.asMap();
+        this.layout = layout;
+        this.slots = input.values();
+        nextEvaluation();
+        return forCondition(null);
+    }
+
+    /**
+     * Forgets the predicate outcomes of the previous input without clearing them.
+     */
+    private void nextEvaluation() {
+        if (++evaluation == 0) {
+            Arrays.fill(predicateEvaluations, 0);
+            evaluation = 1;
+        }
+    }
+
+    /**
+     * @return whether the predicate's outcome for the current input is known
+     */
+    boolean isPredicateKnown(int predicate) {
+        return predicate < predicateEvaluations.length && predicateEvaluations[predicate] == evaluation;
+    }
+
+    /**
+     * The outcome recorded for the predicate, valid only if {@link #isPredicateKnown(int)}.
+     */
+    boolean predicateValue(int predicate) {
+        return predicateValues[predicate];
+    }
+
+    void predicate(int predicate, boolean value) {
+        if (predicate >= predicateEvaluations.length) {
+            int length = Math.max(predicate + 1, predicateEvaluations.length * 2);
+            predicateValues = Arrays.copyOf(predicateValues, length);
+            predicateEvaluations = Arrays.copyOf(predicateEvaluations, length);
+        }
+        predicateValues[predicate] = value;
+        predicateEvaluations[predicate] = evaluation;
+    }
+
+    /**
+     * Value of a slot of the current layout, reading it from the input map the first time.
+     *
+     * @return the value, or {@link InputLayout#ABSENT} if the input does not have the variable
+     */
+    private Object slot(int slot) {
+        Object value = slots[slot];
+        if (value == UNREAD) {
+            String name = layout.name(slot);
+            value = input.get(name);
+            if (value == null && !input.containsKey(name)) {
+                value = InputLayout.ABSENT;
+            }
+            slots[slot] = value;
+        }
+        return value;
+    }
+
+    private SlotResolver slotResolver(int slot) {
+        if (slot >= slotResolvers.length) {
+            slotResolvers = Arrays.copyOf(slotResolvers, Math.max(slot + 1, slotResolvers.length * 2));
+        }
+        SlotResolver resolver = slotResolvers[slot];
+        if (resolver == null) {
+            resolver = new SlotResolver(slot);
+            slotResolvers[slot] = resolver;
+        }
+        return resolver;
+    }
+
+    /**
+     * Read-only view of the input, safe to hand out in results. Created on first use.
+     */
+    Map<String, Object> input() {
+        Map<String, Object> view = inputView;
+        if (view == null) {
+            view = Collections.unmodifiableMap(input);
+            inputView = view;
+        }
+        return view;
+    }
+
+    /**
+     * The input itself, for lookups inside the engine. Must not be modified or handed out.
+     */
+    Map<String, Object> values() {
+        return input;
+    }
+
+    /**
+     * Prepares the factory for the next condition.
+     *
+     * @param inValues the condition's {@code inValues}, or {@code null} if it has none
+     * @return this factory
+     */
+    InputVariableResolverFactory forCondition(Object inValues) {
+        this.inValues = inValues;
+        if (locals != null) {
+            locals.clear();
+        }
+        return this;
+    }
+
+    @Override
+    public VariableResolver createVariable(String name, Object value) {
+        VariableResolver resolver = locals != null ? locals.get(name) : null;
+        if (resolver != null) {
+            resolver.setValue(value);
+            return resolver;
+        }
+        if (locals == null) {
+            locals = new HashMap<>();
+        }
+        resolver = new LocalResolver(name, value);
+        locals.put(name, resolver);
+        return resolver;
+    }
+
+    @Override
+    public VariableResolver createVariable(String name, Object value, Class<?> type) {
+        return createVariable(name, value);
+    }
+
+    @Override
+    public VariableResolver getVariableResolver(String name) {
+        if (locals != null) {
+            VariableResolver resolver = locals.get(name);
+            if (resolver != null) {
+                return resolver;
+            }
+        }
+        if (inValues != null && IN_VALUES.equals(name)) {
+            return inValuesResolver;
+        }
+        int slot = layout.slot(name);
+        if (slot >= 0) {
+            if (slot(slot) != InputLayout.ABSENT) {
+                return slotResolver(slot);
+            }
+        } else if (input.get(name) != null || input.containsKey(name)) {
+            InputResolver resolver = resolvers.get(name);
+            if (resolver == null) {
+                resolver = new InputResolver(name);
+                resolvers.put(name, resolver);
+            }
+            return resolver;
+        }
+        if (nextFactory != null) {
+            return nextFactory.getVariableResolver(name);
+        }
+        throw new UnresolveablePropertyException("unable to resolve variable '" + name + "'");
+    }
+
+    @Override
+    public boolean isTarget(String name) {
+        return (locals != null && locals.containsKey(name)) || (inValues != null && IN_VALUES.equals(name));
+    }
+
+    @Override
+    public boolean isResolveable(String name) {
+        if (isTarget(name)) {
+            return true;
+        }
+        int slot = layout.slot(name);
+        boolean inInput = slot >= 0 ? slot(slot) != InputLayout.ABSENT : input.containsKey(name);
+        return inInput || (nextFactory != null && nextFactory.isResolveable(name));
+    }
+
+    @Override
+    public Set<String> getKnownVariables() {
+        Set<String> known = new HashSet<>(input.keySet());
+        if (locals != null) {
+            known.addAll(locals.keySet());
+        }
+        if (inValues != null) {
+            known.add(IN_VALUES);
+        }
+        if (nextFactory != null) {
+            known.addAll(nextFactory.getKnownVariables());
+        }
+        return known;
+    }
+
+    /**
+     * Value taken from the current input or condition. Writing to it creates a condition-local variable instead.
+     */
+    private final class InputResolver implements VariableResolver {
+        private final String name;
+
+        InputResolver(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Class getType() {
+            return Object.class;
+        }
+
+        @Override
+        public void setStaticType(Class type) {
+        }
+
+        @Override
+        public int getFlags() {
+            return 0;
+        }
+
+        @Override
+        public Object getValue() {
+            return this == inValuesResolver ? inValues : input.get(name);
+        }
+
+        @Override
+        public void setValue(Object value) {
+            createVariable(name, value);
+        }
+    }
+
+    /**
+     * Value of a slot of the current layout. Resolvers are kept by slot number, so they serve every layout.
+     */
+    private final class SlotResolver implements VariableResolver {
+        private final int slot;
+
+        SlotResolver(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public String getName() {
+            return layout.name(slot);
+        }
+
+        @Override
+        public Class getType() {
+            return Object.class;
+        }
+
+        @Override
+        public void setStaticType(Class type) {
+        }
+
+        @Override
+        public int getFlags() {
+            return 0;
+        }
+
+        @Override
+        public Object getValue() {
+            Object value = slot(slot);
+            return value != InputLayout.ABSENT ? value : null;
+        }
+
+        @Override
+        public void setValue(Object value) {
+            createVariable(getName(), value);
+        }
+    }
+
+    /**
+     * Variable assigned by an expression, visible until the next condition.
+     */
+    private static final class LocalResolver implements VariableResolver {
+        private final String name;
+        private Object value;
+
+        LocalResolver(String name, Object value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Class getType() {
+            return Object.class;
+        }
+
+        @Override
+        public void setStaticType(Class type) {
+        }
+
+        @Override
+        public int getFlags() {
+            return 0;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public void setValue(Object value) {
+            this.value = value;
+        }
+    }
+}
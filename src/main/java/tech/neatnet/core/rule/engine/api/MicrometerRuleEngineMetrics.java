@@ -0,0 +1,243 @@
+package tech.neatnet.core.rule.engine.api;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import tech.neatnet.core.rule.engine.domain.HitPolicy;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes engine measurements to a Micrometer {@link MeterRegistry}.
+ * <p>
+ * Meters are created once per (mode, category, subcategory, hit policy) and looked up from a map
+ * afterwards. Rule counts are kept in {@link LongAdder}s read by function counters, so concurrent
+ * evaluations add to per-thread cells instead of one contended value. The expression cache and the
+ * rules cache are read when the registry is scraped, never on the evaluation path.
+ * <p>
+ * Meters:
+ * <ul>
+ *     <li>{@code rule.engine.evaluation} - latency of one evaluation, with percentile histogram</li>
+ *     <li>{@code rule.engine.rules.evaluated}, {@code rule.engine.rules.matched} - rules per evaluation, summed</li>
+ *     <li>{@code rule.engine.batch} - latency of a batch, {@code rule.engine.batch.inputs} - inputs evaluated</li>
+ *     <li>{@code rule.engine.expression.cache.*} - expression cache hits, misses, evictions, size and compile time</li>
+ *     <li>{@code cache.*} and {@code rule.engine.rules.cache.hit.ratio} - rules cache, per cache name</li>
+ *     <li>{@code rule.engine.result.cache.*} - result cache hits, misses, evictions, size and hit ratio</li>
+ *     <li>{@code rule.engine.store.load} - time to read a category from MongoDB</li>
+ * </ul>
+ */
+@Slf4j
+final class MicrometerRuleEngineMetrics implements RuleEngineMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<Key, EvaluationMeters> evaluations = new ConcurrentHashMap<>();
+    private final Map<Key, BatchMeters> batches = new ConcurrentHashMap<>();
+    private final Map<Key, Timer> loads = new ConcurrentHashMap<>();
+
+    /**
+     * @param cacheManager the rules cache manager, or {@code null} if caching is off
+     */
+    MicrometerRuleEngineMetrics(MeterRegistry registry, CoreRuleEngine coreRuleEngine, CacheManager cacheManager) {
+        this.registry = registry;
+        bindExpressionCache(coreRuleEngine);
+        if (cacheManager != null) {
+            bindRulesCaches(cacheManager);
+        }
+    }
+
+    @Override
+    public boolean timed() {
+        return true;
+    }
+
+    @Override
+    public void evaluated(String mode, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy,
+                          long durationNanos, int rulesEvaluated, int rulesMatched) {
+        Key key = new Key(mode, name(ruleCategory), name(subCategory), hitPolicy);
+        EvaluationMeters meters = evaluations.get(key);
+        if (meters == null) {
+            meters = evaluations.computeIfAbsent(key, this::evaluationMeters);
+        }
+        meters.latency().record(durationNanos, TimeUnit.NANOSECONDS);
+        meters.evaluated().add(rulesEvaluated);
+        meters.matched().add(rulesMatched);
+    }
+
+    @Override
+    public void batchEvaluated(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy,
+                               int inputs, long durationNanos, int rulesEvaluated, int rulesMatched) {
+        Key key = new Key("table", name(ruleCategory), name(subCategory), hitPolicy);
+        BatchMeters meters = batches.get(key);
+        if (meters == null) {
+            meters = batches.computeIfAbsent(key, this::batchMeters);
+        }
+        meters.latency().record(durationNanos, TimeUnit.NANOSECONDS);
+        meters.inputs().add(inputs);
+        meters.evaluation().evaluated().add(rulesEvaluated);
+        meters.evaluation().matched().add(rulesMatched);
+    }
+
+    @Override
+    public void rulesLoaded(String category, String subCategory, int rules, long durationNanos) {
+        loads.computeIfAbsent(new Key("table", shortName(category), shortName(subCategory), null),
+                        key -> Timer.builder("rule.engine.store.load")
+                                .description("Time to read the rules of a category from MongoDB")
+                                .tags(key.tags())
+                                .register(registry))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        log.debug("Loaded {} rules for {}:{} in {} nanoseconds", rules, category, subCategory, durationNanos);
+    }
+
+    @Override
+    public void bindResultCache(Supplier<CacheStats> stats) {
+        FunctionCounter.builder("rule.engine.result.cache.hits", stats, s -> s.get().hitCount())
+                .description("Evaluations served from the result cache")
+                .register(registry);
+        FunctionCounter.builder("rule.engine.result.cache.misses", stats, s -> s.get().missCount())
+                .description("Evaluations not found in the result cache")
+                .register(registry);
+        FunctionCounter.builder("rule.engine.result.cache.evictions", stats, s -> s.get().evictionCount())
+                .description("Results evicted from the result cache")
+                .register(registry);
+        Gauge.builder("rule.engine.result.cache.size", stats, s -> s.get().size())
+                .description("Evaluations in the result cache")
+                .register(registry);
+        Gauge.builder("rule.engine.result.cache.hit.ratio", stats, s -> s.get().hitRate())
+                .description("Share of evaluations served from the result cache")
+                .register(registry);
+    }
+
+    private EvaluationMeters evaluationMeters(Key key) {
+        Timer latency = Timer.builder("rule.engine.evaluation")
+                .description("Time to evaluate one input against a rule set")
+                .tags(key.tags())
+                .publishPercentileHistogram()
+                .register(registry);
+        return new EvaluationMeters(latency, counter("rule.engine.rules.evaluated", "Rules evaluated", key),
+                counter("rule.engine.rules.matched", "Rules matched", key));
+    }
+
+    private BatchMeters batchMeters(Key key) {
+        Timer latency = Timer.builder("rule.engine.batch")
+                .description("Time to evaluate a batch of inputs against a rule set")
+                .tags(key.tags())
+                .publishPercentileHistogram()
+                .register(registry);
+        return new BatchMeters(latency, counter("rule.engine.batch.inputs", "Inputs evaluated in batches", key),
+                evaluations.computeIfAbsent(key, this::evaluationMeters));
+    }
+
+    private LongAdder counter(String name, String description, Key key) {
+        LongAdder adder = new LongAdder();
+        FunctionCounter.builder(name, adder, LongAdder::sum)
+                .description(description)
+                .tags(key.tags())
+                .register(registry);
+        return adder;
+    }
+
+    private void bindExpressionCache(CoreRuleEngine coreRuleEngine) {
+        expressionCacheCounter("rule.engine.expression.cache.hits", "Expression lookups served from the cache",
+                coreRuleEngine, engine -> engine.getCacheStats().hitCount());
+        expressionCacheCounter("rule.engine.expression.cache.misses", "Expression lookups that compiled the expression",
+                coreRuleEngine, engine -> engine.getCacheStats().missCount());
+        expressionCacheCounter("rule.engine.expression.cache.evictions", "Expressions evicted from the cache",
+                coreRuleEngine, engine -> engine.getCacheStats().evictionCount());
+        Gauge.builder("rule.engine.expression.cache.size", coreRuleEngine, engine -> engine.getCacheStats().size())
+                .description("Compiled expressions in the cache")
+                .register(registry);
+        FunctionTimer.builder("rule.engine.expression.compile", coreRuleEngine,
+                        engine -> engine.getCacheStats().missCount(),
+                        engine -> engine.getCacheStats().totalLoadTimeNanos(), TimeUnit.NANOSECONDS)
+                .description("Expression compilations")
+                .register(registry);
+    }
+
+    private void expressionCacheCounter(String name, String description, CoreRuleEngine coreRuleEngine,
+                                        ToDoubleFunction<CoreRuleEngine> count) {
+        FunctionCounter.builder(name, coreRuleEngine, count)
+                .description(description)
+                .register(registry);
+    }
+
+    /**
+     * Binds the standard JCache meters and a hit ratio gauge for every cache. Statistics are enabled
+     * on the caches, since JCache providers only collect them on request.
+     */
+    private void bindRulesCaches(CacheManager cacheManager) {
+        for (String cacheName : cacheManager.getCacheNames()) {
+            Cache<Object, Object> cache = cacheManager.getCache(cacheName);
+            if (cache == null) {
+                continue;
+            }
+            cacheManager.enableStatistics(cacheName, true);
+            JCacheMetrics.monitor(registry, cache, Tags.empty());
+            Gauge.builder("rule.engine.rules.cache.hit.ratio", cacheName, MicrometerRuleEngineMetrics::hitRatio)
+                    .description("Share of rules cache lookups served from the cache")
+                    .tags("cache", cacheName)
+                    .register(registry);
+        }
+    }
+
+    private static double hitRatio(String cacheName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Set<ObjectName> names = server.queryNames(
+                    new ObjectName("javax.cache:type=CacheStatistics,Cache=" + cacheName + ",*"), null);
+            for (ObjectName name : names) {
+                return ((Number) server.getAttribute(name, "CacheHitPercentage")).doubleValue() / 100;
+            }
+        } catch (Exception e) {
+            log.debug("Could not read statistics of cache '{}'", cacheName, e);
+        }
+        return Double.NaN;
+    }
+
+    private static String name(BaseRuleCategory category) {
+        return category != null ? category.getName() : "none";
+    }
+
+    private static String name(BaseRuleSubCategory category) {
+        return category != null ? category.getName() : "none";
+    }
+
+    /**
+     * The constant name of a persisted category string.
+     */
+    private static String shortName(String persisted) {
+        return persisted != null ? persisted.substring(persisted.indexOf(':') + 1) : "none";
+    }
+
+    private record Key(String mode, String category, String subCategory, HitPolicy hitPolicy) {
+
+        Tags tags() {
+            Tags tags = Tags.of("category", category, "subcategory", subCategory);
+            if (hitPolicy != null) {
+                tags = tags.and("hit.policy", hitPolicy.name(), "mode", mode);
+            }
+            return tags;
+        }
+    }
+
+    private record EvaluationMeters(Timer latency, LongAdder evaluated, LongAdder matched) {
+    }
+
+    private record BatchMeters(Timer latency, LongAdder inputs, EvaluationMeters evaluation) {
+    }
+}
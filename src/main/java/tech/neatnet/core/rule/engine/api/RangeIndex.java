@@ -0,0 +1,349 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.neatnet.core.rule.engine.domain.Condition;
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Interval index over the numeric comparisons of a rule set, for tiered tables such as
+ * {@code orderTotal >= 100 && orderTotal < 500} repeated over many bands.
+ * <p>
+ * For each indexed variable the distinct literals it is compared against are kept as a sorted
+ * boundary array. The boundaries cut the number line into segments, each literal and each open
+ * interval between two of them, and every segment lists the rules whose comparisons admit it. At
+ * evaluation time a binary search finds the input's segment; rules not listed there, and not among
+ * the rules that leave the variable unconstrained, are known to be false without running MVEL.
+ * Several variables narrow the candidates together, see {@link EqualityIndex.Candidates}.
+ * <p>
+ * Like {@link CompiledDecisionTable}, only literals that are exact doubles are indexed, and an input
+ * value narrows the candidates only if it is an integral number or a finite double that compares
+ * exactly as a double. A condition made up only of indexed comparisons is decided by the index and
+ * not evaluated again.
+ */
+@Slf4j
+final class RangeIndex {
+
+    static final RangeIndex NONE = new RangeIndex(new String[0], new double[0][], new int[0][][], new int[0][], new int[0][]);
+
+    /**
+     * Most variables indexed per rule set, the ones compared in most rules.
+     */
+    static final int MAX_VARIABLES = 8;
+
+    /**
+     * Fewest rules that must constrain a variable for it to be indexed.
+     */
+    private static final int MIN_RULES = 4;
+
+    /**
+     * Segment lists may hold this many entries per rule; overlapping ranges beyond that would make
+     * the index grow quadratically, and the variable is left to MVEL.
+     */
+    private static final int MAX_ENTRIES_PER_RULE = 16;
+
+    private static final long MAX_EXACT_LONG = 1L << 53;
+    private static final BigDecimal MAX_EXACT_DECIMAL = BigDecimal.valueOf(MAX_EXACT_LONG);
+
+    private final String[] variables;
+    private final double[][] boundaries;
+    /**
+     * Per variable and segment, the ascending rules that admit the segment.
+     */
+    private final int[][][] segments;
+    /**
+     * Per variable, the ascending rules that do not constrain it.
+     */
+    private final int[][] unbounded;
+    /**
+     * Per rule, the indexed variables (as a bit mask) of each condition decided by the index, 0 for
+     * a condition that is not, or {@code null} if the rule has no such condition.
+     */
+    private final int[][] coveredConditions;
+
+    private RangeIndex(String[] variables, double[][] boundaries, int[][][] segments, int[][] unbounded,
+                       int[][] coveredConditions) {
+        this.variables = variables;
+        this.boundaries = boundaries;
+        this.segments = segments;
+        this.unbounded = unbounded;
+        this.coveredConditions = coveredConditions;
+    }
+
+    static RangeIndex build(List<Rule> rules) {
+        List<Map<String, Range>> ranges = new ArrayList<>(rules.size());
+        Map<String, Integer> usage = new LinkedHashMap<>();
+        for (Rule rule : rules) {
+            Map<String, Range> ruleRanges = ranges(rule);
+            ruleRanges.keySet().forEach(variable -> usage.merge(variable, 1, Integer::sum));
+            ranges.add(ruleRanges);
+        }
+        List<String> candidates = usage.entrySet().stream()
+                .filter(e -> e.getValue() >= MIN_RULES)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .map(Map.Entry::getKey)
+                .toList();
+
+        List<String> variables = new ArrayList<>();
+        List<double[]> boundaries = new ArrayList<>();
+        List<int[][]> segments = new ArrayList<>();
+        List<int[]> unbounded = new ArrayList<>();
+        for (String variable : candidates) {
+            if (variables.size() == MAX_VARIABLES) {
+                break;
+            }
+            double[] points = boundaries(ranges, variable);
+            int[][] lists = segments(ranges, variable, points, (long) MAX_ENTRIES_PER_RULE * rules.size());
+            if (lists == null) {
+                log.debug("Not indexing ranges of '{}', they overlap too much", variable);
+                continue;
+            }
+            EqualityIndex.IntList free = new EqualityIndex.IntList();
+            for (int i = 0; i < rules.size(); i++) {
+                if (!ranges.get(i).containsKey(variable)) {
+                    free.add(i);
+                }
+            }
+            variables.add(variable);
+            boundaries.add(points);
+            segments.add(lists);
+            unbounded.add(free.toArray());
+            log.debug("Built range index on '{}' with {} boundaries and {} unconstrained rules out of {}",
+                    variable, points.length, free.size(), rules.size());
+        }
+        if (variables.isEmpty()) {
+            return NONE;
+        }
+        return new RangeIndex(variables.toArray(new String[0]), boundaries.toArray(new double[0][]),
+                segments.toArray(new int[0][][]), unbounded.toArray(new int[0][]), coveredConditions(rules, variables));
+    }
+
+    /**
+     * Narrows {@code equality}, the equality index lookup, by every indexed variable the input has a
+     * usable value for.
+     *
+     * @param equality the equality index candidates, or {@code null} if it did not narrow anything
+     * @param reuse    candidates to fill when {@code equality} is {@code null}, or {@code null} to create them
+     * @return the candidates, or {@code null} if neither index can be used for this input
+     */
+    EqualityIndex.Candidates lookup(Map<String, Object> inputVariables, EqualityIndex.Candidates equality,
+                                    EqualityIndex.Candidates reuse) {
+        EqualityIndex.Candidates candidates = equality;
+        for (int v = 0; v < variables.length; v++) {
+            Object value = inputVariables.get(variables[v]);
+            double number;
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                number = ((Number) value).intValue();
+            } else if (value instanceof Long l && Math.abs(l) <= MAX_EXACT_LONG) {
+                number = l;
+            } else if (value instanceof Double d && Double.isFinite(d)) {
+                // -0.0 equals 0 for MVEL but sorts below it
+                number = d == 0 ? 0 : d;
+            } else {
+                continue;
+            }
+            if (candidates == null) {
+                candidates = reuse != null ? reuse.reset() : new EqualityIndex.Candidates();
+            }
+            int k = Arrays.binarySearch(boundaries[v], number);
+            int segment = k >= 0 ? 2 * k + 1 : 2 * (-k - 1);
+            candidates.narrow(v, segments[v][segment], unbounded[v]);
+        }
+        return candidates;
+    }
+
+    /**
+     * Whether condition {@code c} of rule {@code i} is decided by the index for a candidate found with
+     * the variables in {@code resolved}, see {@link EqualityIndex.Candidates#resolved()}.
+     */
+    boolean covers(int i, int c, int resolved) {
+        if (resolved == 0 || i >= coveredConditions.length || coveredConditions[i] == null) {
+            return false;
+        }
+        int needed = coveredConditions[i][c];
+        return needed != 0 && (needed & ~resolved) == 0;
+    }
+
+    private static double[] boundaries(List<Map<String, Range>> ranges, String variable) {
+        TreeSet<Double> points = new TreeSet<>();
+        for (Map<String, Range> rule : ranges) {
+            Range range = rule.get(variable);
+            if (range != null) {
+                if (range.lower != null) {
+                    points.add(range.lower.doubleValue());
+                }
+                if (range.upper != null) {
+                    points.add(range.upper.doubleValue());
+                }
+            }
+        }
+        return points.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Segment {@code 2k + 1} is boundary {@code k}, segment {@code 2k} the open interval below it.
+     *
+     * @return the rules admitting each segment, or {@code null} if they would hold more than {@code maxEntries}
+     */
+    private static int[][] segments(List<Map<String, Range>> ranges, String variable, double[] points, long maxEntries) {
+        int count = 2 * points.length + 1;
+        int[] first = new int[ranges.size()];
+        int[] last = new int[ranges.size()];
+        long entries = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            Range range = ranges.get(i).get(variable);
+            if (range != null) {
+                first[i] = range.lower == null ? 0
+                        : 2 * Arrays.binarySearch(points, range.lower.doubleValue()) + (range.lowerInclusive ? 1 : 2);
+                last[i] = range.upper == null ? count - 1
+                        : 2 * Arrays.binarySearch(points, range.upper.doubleValue()) + (range.upperInclusive ? 1 : 0);
+                entries += Math.max(0, last[i] - first[i] + 1);
+            }
+        }
+        if (entries > maxEntries) {
+            return null;
+        }
+        EqualityIndex.IntList[] lists = new EqualityIndex.IntList[count];
+        for (int i = 0; i < ranges.size(); i++) {
+            if (ranges.get(i).containsKey(variable)) {
+                for (int s = first[i]; s <= last[i]; s++) {
+                    if (lists[s] == null) {
+                        lists[s] = new EqualityIndex.IntList();
+                    }
+                    lists[s].add(i);
+                }
+            }
+        }
+        int[][] segments = new int[count][];
+        for (int s = 0; s < count; s++) {
+            segments[s] = lists[s] != null ? lists[s].toArray() : EqualityIndex.Candidates.NO_RULES;
+        }
+        return segments;
+    }
+
+    /**
+     * Finds the conditions made up only of comparisons on the indexed variables.
+     */
+    private static int[][] coveredConditions(List<Rule> rules, List<String> variables) {
+        int[][] covered = new int[rules.size()][];
+        for (int i = 0; i < rules.size(); i++) {
+            List<Condition> conditions = conditionsOf(rules.get(i));
+            for (int c = 0; c < conditions.size(); c++) {
+                Condition condition = conditions.get(c);
+                if (condition == null || hasInValues(condition)) {
+                    continue;
+                }
+                SimplePredicate.Conjunction conjunction = SimplePredicate.parseConjunction(condition.getCondition());
+                if (!conjunction.complete() || conjunction.predicates().isEmpty()) {
+                    continue;
+                }
+                int mask = 0;
+                for (SimplePredicate predicate : conjunction.predicates()) {
+                    int v = variables.indexOf(predicate.variable());
+                    if (v < 0 || !isIndexable(predicate)) {
+                        mask = 0;
+                        break;
+                    }
+                    mask |= 1 << v;
+                }
+                if (mask != 0) {
+                    if (covered[i] == null) {
+                        covered[i] = new int[conditions.size()];
+                    }
+                    covered[i][c] = mask;
+                }
+            }
+        }
+        return covered;
+    }
+
+    /**
+     * The range each variable is constrained to by the indexable comparisons among the top-level
+     * conjuncts of a rule's conditions, all of which must hold for the rule to match.
+     */
+    private static Map<String, Range> ranges(Rule rule) {
+        Map<String, Range> ranges = new HashMap<>();
+        for (Condition condition : conditionsOf(rule)) {
+            if (condition == null || hasInValues(condition)) {
+                continue;
+            }
+            for (SimplePredicate predicate : SimplePredicate.parseConjunction(condition.getCondition()).predicates()) {
+                if (isIndexable(predicate)) {
+                    ranges.computeIfAbsent(predicate.variable(), key -> new Range()).add(predicate);
+                }
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * An equality or order comparison against a number that a double represents exactly.
+     */
+    private static boolean isIndexable(SimplePredicate predicate) {
+        return predicate.operator() != SimplePredicate.Operator.NE
+                && predicate.literal() instanceof BigDecimal number
+                && number.abs().compareTo(MAX_EXACT_DECIMAL) <= 0
+                && BigDecimal.valueOf(number.doubleValue()).compareTo(number) == 0;
+    }
+
+    private static List<Condition> conditionsOf(Rule rule) {
+        return rule.getConditions() != null ? rule.getConditions() : List.of();
+    }
+
+    private static boolean hasInValues(Condition condition) {
+        return condition.getInValues() != null && !condition.getInValues().isEmpty();
+    }
+
+    /**
+     * The values one rule allows for one variable, the intersection of its comparisons.
+     */
+    private static final class Range {
+        private BigDecimal lower;
+        private boolean lowerInclusive;
+        private BigDecimal upper;
+        private boolean upperInclusive;
+
+        void add(SimplePredicate predicate) {
+            BigDecimal value = (BigDecimal) predicate.literal();
+            switch (predicate.operator()) {
+                case EQ -> {
+                    raiseLower(value, true);
+                    lowerUpper(value, true);
+                }
+                case GT -> raiseLower(value, false);
+                case GE -> raiseLower(value, true);
+                case LT -> lowerUpper(value, false);
+                case LE -> lowerUpper(value, true);
+                default -> throw new IllegalArgumentException("Not a range: " + predicate);
+            }
+        }
+
+        private void raiseLower(BigDecimal value, boolean inclusive) {
+            int comparison = lower == null ? 1 : value.compareTo(lower);
+            if (comparison > 0) {
+                lower = value;
+                lowerInclusive = inclusive;
+            } else if (comparison == 0) {
+                lowerInclusive &= inclusive;
+            }
+        }
+
+        private void lowerUpper(BigDecimal value, boolean inclusive) {
+            int comparison = upper == null ? -1 : value.compareTo(upper);
+            if (comparison < 0) {
+                upper = value;
+                upperInclusive = inclusive;
+            } else if (comparison == 0) {
+                upperInclusive &= inclusive;
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tech.neatnet.core.rule.engine.domain.HitPolicy;
+import tech.neatnet.core.rule.engine.domain.RuleExecutionResult;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reactor variant of {@link AsyncRuleEngineClient}, available when reactor-core is on the classpath.
+ */
+public interface ReactiveRuleEngineClient {
+
+    /**
+     * Evaluates one input when subscribed.
+     */
+    Mono<List<RuleExecutionResult>> evaluateRules(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy);
+
+    /**
+     * Evaluates each input as it arrives, emitting results in input order.
+     */
+    Flux<List<RuleExecutionResult>> evaluateRules(Publisher<Map<String, Object>> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy);
+
+}
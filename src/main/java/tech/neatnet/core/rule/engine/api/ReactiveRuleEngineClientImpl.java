@@ -0,0 +1,34 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tech.neatnet.core.rule.engine.domain.HitPolicy;
+import tech.neatnet.core.rule.engine.domain.RuleExecutionResult;
+
+import java.util.List;
+import java.util.Map;
+
+public class ReactiveRuleEngineClientImpl implements ReactiveRuleEngineClient {
+
+    private final AsyncRuleEngineClient asyncRuleEngineClient;
+    private final int maxConcurrency;
+
+    public ReactiveRuleEngineClientImpl(AsyncRuleEngineClient asyncRuleEngineClient, int maxConcurrency) {
+        this.asyncRuleEngineClient = asyncRuleEngineClient;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+
+    @Override
+    public Mono<List<RuleExecutionResult>> evaluateRules(Map<String, Object> inputVariables,
+            BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy) {
+        return Mono.fromFuture(() -> asyncRuleEngineClient.evaluateRulesAsync(inputVariables, ruleCategory, subCategory, hitPolicy));
+    }
+
+    @Override
+    public Flux<List<RuleExecutionResult>> evaluateRules(Publisher<Map<String, Object>> inputVariables,
+            BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy) {
+        return Flux.from(inputVariables)
+                .flatMapSequential(input -> evaluateRules(input, ruleCategory, subCategory, hitPolicy), maxConcurrency);
+    }
+}
@@ -0,0 +1,115 @@
+package tech.neatnet.core.rule.engine.api;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import tech.neatnet.core.rule.engine.domain.HitPolicy;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of evaluation results, keyed by the values of the input variables a rule set reads.
+ * <p>
+ * A key holds the category and the version of the rule set it was evaluated against, not the rule
+ * set itself, so entries do not keep a replaced rule set reachable. A rule set is published with a
+ * new version whenever its rules or their order change, so a reload or reordering never serves
+ * results of the previous rules. Entries of a replaced rule set are never hit again and age out
+ * through expiry and eviction, while the categories that did not change keep their entries.
+ * <p>
+ * Input values are compared with {@code equals}. Values without value equality never hit, and a
+ * value mutated after it was evaluated is not found again. Entries expire {@code ttl} after they
+ * are written and are evicted by size with Caffeine's W-TinyLFU policy.
+ */
+final class ResultCache {
+
+    private final Cache<Key, Object> cache;
+    private final long maxSize;
+    private final LongAdder evaluationNanos = new LongAdder();
+
+    ResultCache(RuleEngineProperties.ResultCacheProperties properties) {
+        // cache maintenance is cheap, run it on the calling thread rather than the common pool
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .maximumSize(properties.getMaxSize())
+                .recordStats();
+        if (properties.getTtl() != null && !properties.getTtl().isZero()) {
+            builder.expireAfterWrite(properties.getTtl());
+        }
+        this.cache = builder.build();
+        this.maxSize = properties.getMaxSize();
+    }
+
+    /**
+     * @param mode   {@code table}, {@code tree} or {@code path}, whatever distinguishes the results
+     * @param layout the input variables the evaluation reads
+     */
+    Key key(String mode, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, RuleSet ruleSet,
+            HitPolicy hitPolicy, InputLayout layout, Map<String, Object> inputVariables) {
+        Object[] values = new Object[layout.size()];
+        for (int slot = 0; slot < values.length; slot++) {
+            String name = layout.name(slot);
+            Object value = inputVariables.get(name);
+            values[slot] = value != null || inputVariables.containsKey(name) ? value : InputLayout.ABSENT;
+        }
+        return new Key(mode, ruleCategory, subCategory, ruleSet.version(), hitPolicy, values);
+    }
+
+    /**
+     * @return the cached results, or {@code null} on a miss
+     */
+    Object get(Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * @param nanos time the evaluation took, reported as load time
+     */
+    void put(Key key, Object results, long nanos) {
+        cache.put(key, results);
+        evaluationNanos.add(nanos);
+    }
+
+    CacheStats stats() {
+        var stats = cache.stats();
+        return new CacheStats((int) cache.estimatedSize(), (int) Math.min(Integer.MAX_VALUE, maxSize),
+                stats.hitCount(), stats.missCount(), stats.evictionCount(), evaluationNanos.sum());
+    }
+
+    static final class Key {
+        private final String mode;
+        private final BaseRuleCategory ruleCategory;
+        private final BaseRuleSubCategory subCategory;
+        private final long version;
+        private final HitPolicy hitPolicy;
+        private final Object[] values;
+        private final int hash;
+
+        private Key(String mode, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, long version,
+                    HitPolicy hitPolicy, Object[] values) {
+            this.mode = mode;
+            this.ruleCategory = ruleCategory;
+            this.subCategory = subCategory;
+            this.version = version;
+            this.hitPolicy = hitPolicy;
+            this.values = values;
+            int h = 31 * (31 * (31 * mode.hashCode() + ruleCategory.hashCode()) + subCategory.hashCode())
+                    + Long.hashCode(version);
+            h = 31 * h + Objects.hashCode(hitPolicy);
+            this.hash = 31 * h + Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && hash == other.hash && version == other.version
+                    && hitPolicy == other.hitPolicy && mode.equals(other.mode) && ruleCategory.equals(other.ruleCategory)
+                    && subCategory.equals(other.subCategory) && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
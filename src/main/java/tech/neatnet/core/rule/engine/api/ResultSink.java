@@ -0,0 +1,19 @@
+package tech.neatnet.core.rule.engine.api;
+
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+/**
+ * Receives matching rules while an evaluation is running.
+ * <p>
+ * Called on the evaluating thread, in rule order, once per matched rule. The rule's results are
+ * available through {@link Rule#getResults()}.
+ */
+@FunctionalInterface
+public interface ResultSink {
+
+    /**
+     * @param ruleIndex position of the rule within its category
+     * @param rule      the matched rule
+     */
+    void onMatch(int ruleIndex, Rule rule);
+}
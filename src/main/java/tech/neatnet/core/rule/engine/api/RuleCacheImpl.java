@@ -35,6 +35,6 @@ class RuleCacheImpl implements RuleCache {
 
     @Override
     public void reloadRules() {
-        findActive();
+        ruleRepositoryService.reloadRules();
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package tech.neatnet.core.rule.engine.api;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.time.Duration;
+
+/**
+ * Applies changes to the rules collection to the loaded rule sets as they happen.
+ * <p>
+ * Listens to the collection's change stream on a background thread. Each insert, update, replace or
+ * delete is applied to the affected categories only, via {@link RuleEngine#applyRuleChange}. The
+ * resume token of the last applied event is kept, so after a disconnect the stream resumes where it
+ * stopped. If the server no longer has that position or rejects the token, or the collection is
+ * dropped or renamed, all rules are reloaded once and watching starts over from the current position.
+ * An event that cannot be applied, such as a document the converter cannot read, is logged and
+ * skipped rather than retried.
+ */
+@Slf4j
+final class RuleChangeWatcher implements SmartLifecycle {
+
+    /**
+     * Server error codes meaning the resume token can no longer be used.
+     */
+    private static final int INVALID_RESUME_TOKEN = 260;
+    private static final int CHANGE_STREAM_FATAL_ERROR = 280;
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private final MongoTemplate mongoTemplate;
+    private final RuleEngine ruleEngine;
+    private final String collection;
+    private final Duration retryDelay;
+
+    private volatile boolean running;
+    private volatile BsonDocument resumeToken;
+    private volatile boolean reloadPending;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+    private Thread thread;
+
+    RuleChangeWatcher(MongoTemplate mongoTemplate, RuleEngine ruleEngine, RuleEngineProperties.WatchProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.ruleEngine = ruleEngine;
+        this.collection = properties.getCollection();
+        this.retryDelay = properties.getRetryDelay();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::watch, "rule-engine-change-stream");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching collection '{}' for rule changes", collection);
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> current = cursor;
+        if (current != null) {
+            current.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void watch() {
+        while (running) {
+            try {
+                var stream = mongoTemplate.getCollection(collection).watch().fullDocument(FullDocument.UPDATE_LOOKUP);
+                if (resumeToken != null) {
+                    stream = stream.resumeAfter(resumeToken);
+                }
+                try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> changes = stream.cursor()) {
+                    cursor = changes;
+                    if (reloadPending) {
+                        // reload after the new stream is open, so no change falls between the two
+                        ruleEngine.reloadRules().join();
+                        reloadPending = false;
+                    }
+                    while (running && changes.hasNext()) {
+                        ChangeStreamDocument<Document> change = changes.next();
+                        if (!applyOrSkip(change)) {
+                            // the stream ends after an invalidating event, start a new one without its token
+                            break;
+                        }
+                        resumeToken = change.getResumeToken();
+                    }
+                }
+            } catch (MongoException e) {
+                if (!running) {
+                    return;
+                }
+                if (e instanceof MongoCommandException command && (command.getErrorCode() == CHANGE_STREAM_HISTORY_LOST
+                        || command.getErrorCode() == CHANGE_STREAM_FATAL_ERROR
+                        || command.getErrorCode() == INVALID_RESUME_TOKEN)) {
+                    log.warn("Rule change stream cannot resume, reloading all rules: {}", e.getMessage());
+                    restart();
+                } else {
+                    log.warn("Rule change stream failed, retrying in {}: {}", retryDelay, e.getMessage());
+                }
+                pause();
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.error("Rule change stream failed, retrying in {}", retryDelay, e);
+                pause();
+            }
+        }
+    }
+
+    /**
+     * Applies an event, skipping it if it cannot be applied. Database errors are rethrown, so the
+     * event is retried once the connection is back.
+     *
+     * @return {@code false} if the rules were reloaded and the stream has to start over
+     */
+    private boolean applyOrSkip(ChangeStreamDocument<Document> change) {
+        try {
+            return apply(change);
+        } catch (MongoException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.error("Skipping {} of rule {} that could not be applied", change.getOperationType(),
+                    id(change.getDocumentKey()), e);
+            return true;
+        }
+    }
+
+    private boolean apply(ChangeStreamDocument<Document> change) {
+        switch (change.getOperationType()) {
+            case INSERT, UPDATE, REPLACE -> {
+                String ruleId = id(change.getDocumentKey());
+                Document document = change.getFullDocument();
+                // an update whose document was deleted before the lookup is followed by a delete event
+                Rule rule = document != null ? mongoTemplate.getConverter().read(Rule.class, document) : null;
+                if (ruleEngine.applyRuleChange(ruleId, rule)) {
+                    log.debug("Applied {} of rule {}", change.getOperationType(), ruleId);
+                }
+            }
+            case DELETE -> ruleEngine.applyRuleChange(id(change.getDocumentKey()), null);
+            case DROP, RENAME, DROP_DATABASE, INVALIDATE -> {
+                log.info("Rules collection was {}, reloading all rules", change.getOperationType());
+                restart();
+                return false;
+            }
+            default -> log.debug("Ignoring {} event on rules collection", change.getOperationType());
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the stream position and reloads everything once the next stream is open, since events
+     * may have been missed.
+     */
+    private void restart() {
+        resumeToken = null;
+        reloadPending = true;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(retryDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static String id(BsonDocument documentKey) {
+        BsonValue id = documentKey != null ? documentKey.get("_id") : null;
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+}
@@ -0,0 +1,352 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.ehcache.impl.serialization.PlainJavaSerializer;
+import org.ehcache.spi.serialization.Serializer;
+import org.ehcache.spi.serialization.SerializerException;
+import tech.neatnet.core.rule.engine.domain.Condition;
+import tech.neatnet.core.rule.engine.domain.Rule;
+import tech.neatnet.core.rule.engine.domain.RuleType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes cached rule lists for the off-heap and disk tiers of the rules cache.
+ * <p>
+ * A list of rules is written field by field: strings, numbers, categories as their persisted
+ * {@code <class name>:<name>} form, and condition trees recursively. Values in results and
+ * {@code inValues} may be null, strings, booleans, {@code Integer}, {@code Long}, {@code Double},
+ * {@code BigDecimal}, lists and string-keyed maps of those. Anything else, including a rule holding
+ * another value type, is written with Java serialization instead.
+ */
+final class RuleCollectionSerializer implements Serializer<Object> {
+
+    private static final byte JAVA = 0;
+    private static final byte RULES = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte TRUE = 2;
+    private static final byte FALSE = 3;
+    private static final byte INTEGER = 4;
+    private static final byte LONG = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte DECIMAL = 7;
+    private static final byte LIST = 8;
+    private static final byte MAP = 9;
+
+    private final PlainJavaSerializer<Object> java;
+
+    RuleCollectionSerializer(ClassLoader classLoader) {
+        this.java = new PlainJavaSerializer<>(classLoader);
+    }
+
+    @Override
+    public ByteBuffer serialize(Object object) throws SerializerException {
+        if (object instanceof List<?> list && isRules(list)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * (list.size() + 1));
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeByte(RULES);
+                out.writeInt(list.size());
+                for (Object rule : list) {
+                    writeRule(out, (Rule) rule);
+                }
+                return ByteBuffer.wrap(bytes.toByteArray());
+            } catch (Unsupported e) {
+                // fall through to Java serialization
+            } catch (IOException e) {
+                throw new SerializerException(e);
+            }
+        }
+        ByteBuffer serialized = java.serialize(object);
+        ByteBuffer tagged = ByteBuffer.allocate(serialized.remaining() + 1);
+        tagged.put(JAVA).put(serialized).flip();
+        return tagged;
+    }
+
+    @Override
+    public Object read(ByteBuffer binary) throws ClassNotFoundException, SerializerException {
+        ByteBuffer buffer = binary.duplicate();
+        if (buffer.get() == JAVA) {
+            return java.read(buffer.slice());
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int size = in.readInt();
+            List<Rule> rules = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                rules.add(readRule(in));
+            }
+            return rules;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SerializerException(e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object object, ByteBuffer binary) throws ClassNotFoundException, SerializerException {
+        return object.equals(read(binary));
+    }
+
+    private static boolean isRules(List<?> list) {
+        for (Object element : list) {
+            if (element == null || element.getClass() != Rule.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeRule(DataOutputStream out, Rule rule) throws IOException {
+        writeString(out, rule.getId());
+        writeInstant(out, rule.getDateCreated());
+        writeInstant(out, rule.getDateModified());
+        writeString(out, rule.getModifiedBy());
+        out.writeInt(rule.getVersion());
+        out.writeBoolean(rule.isActive());
+        writeString(out, rule.getName());
+        writeString(out, rule.getDescription());
+        BaseRuleCategory category = rule.getBaseRuleCategory();
+        BaseRuleSubCategory subCategory = rule.getBaseRuleSubCategory();
+        writeCategory(out, category, category != null ? category.getName() : null, BaseRuleCategory.class);
+        writeCategory(out, subCategory, subCategory != null ? subCategory.getName() : null, BaseRuleSubCategory.class);
+        writeString(out, rule.getRuleType() != null ? rule.getRuleType().name() : null);
+        List<Condition> conditions = rule.getConditions();
+        out.writeInt(conditions != null ? conditions.size() : -1);
+        if (conditions != null) {
+            for (Condition condition : conditions) {
+                writeCondition(out, condition);
+            }
+        }
+        writeValue(out, rule.getResults());
+    }
+
+    private static Rule readRule(DataInputStream in) throws IOException {
+        Rule rule = new Rule();
+        rule.setId(readString(in));
+        rule.setDateCreated(readInstant(in));
+        rule.setDateModified(readInstant(in));
+        rule.setModifiedBy(readString(in));
+        rule.setVersion(in.readInt());
+        rule.setActive(in.readBoolean());
+        rule.setName(readString(in));
+        rule.setDescription(readString(in));
+        rule.setBaseRuleCategory(readCategory(in, BaseRuleCategory.class));
+        rule.setBaseRuleSubCategory(readCategory(in, BaseRuleSubCategory.class));
+        String ruleType = readString(in);
+        rule.setRuleType(ruleType != null ? RuleType.valueOf(ruleType) : null);
+        int conditions = in.readInt();
+        if (conditions >= 0) {
+            List<Condition> list = new ArrayList<>(conditions);
+            for (int i = 0; i < conditions; i++) {
+                list.add(readCondition(in));
+            }
+            rule.setConditions(list);
+        }
+        rule.setResults(castMap(readValue(in)));
+        return rule;
+    }
+
+    private static void writeCondition(DataOutputStream out, Condition condition) throws IOException {
+        out.writeBoolean(condition != null);
+        if (condition != null) {
+            writeString(out, condition.getCondition());
+            writeString(out, condition.getAction());
+            writeValue(out, condition.getInValues());
+            writeCondition(out, condition.getTrueBranch());
+            writeCondition(out, condition.getFalseBranch());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Condition readCondition(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Condition condition = new Condition();
+        condition.setCondition(readString(in));
+        condition.setAction(readString(in));
+        condition.setInValues((List<Object>) readValue(in));
+        condition.setTrueBranch(readCondition(in));
+        condition.setFalseBranch(readCondition(in));
+        return condition;
+    }
+
+    /**
+     * Writes a category as its persisted form, provided it resolves back to the same constant.
+     */
+    private static void writeCategory(DataOutputStream out, Object category, String name, Class<?> type)
+            throws IOException {
+        if (category == null) {
+            writeString(out, null);
+            return;
+        }
+        String persisted = category.getClass().getName() + ":" + name;
+        try {
+            if (CategoryRegistry.resolve(persisted, type) != category) {
+                throw Unsupported.INSTANCE;
+            }
+        } catch (IllegalArgumentException e) {
+            throw Unsupported.INSTANCE;
+        }
+        writeString(out, persisted);
+    }
+
+    private static <T> T readCategory(DataInputStream in, Class<T> type) throws IOException {
+        String persisted = readString(in);
+        return persisted != null ? CategoryRegistry.resolve(persisted, type) : null;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String s) {
+            out.writeByte(STRING);
+            writeUtf8(out, s);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(b ? TRUE : FALSE);
+        } else if (value instanceof Integer i) {
+            out.writeByte(INTEGER);
+            out.writeInt(i);
+        } else if (value instanceof Long l) {
+            out.writeByte(LONG);
+            out.writeLong(l);
+        } else if (value instanceof Double d) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(d);
+        } else if (value.getClass() == BigDecimal.class) {
+            BigDecimal decimal = (BigDecimal) value;
+            byte[] unscaled = decimal.unscaledValue().toByteArray();
+            out.writeByte(DECIMAL);
+            out.writeInt(decimal.scale());
+            out.writeInt(unscaled.length);
+            out.write(unscaled);
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!(entry.getKey() instanceof String key)) {
+                    throw Unsupported.INSTANCE;
+                }
+                writeUtf8(out, key);
+                writeValue(out, entry.getValue());
+            }
+        } else {
+            throw Unsupported.INSTANCE;
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readUtf8(in);
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case DECIMAL:
+                int scale = in.readInt();
+                byte[] unscaled = new byte[in.readInt()];
+                in.readFully(unscaled);
+                return new BigDecimal(new BigInteger(unscaled), scale);
+            case LIST:
+                int size = in.readInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            case MAP:
+                int entries = in.readInt();
+                Map<String, Object> map = new LinkedHashMap<>(Math.max(4, entries * 4 / 3 + 1));
+                for (int i = 0; i < entries; i++) {
+                    map.put(readUtf8(in), readValue(in));
+                }
+                return map;
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeUtf8(out, value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readUtf8(in) : null;
+    }
+
+    /**
+     * Unlike {@link DataOutputStream#writeUTF}, not limited to 64KB.
+     */
+    private static void writeUtf8(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readUtf8(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        out.writeBoolean(instant != null);
+        if (instant != null) {
+            out.writeLong(instant.getEpochSecond());
+            out.writeInt(instant.getNano());
+        }
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+    }
+
+    /**
+     * Thrown when a rule holds something the compact form cannot represent.
+     */
+    private static final class Unsupported extends RuntimeException {
+        private static final Unsupported INSTANCE = new Unsupported();
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+}
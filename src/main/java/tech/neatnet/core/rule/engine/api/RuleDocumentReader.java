@@ -0,0 +1,117 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import tech.neatnet.core.rule.engine.domain.Condition;
+import tech.neatnet.core.rule.engine.domain.Rule;
+import tech.neatnet.core.rule.engine.domain.RuleType;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps stored rule documents to {@link Rule}s without going through Spring Data's reflective mapping.
+ * <p>
+ * Reads the fields evaluation needs and nothing else; {@link #PROJECTION} keeps the others
+ * ({@code description}, {@code modifiedBy}) from being sent by the server at all, so rules loaded
+ * this way have them unset. Nested documents in results and {@code inValues} become maps, as with
+ * Spring Data.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class RuleDocumentReader {
+
+    /**
+     * Fields to load.
+     */
+    static final Document PROJECTION = new Document()
+            .append("_id", 1)
+            .append("dateCreated", 1)
+            .append("dateModified", 1)
+            .append("version", 1)
+            .append("active", 1)
+            .append("name", 1)
+            .append("baseRuleCategory", 1)
+            .append("baseRuleSubCategory", 1)
+            .append("ruleType", 1)
+            .append("conditions", 1)
+            .append("results", 1);
+
+    static Rule read(Document document) {
+        Object id = document.get("_id");
+        String category = document.getString("baseRuleCategory");
+        String subCategory = document.getString("baseRuleSubCategory");
+        String ruleType = document.getString("ruleType");
+        Number version = (Number) document.get("version");
+        Date dateCreated = document.getDate("dateCreated");
+        Date dateModified = document.getDate("dateModified");
+        return Rule.builder()
+                .id(id instanceof ObjectId objectId ? objectId.toHexString() : id != null ? id.toString() : null)
+                .dateCreated(dateCreated != null ? dateCreated.toInstant() : null)
+                .dateModified(dateModified != null ? dateModified.toInstant() : null)
+                .version(version != null ? version.intValue() : 0)
+                .active(Boolean.TRUE.equals(document.getBoolean("active")))
+                .name(document.getString("name"))
+                .baseRuleCategory(category != null ? CategoryRegistry.resolve(category, BaseRuleCategory.class) : null)
+                .baseRuleSubCategory(subCategory != null ? CategoryRegistry.resolve(subCategory, BaseRuleSubCategory.class) : null)
+                .ruleType(ruleType != null ? RuleType.valueOf(ruleType) : null)
+                .conditions(readConditions(document.getList("conditions", Document.class)))
+                .results(readMap(document.get("results", Document.class)))
+                .build();
+    }
+
+    private static List<Condition> readConditions(List<Document> documents) {
+        if (documents == null) {
+            return null;
+        }
+        List<Condition> conditions = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            conditions.add(readCondition(document));
+        }
+        return conditions;
+    }
+
+    private static Condition readCondition(Document document) {
+        if (document == null) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> inValues = (List<Object>) readValue(document.get("inValues"));
+        return Condition.builder()
+                .condition(document.getString("condition"))
+                .action(document.getString("action"))
+                .inValues(inValues)
+                .trueBranch(readCondition(document.get("trueBranch", Document.class)))
+                .falseBranch(readCondition(document.get("falseBranch", Document.class)))
+                .build();
+    }
+
+    private static Map<String, Object> readMap(Document document) {
+        if (document == null) {
+            return null;
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        document.forEach((key, value) -> map.put(key, readValue(value)));
+        return map;
+    }
+
+    private static Object readValue(Object value) {
+        if (value instanceof Document document) {
+            return readMap(document);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> values = new ArrayList<>(list.size());
+            list.forEach(element -> values.add(readValue(element)));
+            return values;
+        }
+        if (value instanceof Decimal128 decimal) {
+            return decimal.bigDecimalValue();
+        }
+        return value;
+    }
+}
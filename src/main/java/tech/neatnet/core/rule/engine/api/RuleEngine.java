@@ -1,91 +1,922 @@
 package tech.neatnet.core.rule.engine.api;
 
 import lombok.extern.slf4j.Slf4j;
+import org.mvel2.integration.VariableResolverFactory;
 import org.springframework.stereotype.Service;
 import tech.neatnet.core.rule.engine.domain.*;
 
+import java.io.Serializable;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static tech.neatnet.core.rule.engine.api.CoreRuleEngineHelper.mergeInputVariables;
+import static tech.neatnet.core.rule.engine.api.CoreRuleEngineHelper.conditionVariables;
 
 @Slf4j
 @Service
-class RuleEngine {
+class RuleEngine implements AutoCloseable {
     private final CoreRuleEngine coreRuleEngine;
     private final RuleCache ruleCache;
+    private final RuleEngineProperties properties;
+    private final RuleSnapshotFile snapshotFile;
+    private final RuleSetStore ruleSets;
+    private final RuleEngineMetrics metrics;
+    private final ResultCache resultCache;
+    private volatile ForkJoinPool pool;
 
-    public RuleEngine(CoreRuleEngine coreRuleEngine, RuleCache ruleCache) {
+    public RuleEngine(CoreRuleEngine coreRuleEngine, RuleCache ruleCache, RuleEngineProperties properties) {
+        this(coreRuleEngine, ruleCache, properties, RuleEngineMetrics.NOOP);
+    }
+
+    RuleEngine(CoreRuleEngine coreRuleEngine, RuleCache ruleCache, RuleEngineProperties properties, RuleEngineMetrics metrics) {
         this.coreRuleEngine = coreRuleEngine;
+        this.metrics = metrics;
         this.ruleCache = ruleCache;
+        this.properties = properties;
+        String snapshotPath = properties.getSnapshot().getPath();
+        this.snapshotFile = snapshotPath != null && !snapshotPath.isBlank() ? new RuleSnapshotFile(Path.of(snapshotPath)) : null;
+        this.ruleSets = new RuleSetStore(coreRuleEngine, ruleCache, properties, snapshotFile);
+        this.resultCache = properties.getResultCache().isEnabled() ? new ResultCache(properties.getResultCache()) : null;
+        if (resultCache != null) {
+            metrics.bindResultCache(resultCache::stats);
+        }
+        if (ruleSets.restore() && properties.getSnapshot().isVerifyOnStartup()) {
+            reloadRules().whenComplete((version, error) -> {
+                if (error != null) {
+                    log.warn("Could not verify restored rules against the rule store", error);
+                }
+            });
+        }
         log.debug("RuleEngine initialized");
     }
 
     public List<RuleExecutionResult> evaluateMatrices(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy) {
         long startTime = System.nanoTime();
 
-        log.debug("Processing with input variables: {}, ruleCategory: {}, subCategory: {}, hitPolicy: {}", inputVariables, ruleCategory, subCategory, hitPolicy);
+        if (log.isDebugEnabled()) {
+            log.debug("Processing with input variables: {}, ruleCategory: {}, subCategory: {}, hitPolicy: {}", inputVariables, ruleCategory, subCategory, hitPolicy);
+        }
+        RuleSet ruleSet = ruleSets.get(ruleCategory, subCategory);
+        ResultCache.Key key = isCached(ruleCategory, subCategory)
+                ? resultCache.key("table", ruleCategory, subCategory, ruleSet, hitPolicy, ruleSet.layout(), inputVariables) : null;
+        if (key != null) {
+            @SuppressWarnings("unchecked")
+            List<RuleExecutionResult> cached = (List<RuleExecutionResult>) resultCache.get(key);
+            if (cached != null) {
+                log.debug("Serving cached results for ruleCategory: {}, subCategory: {}", ruleCategory, subCategory);
+                long endTime = System.nanoTime();
+                metrics.evaluated("table", ruleCategory, subCategory, hitPolicy, endTime - startTime, 0, matchedCount(cached));
+                return copyResults(cached, Metadata.builder()
+                        .inputVariables(Collections.unmodifiableMap(inputVariables))
+                        .startTimeNanos(startTime)
+                        .endTimeNanos(endTime)
+                        .build());
+            }
+        }
+        EvaluationContext context = EvaluationContext.acquire(inputVariables, ruleSet.layout());
+        List<RuleExecutionResult> results;
+        try {
+            results = evaluateRuleSet(ruleSet, context.variables(), hitPolicy, null);
+        } finally {
+            context.release();
+        }
+
+        log.debug("Finished evaluating rules. Results: {}", results);
+
+        long endTime = System.nanoTime();
+        long duration = endTime - startTime;
+        log.debug("Evaluation of rules took {} nanoseconds", duration);
+        metrics.evaluated("table", ruleCategory, subCategory, hitPolicy, duration, results.size(), matchedCount(results));
+        if (key != null) {
+            resultCache.put(key, copyResults(results, null), duration);
+        }
+
+        return results;
+    }
+
+    /**
+     * Whether evaluations of the category go through the result cache.
+     */
+    private boolean isCached(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        return resultCache != null && properties.getResultCache().isEnabledFor(ruleCategory, subCategory);
+    }
+
+    /**
+     * Copies results for the result cache, or from it for a caller, so neither sees the other's changes.
+     *
+     * @param metadata metadata to attach to every copy, {@code null} when storing
+     */
+    private static List<RuleExecutionResult> copyResults(List<RuleExecutionResult> results, Metadata metadata) {
+        List<RuleExecutionResult> copies = new ArrayList<>(results.size());
+        for (RuleExecutionResult result : results) {
+            copies.add(RuleExecutionResult.builder()
+                    .metadata(metadata)
+                    .rule(result.getRule())
+                    .ruleSetVersion(result.getRuleSetVersion())
+                    .ruleCriteriaMet(result.isRuleCriteriaMet())
+                    .results(result.getResults())
+                    .build());
+        }
+        return copies;
+    }
+
+    /**
+     * {@link #copyResults} for decision tree results, whose result maps and paths are mutable.
+     */
+    private static List<TreeExecutionResult> copyTreeResults(List<TreeExecutionResult> results) {
+        List<TreeExecutionResult> copies = new ArrayList<>(results.size());
+        for (TreeExecutionResult result : results) {
+            copies.add(TreeExecutionResult.builder()
+                    .rule(result.getRule())
+                    .ruleSetVersion(result.getRuleSetVersion())
+                    .condition(result.getCondition())
+                    .ruleCriteriaMet(result.isRuleCriteriaMet())
+                    .results(result.getResults() != null ? new HashMap<>(result.getResults()) : null)
+                    .executedNodes(result.getExecutedNodes() != null ? new ArrayList<>(result.getExecutedNodes()) : null)
+                    .branchPath(result.getBranchPath() != null ? (BitSet) result.getBranchPath().clone() : null)
+                    .pathLength(result.getPathLength())
+                    .build());
+        }
+        return copies;
+    }
+
+    /**
+     * Evaluates the rules without building a result per rule.
+     * <p>
+     * Only the indices of the matched rules are kept; {@link RuleMatches#results()} builds results for
+     * those on demand. Each match is also passed to {@code sink} as soon as it is found, so a caller
+     * that consumes matches as they come never needs a list at all.
+     *
+     * @param sink receives every match in rule order, may be {@code null}
+     */
+    public RuleMatches evaluateMatches(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory,
+                                       BaseRuleSubCategory subCategory, HitPolicy hitPolicy, ResultSink sink) {
+        long startTime = System.nanoTime();
+        if (log.isDebugEnabled()) {
+            log.debug("Processing matches with input variables: {}, ruleCategory: {}, subCategory: {}, hitPolicy: {}", inputVariables, ruleCategory, subCategory, hitPolicy);
+        }
+
+        RuleSet ruleSet = ruleSets.get(ruleCategory, subCategory);
+        return evaluateMatches(ruleSet, EvaluationContext.acquire(inputVariables, ruleSet.layout()), ruleCategory,
+                subCategory, hitPolicy, sink, startTime);
+    }
+
+    /**
+     * Evaluates the rules and passes each match to {@code sink}, keeping nothing.
+     * <p>
+     * This is the steady-state path: once the rule set is loaded and the thread has evaluated before,
+     * it allocates nothing beyond what the condition expressions themselves allocate. Variable
+     * resolution and index lookups reuse the calling thread's scratch state, and the clock is read
+     * only when metrics are recorded.
+     *
+     * @param sink receives every match in rule order
+     * @return the number of matched rules
+     */
+    public int evaluateInto(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory,
+                            BaseRuleSubCategory subCategory, HitPolicy hitPolicy, ResultSink sink) {
+        boolean timed = metrics.timed();
+        long startTime = timed ? System.nanoTime() : 0;
+        RuleSet ruleSet = ruleSets.get(ruleCategory, subCategory);
+        return evaluateInto(ruleSet, EvaluationContext.acquire(inputVariables, ruleSet.layout()), ruleCategory,
+                subCategory, hitPolicy, sink, timed, startTime);
+    }
+
+    /**
+     * {@link #evaluateMatches} for a slot-indexed input.
+     */
+    public RuleMatches evaluateMatches(RuleInput input, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory,
+                                       HitPolicy hitPolicy, ResultSink sink) {
+        long startTime = System.nanoTime();
+        RuleSet ruleSet = ruleSets.get(ruleCategory, subCategory);
+        return evaluateMatches(ruleSet, EvaluationContext.acquire(input, ruleSet.layout()), ruleCategory,
+                subCategory, hitPolicy, sink, startTime);
+    }
+
+    /**
+     * {@link #evaluateInto} for a slot-indexed input.
+     */
+    public int evaluateInto(RuleInput input, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory,
+                            HitPolicy hitPolicy, ResultSink sink) {
+        boolean timed = metrics.timed();
+        long startTime = timed ? System.nanoTime() : 0;
+        RuleSet ruleSet = ruleSets.get(ruleCategory, subCategory);
+        return evaluateInto(ruleSet, EvaluationContext.acquire(input, ruleSet.layout()), ruleCategory,
+                subCategory, hitPolicy, sink, timed, startTime);
+    }
+
+    /**
+     * A new input laid out for the rules of the category, loading them if needed.
+     */
+    public RuleInput newInput(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        return new RuleInput(ruleSets.get(ruleCategory, subCategory).layout());
+    }
+
+    /**
+     * Matches the rule set against the acquired context's input and releases the context.
+     */
+    private RuleMatches evaluateMatches(RuleSet ruleSet, EvaluationContext context, BaseRuleCategory ruleCategory,
+                                        BaseRuleSubCategory subCategory, HitPolicy hitPolicy, ResultSink sink,
+                                        long startTime) {
+        try {
+            BitSet matchedRules = new BitSet(ruleSet.rules().size());
+            int matches = match(ruleSet, context, hitPolicy, matchedRules, sink);
+            long endTime = System.nanoTime();
+            metrics.evaluated("table", ruleCategory, subCategory, hitPolicy, endTime - startTime, context.evaluated, matches);
+            return new RuleMatches(ruleSet.rules(), ruleSet.version(), matchedRules, context.evaluated,
+                    context.variables().input(), startTime, endTime);
+        } finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Passes the matches of the rule set against the acquired context's input to the sink and releases the context.
+     */
+    private int evaluateInto(RuleSet ruleSet, EvaluationContext context, BaseRuleCategory ruleCategory,
+                             BaseRuleSubCategory subCategory, HitPolicy hitPolicy, ResultSink sink, boolean timed,
+                             long startTime) {
+        try {
+            int matches = match(ruleSet, context, hitPolicy, null, sink);
+            if (timed) {
+                metrics.evaluated("table", ruleCategory, subCategory, hitPolicy, System.nanoTime() - startTime,
+                        context.evaluated, matches);
+            }
+            return matches;
+        } finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Runs the rules of a rule set against the context's input in rule order.
+     *
+     * @param matchedRules receives the indices of matched rules, or {@code null}
+     * @param sink         receives every match, or {@code null}
+     * @return the number of matched rules; the number evaluated is left in {@link EvaluationContext#evaluated}
+     */
+    private int match(RuleSet ruleSet, EvaluationContext context, HitPolicy hitPolicy, BitSet matchedRules, ResultSink sink) {
+        CompiledDecisionTable table = ruleSet.compiledTable();
+        long[] matched = table != null ? context.match(table, hitPolicy == HitPolicy.FIRST) : null;
+        EqualityIndex.Candidates candidates = matched == null ? context.candidates(ruleSet) : null;
+
+        int[] ruleOrder = hitPolicy == HitPolicy.FIRST && matched == null ? ruleSet.ruleOrder() : null;
+
+        List<Rule> rules = ruleSet.rules();
+        InputVariableResolverFactory variables = context.variables();
+        int matches = 0;
+        int evaluated = 0;
+        int storedUntil = 0;
+        while (evaluated < rules.size()) {
+            int p = evaluated++;
+            int i = ruleOrder != null && p >= storedUntil ? ruleOrder[p] : p;
+            boolean ruleMatched;
+            if (ruleOrder == null) {
+                ruleMatched = matches(ruleSet, variables, matched, candidates, i);
+            } else {
+                try {
+                    ruleMatched = matchesInAnyOrder(ruleSet, variables, candidates, i);
+                } catch (RuntimeException e) {
+                    int run = failedRun(ruleSet, p, storedUntil, e);
+                    evaluated = ruleSet.exclusiveGroups().from(run);
+                    storedUntil = ruleSet.exclusiveGroups().to(run);
+                    continue;
+                }
+            }
+            if (ruleMatched) {
+                if (hitPolicy == HitPolicy.FIRST && matched == null) {
+                    countHit(ruleSet, i);
+                }
+                matches++;
+                if (matchedRules != null) {
+                    matchedRules.set(i);
+                }
+                if (sink != null) {
+                    sink.onMatch(i, rules.get(i));
+                }
+                if (hitPolicy == HitPolicy.FIRST) {
+                    log.debug("Hit policy is FIRST. Stopping evaluation of rules");
+                    break;
+                }
+            }
+        }
+        context.evaluated = evaluated;
+        return matches;
+    }
+
+    /**
+     * Evaluates many inputs against one rule set.
+     * <p>
+     * The rule set is resolved once. The inputs are split into chunks of at least
+     * {@code batch.min-chunk-size} that are evaluated on up to {@code batch.parallelism} threads, each
+     * reusing one variable resolver for all of its inputs. Rules are not timed individually: every result
+     * for an input shares one {@link Metadata} carrying the start and end of the whole batch.
+     *
+     * @return one result list per input, in input order
+     */
+    public List<List<RuleExecutionResult>> evaluateMatricesBatch(List<Map<String, Object>> inputs, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy) {
+        long startTime = System.nanoTime();
+        log.debug("Processing batch of {} inputs, ruleCategory: {}, subCategory: {}, hitPolicy: {}", inputs.size(), ruleCategory, subCategory, hitPolicy);
+
+        RuleSet ruleSet = ruleSets.get(ruleCategory, subCategory);
+        @SuppressWarnings("unchecked")
+        List<RuleExecutionResult>[] results = new List[inputs.size()];
+        Metadata[] metadata = new Metadata[inputs.size()];
+
+        RuleEngineProperties.BatchProperties batch = properties.getBatch();
+        int chunks = Math.min(Math.max(1, batch.getParallelism()),
+                (inputs.size() + batch.getMinChunkSize() - 1) / Math.max(1, batch.getMinChunkSize()));
+        if (chunks <= 1) {
+            evaluateChunk(ruleSet, inputs, 0, inputs.size(), hitPolicy, startTime, results, metadata);
+        } else {
+            int chunkSize = (inputs.size() + chunks - 1) / chunks;
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks - 1);
+            for (int from = chunkSize; from < inputs.size(); from += chunkSize) {
+                int chunkFrom = from;
+                int chunkTo = Math.min(from + chunkSize, inputs.size());
+                tasks.add(pool().submit(() -> evaluateChunk(ruleSet, inputs, chunkFrom, chunkTo, hitPolicy, startTime, results, metadata)));
+            }
+            evaluateChunk(ruleSet, inputs, 0, chunkSize, hitPolicy, startTime, results, metadata);
+            tasks.forEach(ForkJoinTask::join);
+        }
+
+        long endTime = System.nanoTime();
+        for (Metadata m : metadata) {
+            m.setEndTimeNanos(endTime);
+        }
+        log.debug("Evaluation of batch of {} inputs took {} nanoseconds", inputs.size(), endTime - startTime);
+        int evaluated = 0;
+        int matchedCount = 0;
+        for (List<RuleExecutionResult> inputResults : results) {
+            evaluated += inputResults.size();
+            matchedCount += matchedCount(inputResults);
+        }
+        metrics.batchEvaluated(ruleCategory, subCategory, hitPolicy, inputs.size(), endTime - startTime, evaluated, matchedCount);
+        return Arrays.asList(results);
+    }
+
+    private void evaluateChunk(RuleSet ruleSet, List<Map<String, Object>> inputs, int from, int to, HitPolicy hitPolicy,
+                               long batchStartTime, List<RuleExecutionResult>[] results, Metadata[] metadata) {
+        InputVariableResolverFactory variables = null;
+        for (int i = from; i < to; i++) {
+            variables = variables == null
+                    ? new InputVariableResolverFactory(inputs.get(i), ruleSet.layout())
+                    : variables.reset(inputs.get(i), ruleSet.layout());
+            metadata[i] = Metadata.builder()
+                    .inputVariables(variables.input())
+                    .startTimeNanos(batchStartTime)
+                    .build();
+            results[i] = evaluateRuleSet(ruleSet, variables, hitPolicy, metadata[i]);
+        }
+    }
+
+    /**
+     * Evaluates one input against a rule set.
+     *
+     * @param sharedMetadata metadata to attach to every result, or {@code null} to time each rule individually
+     */
+    private List<RuleExecutionResult> evaluateRuleSet(RuleSet ruleSet, InputVariableResolverFactory variables,
+                                                      HitPolicy hitPolicy, Metadata sharedMetadata) {
+        CompiledDecisionTable table = ruleSet.compiledTable();
+        long[] matched = table != null ? table.match(variables.values(), hitPolicy == HitPolicy.FIRST) : null;
+
+        int threshold = properties.getParallel().getThreshold();
+        if (sharedMetadata == null && threshold > 0 && ruleSet.rules().size() >= threshold) {
+            return evaluateRuleSetParallel(ruleSet, variables.input(), matched, hitPolicy);
+        }
         List<RuleExecutionResult> results = new ArrayList<>();
+        evaluateRange(ruleSet, variables, matched, 0, ruleSet.rules().size(), hitPolicy, sharedMetadata, results, null);
+        return results;
+    }
+
+    /**
+     * Splits the rules into chunks of {@code parallel.chunk-size} and evaluates them on the pool.
+     * <p>
+     * {@code COLLECT} concatenates the chunk results in rule order. {@code FIRST} evaluates all chunks
+     * speculatively; every chunk stops as soon as a rule with a lower index has matched, and the merge
+     * stops at the lowest matching rule. An exception is only rethrown if the sequential path would have
+     * reached the failing rule, so the outcome is the same as evaluating the rules one after another.
+     */
+    private List<RuleExecutionResult> evaluateRuleSetParallel(RuleSet ruleSet, Map<String, Object> inputVariables,
+                                                              long[] matched, HitPolicy hitPolicy) {
+        int size = ruleSet.rules().size();
+        int chunkSize = Math.max(1, properties.getParallel().getChunkSize());
+        AtomicInteger firstMatch = new AtomicInteger(Integer.MAX_VALUE);
+        List<RuleChunk> chunks = new ArrayList<>();
+        for (int from = 0; from < size; from += chunkSize) {
+            chunks.add(new RuleChunk(from, Math.min(from + chunkSize, size)));
+        }
 
-        Collection<Rule> filteredRules = ruleCache.findRules(ruleCategory, subCategory);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(chunks.size());
+        for (int k = 1; k < chunks.size(); k++) {
+            RuleChunk chunk = chunks.get(k);
+            tasks.add(pool().submit(() -> chunk.evaluate(ruleSet, inputVariables, matched, hitPolicy, firstMatch)));
+        }
+        chunks.get(0).evaluate(ruleSet, inputVariables, matched, hitPolicy, firstMatch);
+
+        List<RuleExecutionResult> results = new ArrayList<>();
+        for (int k = 0; k < chunks.size(); k++) {
+            if (k > 0) {
+                tasks.get(k - 1).join();
+            }
+            RuleChunk chunk = chunks.get(k);
+            results.addAll(chunk.results);
+            if (chunk.error != null || (hitPolicy == HitPolicy.FIRST && chunk.matched)) {
+                // chunks after this one can no longer contribute
+                for (int rest = k; rest < tasks.size(); rest++) {
+                    tasks.get(rest).cancel(false);
+                }
+                if (chunk.error != null) {
+                    throw chunk.error;
+                }
+                break;
+            }
+        }
+        return results;
+    }
 
-        for(Rule rule : filteredRules) {
-            RuleExecutionResult ruleExecutionResult = evaluate(inputVariables, rule);
+    /**
+     * Evaluates rules {@code [from, to)} of a rule set into {@code results}. Rules are always evaluated in
+     * stored order, so the results do not depend on {@link RuleSet#ruleOrder()} or on parallel evaluation.
+     *
+     * @param firstMatch lowest matching rule index found by any chunk, or {@code null} when evaluating sequentially
+     * @return {@code true} if evaluation stopped on a match under {@code FIRST}
+     */
+    private boolean evaluateRange(RuleSet ruleSet, InputVariableResolverFactory variables, long[] matched, int from, int to,
+                                  HitPolicy hitPolicy, Metadata sharedMetadata, List<RuleExecutionResult> results,
+                                  AtomicInteger firstMatch) {
+        List<Rule> rules = ruleSet.rules();
+        EqualityIndex.Candidates candidates = matched == null ? ruleSet.rangeIndex().lookup(variables.values(),
+                ruleSet.equalityIndex().lookup(variables.values()), null) : null;
+        for (int i = from; i < to; i++) {
+            if (firstMatch != null && i > firstMatch.get()) {
+                return false;
+            }
+            long ruleStartTime = sharedMetadata == null ? System.nanoTime() : 0;
+            boolean ruleMatched = matches(ruleSet, variables, matched, candidates, i);
+            long ruleEndTime = sharedMetadata == null ? System.nanoTime() : 0;
+            RuleExecutionResult ruleExecutionResult =
+                    toResult(variables, rules.get(i), ruleSet.version(), ruleMatched, ruleStartTime, ruleEndTime, sharedMetadata);
             results.add(ruleExecutionResult);
             if (hitPolicy == HitPolicy.FIRST && ruleExecutionResult.isRuleCriteriaMet()) {
                 log.debug("Hit policy is FIRST. Stopping evaluation of rules");
-                break;
+                if (matched == null && firstMatch == null) {
+                    countHit(ruleSet, i);
+                }
+                if (firstMatch != null) {
+                    firstMatch.accumulateAndGet(i, Math::min);
+                }
+                return true;
             }
         }
+        return false;
+    }
 
-        log.debug("Finished evaluating rules. Results: {}", results);
+    /**
+     * A range of rules evaluated by one task of {@link #evaluateRuleSetParallel}.
+     */
+    private final class RuleChunk {
+        private final int from;
+        private final int to;
+        private final List<RuleExecutionResult> results = new ArrayList<>();
+        private boolean matched;
+        private RuntimeException error;
 
-        long endTime = System.nanoTime();
-        long duration = endTime - startTime;
-        log.debug("Evaluation of rules took {} nanoseconds", duration);
+        RuleChunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
 
-        return results;
+        void evaluate(RuleSet ruleSet, Map<String, Object> inputVariables, long[] compiledMatches, HitPolicy hitPolicy,
+                      AtomicInteger firstMatch) {
+            if (from > firstMatch.get()) {
+                return;
+            }
+            try {
+                matched = evaluateRange(ruleSet, new InputVariableResolverFactory(inputVariables, ruleSet.layout()), compiledMatches,
+                        from, to, hitPolicy, null, results, firstMatch);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * Decides whether rule {@code i} matches. Rules ruled out by the compiled table or the equality and
+     * range indexes are not run through MVEL; {@code candidates} must be asked about rules in ascending order.
+     *
+     * @param matched    bits from the compiled table, or {@code null} if it was not used
+     * @param candidates index lookup, or {@code null} if every rule has to be evaluated
+     */
+    private boolean matches(RuleSet ruleSet, InputVariableResolverFactory variables, long[] matched,
+                            EqualityIndex.Candidates candidates, int i) {
+        if (matched != null) {
+            return CompiledDecisionTable.isSet(matched, i)
+                    && residualConditionsMet(ruleSet, i, variables, ruleSet.compiledTable().residualConditions(i));
+        }
+        if (candidates == null) {
+            return conditionsMet(ruleSet, i, variables, -1, 0);
+        }
+        if (candidates.contains(i)) {
+            return conditionsMet(ruleSet, i, variables,
+                    candidates.isKeyed(i) ? ruleSet.equalityIndex().coveredCondition(i) : -1, candidates.resolved());
+        }
+        return false;
     }
 
-    private RuleExecutionResult evaluate(Map<String, Object> inputVariables, Rule rule) {
-        long singleRuleStartTime = System.nanoTime();
-        boolean allConditionsMet = rule.getConditions().stream()
-                .allMatch(condition -> coreRuleEngine.evaluateCondition(condition.getCondition(), mergeInputVariables(inputVariables, condition.getInValues())));
+    /**
+     * {@link #matches} for a rule set evaluated in {@link RuleSet#ruleOrder()}, which asks
+     * {@code candidates} about rules out of ascending order.
+     */
+    private boolean matchesInAnyOrder(RuleSet ruleSet, InputVariableResolverFactory variables,
+                                      EqualityIndex.Candidates candidates, int i) {
+        if (candidates == null) {
+            return conditionsMet(ruleSet, i, variables, -1, 0);
+        }
+        if (candidates.probe(i)) {
+            return conditionsMet(ruleSet, i, variables,
+                    candidates.probeKeyed(i) ? ruleSet.equalityIndex().coveredCondition(i) : -1, candidates.resolved());
+        }
+        return false;
+    }
+
+    /**
+     * The exclusive run to evaluate again in stored order after the rule at position {@code p} of
+     * {@link RuleSet#ruleOrder()} failed. Rules of a run are evaluated out of order, so the stored
+     * order might have stopped at a match before reaching the failing one.
+     *
+     * @throws RuntimeException {@code e}, if the rule is in no run or its run is already evaluated in stored order
+     */
+    private static int failedRun(RuleSet ruleSet, int p, int storedUntil, RuntimeException e) {
+        int run = ruleSet.exclusiveGroups().groupOf(p);
+        if (run < 0 || p < storedUntil) {
+            throw e;
+        }
+        return run;
+    }
+
+    /**
+     * Samples a first match of a rule in an exclusive run, for ordering the run by hits.
+     */
+    private static void countHit(RuleSet ruleSet, int i) {
+        ConditionStats stats = ruleSet.conditionStats();
+        if (stats != null && ruleSet.exclusiveGroups().groupOf(i) >= 0) {
+            stats.hit(i);
+        }
+    }
+
+    /**
+     * Evaluates the conditions of a rule, skipping the condition at {@code skipCondition} which the
+     * equality index already proved true and the conditions the range index decided with the variables
+     * in {@code resolvedRanges}.
+     * <p>
+     * Conditions run in the rule set's {@link RuleSet#conditionOrder order}. If a reordered condition
+     * fails, for instance because it was moved ahead of the condition that guarded it, the rule is
+     * evaluated again in stored order, so reordering never changes an outcome.
+     */
+    private boolean conditionsMet(RuleSet ruleSet, int i, InputVariableResolverFactory variables, int skipCondition,
+                                  int resolvedRanges) {
+        int[] order = ruleSet.conditionOrder(i);
+        ConditionStats stats = ruleSet.conditionStats();
+        boolean allConditionsMet;
+        if (order == null) {
+            allConditionsMet = conditionsMet(ruleSet, i, variables, skipCondition, resolvedRanges, null, stats);
+        } else {
+            try {
+                allConditionsMet = conditionsMet(ruleSet, i, variables, skipCondition, resolvedRanges, order, stats);
+            } catch (RuntimeException e) {
+                log.debug("Condition of rule {} failed out of stored order, evaluating in stored order", i, e);
+                allConditionsMet = conditionsMet(ruleSet, i, variables, skipCondition, resolvedRanges, null, null);
+            }
+        }
         log.debug("All conditions met: {}", allConditionsMet);
-        long singleRuleEndTime = System.nanoTime();
+        return allConditionsMet;
+    }
 
+    /**
+     * @param order condition indices in evaluation order, or {@code null} for the stored order
+     * @param stats where to record condition costs if this evaluation is sampled, or {@code null}
+     */
+    private boolean conditionsMet(RuleSet ruleSet, int i, InputVariableResolverFactory variables, int skipCondition,
+                                  int resolvedRanges, int[] order, ConditionStats stats) {
+        int conditions = ruleSet.rules().get(i).getConditions().size();
+        boolean sampled = stats != null && stats.sample();
+        boolean allConditionsMet = true;
+        for (int k = 0; k < conditions && allConditionsMet; k++) {
+            int c = order != null ? order[k] : k;
+            if (c == skipCondition || ruleSet.rangeIndex().covers(i, c, resolvedRanges)) {
+                continue;
+            }
+            if (sampled) {
+                long start = System.nanoTime();
+                allConditionsMet = conditionMet(ruleSet, i, c, variables);
+                stats.record(i, c, allConditionsMet, System.nanoTime() - start);
+            } else {
+                allConditionsMet = conditionMet(ruleSet, i, c, variables);
+            }
+        }
+        if (sampled && stats.sampled()) {
+            pool().execute(() -> ruleSets.reorder(ruleSet));
+        }
+        return allConditionsMet;
+    }
+
+    /**
+     * Evaluates the conditions of a rule that the compiled decision table left to MVEL.
+     */
+    private boolean residualConditionsMet(RuleSet ruleSet, int i, InputVariableResolverFactory variables, int[] residualConditions) {
+        boolean allConditionsMet = true;
+        for (int c = 0; c < residualConditions.length && allConditionsMet; c++) {
+            allConditionsMet = conditionMet(ruleSet, i, residualConditions[c], variables);
+        }
+        return allConditionsMet;
+    }
+
+    /**
+     * Evaluates condition {@code c} of rule {@code i} with the expression compiled into the rule set,
+     * or reuses the outcome of the same condition in an earlier rule for this input.
+     */
+    private boolean conditionMet(RuleSet ruleSet, int i, int c, InputVariableResolverFactory variables) {
+        int predicate = ruleSet.predicate(i, c);
+        if (predicate < 0) {
+            return evaluateCondition(ruleSet, i, c, variables);
+        }
+        if (variables.isPredicateKnown(predicate)) {
+            return variables.predicateValue(predicate);
+        }
+        boolean met = evaluateCondition(ruleSet, i, c, variables);
+        variables.predicate(predicate, met);
+        return met;
+    }
+
+    private boolean evaluateCondition(RuleSet ruleSet, int i, int c, InputVariableResolverFactory variables) {
+        Condition condition = ruleSet.rules().get(i).getConditions().get(c);
+        VariableResolverFactory conditionVariables = conditionVariables(variables, condition.getInValues());
+        Serializable compiled = ruleSet.compiledCondition(i, c);
+        return compiled != null
+                ? coreRuleEngine.evaluateCompiledCondition(compiled, conditionVariables)
+                : coreRuleEngine.evaluateCondition(condition.getCondition(), conditionVariables);
+    }
+
+    private RuleExecutionResult toResult(InputVariableResolverFactory variables, Rule rule, long version, boolean allConditionsMet,
+                                         long startTimeNanos, long endTimeNanos, Metadata sharedMetadata) {
         Map<String, Object> ruleResults =
                 allConditionsMet ? rule.getResults() : Collections.emptyMap();
 
         log.debug("Finished evaluating rule. Results: {}", ruleResults);
         return RuleExecutionResult.builder()
-                .metadata(Metadata.builder()
-                        .inputVariables(new HashMap<>(inputVariables))
-                        .startTimeNanos(singleRuleStartTime)
-                        .endTimeNanos(singleRuleEndTime)
+                .metadata(sharedMetadata != null ? sharedMetadata : Metadata.builder()
+                        .inputVariables(variables.input())
+                        .startTimeNanos(startTimeNanos)
+                        .endTimeNanos(endTimeNanos)
                         .build())
                 .rule(rule)
+                .ruleSetVersion(version)
                 .ruleCriteriaMet(allConditionsMet)
                 .results(ruleResults)
                 .build();
     }
 
+    /**
+     * Whether rules for the category have been loaded by a previous evaluation.
+     */
+    boolean isLoaded(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        return ruleSets.contains(ruleCategory, subCategory);
+    }
+
+    /**
+     * Loads and prepares the rules for a category without evaluating anything.
+     */
+    void load(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        ruleSets.get(ruleCategory, subCategory);
+    }
+
+    /**
+     * Reloads the rules of every loaded category off the calling thread. Evaluations keep using the
+     * current rules until the new version is published in one swap.
+     *
+     * @return completes with the new rule set version
+     */
+    public CompletableFuture<Long> reloadRules() {
+        return CompletableFuture.supplyAsync(ruleSets::reload, pool());
+    }
+
+    /**
+     * Applies a change to a single stored rule to the loaded categories, see {@link RuleSetStore#apply}.
+     *
+     * @param rule the rule as now stored, or {@code null} if it was deleted
+     */
+    boolean applyRuleChange(String ruleId, Rule rule) {
+        return ruleSets.apply(ruleId, rule);
+    }
+
+    /**
+     * The input schema configured for the category, or {@code null} if it has none.
+     */
+    public InputSchema inputSchema(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        return ruleSets.schema(ruleCategory, subCategory);
+    }
+
+    /**
+     * The order in which the conditions of each rule of the category are evaluated, loading the rules
+     * if needed. Rules without an id are left out.
+     *
+     * @return condition indices in evaluation order by rule id, in rule order
+     */
+    public Map<String, List<Integer>> conditionOrder(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        RuleSet ruleSet = ruleSets.get(ruleCategory, subCategory);
+        Map<String, List<Integer>> orders = new LinkedHashMap<>();
+        for (int i = 0; i < ruleSet.rules().size(); i++) {
+            Rule rule = ruleSet.rules().get(i);
+            if (rule.getId() != null) {
+                int[] order = ruleSet.conditionOrder(i);
+                List<Integer> indices = new ArrayList<>(rule.getConditions().size());
+                for (int k = 0; k < rule.getConditions().size(); k++) {
+                    indices.add(order != null ? order[k] : k);
+                }
+                orders.put(rule.getId(), Collections.unmodifiableList(indices));
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * The runs of consecutive rules of the category that are proven mutually exclusive, loading the
+     * rules if needed. With {@code ordering.enabled}, {@link #evaluateMatches} and {@link #evaluateInto}
+     * evaluate the rules of each run by descending hit frequency under {@code FIRST}.
+     */
+    public List<ExclusiveRuleGroup> exclusiveGroups(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        RuleSet ruleSet = ruleSets.get(ruleCategory, subCategory);
+        ExclusiveGroups groups = ruleSet.exclusiveGroups();
+        int[] ruleOrder = ruleSet.ruleOrder();
+        List<ExclusiveRuleGroup> report = new ArrayList<>(groups.size());
+        for (int g = 0; g < groups.size(); g++) {
+            List<String> ruleIds = new ArrayList<>();
+            List<String> evaluationOrder = new ArrayList<>();
+            for (int p = groups.from(g); p < groups.to(g); p++) {
+                ruleIds.add(ruleSet.rules().get(p).getId());
+                evaluationOrder.add(ruleSet.rules().get(ruleOrder != null ? ruleOrder[p] : p).getId());
+            }
+            report.add(ExclusiveRuleGroup.builder()
+                    .fromIndex(groups.from(g))
+                    .toIndex(groups.to(g))
+                    .ruleIds(ruleIds)
+                    .variables(groups.variables(g))
+                    .evaluationOrder(evaluationOrder)
+                    .build());
+        }
+        return report;
+    }
+
+    /**
+     * Pins the order in which the conditions of a rule are evaluated, see {@link RuleSetStore#pin}.
+     *
+     * @param order condition indices in evaluation order, or {@code null} to return the rule to its
+     *              stored or adaptive order
+     */
+    public void pinConditionOrder(String ruleId, List<Integer> order) {
+        ruleSets.pin(ruleId, order != null ? order.stream().mapToInt(Integer::intValue).toArray() : null);
+    }
+
+    /**
+     * Checks the input against the category's schema when {@code schema.check-input} is set.
+     *
+     * @return why the input does not match, or {@code null} if it does or is not checked
+     */
+    String checkInput(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        if (!properties.getSchema().isCheckInput()) {
+            return null;
+        }
+        InputSchema schema = inputSchema(ruleCategory, subCategory);
+        return schema == null || schema.accepts(inputVariables) ? null : schema.mismatch(inputVariables);
+    }
+
+    /**
+     * Compiles every expression of the rule, including decision tree branches, against the input
+     * schema of its category. Rules of a category without a schema are not checked.
+     *
+     * @throws org.mvel2.CompileException for the first expression that does not type-check
+     */
+    void checkTypes(Rule rule) {
+        if (rule.getBaseRuleCategory() == null || rule.getBaseRuleSubCategory() == null || rule.getConditions() == null) {
+            return;
+        }
+        InputSchema schema = inputSchema(rule.getBaseRuleCategory(), rule.getBaseRuleSubCategory());
+        if (schema == null) {
+            return;
+        }
+        Deque<Condition> pending = new ArrayDeque<>(rule.getConditions());
+        while (!pending.isEmpty()) {
+            Condition condition = pending.pop();
+            coreRuleEngine.compile(condition.getCondition(), schema);
+            coreRuleEngine.compile(condition.getAction(), schema);
+            if (condition.getTrueBranch() != null) {
+                pending.push(condition.getTrueBranch());
+            }
+            if (condition.getFalseBranch() != null) {
+                pending.push(condition.getFalseBranch());
+            }
+        }
+    }
+
+    /**
+     * Statistics of the result cache, or {@code null} if {@code result-cache.enabled} is off.
+     */
+    public CacheStats resultCacheStats() {
+        return resultCache != null ? resultCache.stats() : null;
+    }
+
+    /**
+     * Version of the currently published rules; every result carries the version it was evaluated against.
+     */
+    public long rulesVersion() {
+        return ruleSets.version();
+    }
+
+    /**
+     * Pool for batch and parallel evaluation, created on first use with {@code batch.parallelism} threads.
+     */
+    private ForkJoinPool pool() {
+        ForkJoinPool current = pool;
+        if (current == null) {
+            synchronized (this) {
+                if (pool == null) {
+                    pool = new ForkJoinPool(Math.max(1, properties.getBatch().getParallelism()));
+                }
+                current = pool;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Shuts down the evaluation pool and the snapshot writer. Called by Spring when the context closes.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        if (snapshotFile != null) {
+            snapshotFile.close();
+        }
+    }
+
     public List<TreeExecutionResult> evaluateTrees(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy) {
+        return evaluateTrees(inputVariables, ruleCategory, subCategory, hitPolicy, false);
+    }
+
+    /**
+     * Evaluates each condition of each rule as a decision tree.
+     * <p>
+     * A tree matches when its walk reaches a leaf, whose action is executed into the results. A walk
+     * that takes a branch with no node behind it ends without a match. Under {@code FIRST} evaluation
+     * stops at the first matching tree of any rule.
+     *
+     * @param recordPath whether to record the branches taken in each result
+     */
+    public List<TreeExecutionResult> evaluateTrees(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory,
+                                                   BaseRuleSubCategory subCategory, HitPolicy hitPolicy, boolean recordPath) {
         long startTime = System.nanoTime();
 
         log.debug("Evaluating multiple decision trees with input variables: {}", inputVariables);
+        RuleSet ruleSet = ruleSets.get(ruleCategory, subCategory);
+        ResultCache.Key key = isCached(ruleCategory, subCategory)
+                ? resultCache.key(recordPath ? "path" : "tree", ruleCategory, subCategory, ruleSet, hitPolicy,
+                        ruleSet.treeLayout(coreRuleEngine), inputVariables)
+                : null;
+        if (key != null) {
+            @SuppressWarnings("unchecked")
+            List<TreeExecutionResult> cached = (List<TreeExecutionResult>) resultCache.get(key);
+            if (cached != null) {
+                log.debug("Serving cached decision tree results for ruleCategory: {}, subCategory: {}", ruleCategory, subCategory);
+                metrics.evaluated("tree", ruleCategory, subCategory, hitPolicy, System.nanoTime() - startTime, 0,
+                        matchedTreeCount(cached));
+                return copyTreeResults(cached);
+            }
+        }
+        CompiledDecisionTrees trees = ruleSet.decisionTrees(coreRuleEngine);
+        EvaluationContext context = EvaluationContext.acquire(inputVariables, ruleSet.layout());
+        InputVariableResolverFactory variables = context.variables();
+        List<Rule> rules = ruleSet.rules();
         List<TreeExecutionResult> results = new ArrayList<>();
 
-        Collection<Rule> filteredRules = ruleCache.findRules(ruleCategory, subCategory);
-
-        for (Rule rule : filteredRules) {
-            for (Condition condition : rule.getConditions()) {
-                TreeExecutionResult tet = evaluateSingleTree(inputVariables, condition, rule, new ArrayList<>());
-                results.add(tet);
-                if (hitPolicy == HitPolicy.FIRST && tet.isRuleCriteriaMet()) {
-                    log.debug("Hit policy is FIRST. Stopping evaluation of decision trees");
-                    break;
+        try {
+            evaluation:
+            for (int r = 0; r < rules.size(); r++) {
+                for (int t = trees.rootStart(r); t < trees.rootEnd(r); t++) {
+                    TreeExecutionResult result = evaluateTree(trees, trees.root(t), rules.get(r), ruleSet.version(), variables, recordPath);
+                    results.add(result);
+                    if (hitPolicy == HitPolicy.FIRST && result.isRuleCriteriaMet()) {
+                        log.debug("Hit policy is FIRST. Stopping evaluation of decision trees");
+                        break evaluation;
+                    }
                 }
             }
+        } finally {
+            context.release();
         }
 
         log.debug("Finished evaluating multiple decision trees. Results: {}", results);
@@ -93,35 +924,72 @@ class RuleEngine {
         long endTime = System.nanoTime();
         long duration = endTime - startTime;
         log.debug("Evaluation of multiple decision trees took {} nanoseconds", duration);
+        metrics.evaluated("tree", ruleCategory, subCategory, hitPolicy, duration, results.size(), matchedTreeCount(results));
+        if (key != null) {
+            resultCache.put(key, copyTreeResults(results), duration);
+        }
 
         return results;
     }
 
-    private TreeExecutionResult evaluateSingleTree(Map<String, Object> inputVariables,
-                                                   Condition condition, Rule rule, List<Condition> executedNodes) {
-        executedNodes.add(condition);
-        if (condition.isLeaf()) {
-            Map<String, Object> results = new HashMap<>();
-            Optional<Object> o = coreRuleEngine.executeAction(condition.getAction(), inputVariables);
-            o.ifPresent(o1 -> results.put(condition.getAction(), o1));
-            log.debug("Finished evaluating decision tree. Results: {}", results);
-            return TreeExecutionResult
-                    .builder()
-                    .rule(rule)
-                    .condition(condition)
-                    .results(results)
-                    .executedNodes(new ArrayList<>(executedNodes))
-                    .ruleCriteriaMet(true)
-                    .build();
+    private static int matchedCount(List<RuleExecutionResult> results) {
+        int matched = 0;
+        for (RuleExecutionResult result : results) {
+            if (result.isRuleCriteriaMet()) {
+                matched++;
+            }
         }
-        log.debug("Evaluating condition: {}", condition.getCondition());
-        Condition nextCondition;
-        if (coreRuleEngine.evaluateCondition(condition.getCondition(), mergeInputVariables(inputVariables, condition.getInValues()))) {
-            nextCondition = condition.getTrueBranch();
-        } else {
-            nextCondition = condition.getFalseBranch();
+        return matched;
+    }
+
+    private static int matchedTreeCount(List<TreeExecutionResult> results) {
+        int matched = 0;
+        for (TreeExecutionResult result : results) {
+            if (result.isRuleCriteriaMet()) {
+                matched++;
+            }
         }
+        return matched;
+    }
 
-        return evaluateSingleTree(inputVariables, nextCondition, rule, executedNodes);
+    private TreeExecutionResult evaluateTree(CompiledDecisionTrees trees, int root, Rule rule, long version,
+                                             InputVariableResolverFactory variables, boolean recordPath) {
+        BitSet branches = recordPath ? new BitSet() : null;
+        int depth = 0;
+        int node = root;
+        boolean reachedLeaf = true;
+        while (!trees.isLeaf(node)) {
+            boolean branch = trees.test(node, coreRuleEngine, variables);
+            if (branch && branches != null) {
+                branches.set(depth);
+            }
+            depth++;
+            int next = trees.child(node, branch);
+            if (next == CompiledDecisionTrees.NO_CHILD) {
+                reachedLeaf = false;
+                break;
+            }
+            node = next;
+        }
+
+        Map<String, Object> results = new HashMap<>();
+        if (reachedLeaf) {
+            Object value = trees.execute(node, coreRuleEngine, variables);
+            if (value != null) {
+                results.put(trees.node(node).getAction(), value);
+            }
+            log.debug("Finished evaluating decision tree. Results: {}", results);
+        }
+        return TreeExecutionResult
+                .builder()
+                .rule(rule)
+                .ruleSetVersion(version)
+                .condition(trees.node(node))
+                .results(results)
+                .branchPath(branches)
+                .pathLength(recordPath ? depth : 0)
+                .executedNodes(recordPath ? trees.path(root, branches, depth) : null)
+                .ruleCriteriaMet(reachedLeaf)
+                .build();
     }
 }
\ No newline at end of file
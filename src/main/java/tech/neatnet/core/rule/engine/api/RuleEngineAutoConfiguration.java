@@ -1,19 +1,28 @@
 package tech.neatnet.core.rule.engine.api;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.jcache.JCacheCacheManager;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Auto-configuration for the Rule Engine.
@@ -45,13 +54,20 @@ public class RuleEngineAutoConfiguration {
     @ConditionalOnMissingBean
     public CoreRuleEngine coreRuleEngine(RuleEngineProperties properties) {
         int maxCacheSize = properties.getExpression().getMaxCacheSize();
-        return new CoreRuleEngine(maxCacheSize);
+        long maxCacheWeight = properties.getExpression().getMaxCacheWeight();
+        return new CoreRuleEngine(maxCacheSize, maxCacheWeight);
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public RuleRepositoryService ruleRepositoryService(RuleRepository ruleRepository) {
-        return new RuleRepositoryService(ruleRepository);
+    public RuleRepositoryService ruleRepositoryService(RuleRepository ruleRepository, MongoTemplate mongoTemplate,
+                                                       RuleEngineProperties properties,
+                                                       ObjectProvider<RuleEngineMetrics> metrics) {
+        if (properties.getStore().isCreateIndexes()) {
+            RuleRepositoryService.ensureIndexes(mongoTemplate);
+        }
+        return new RuleRepositoryService(ruleRepository, properties.getStore().isFastMapping() ? mongoTemplate : null,
+                metrics.getIfAvailable(() -> RuleEngineMetrics.NOOP));
     }
 
     @Bean
@@ -62,8 +78,9 @@ public class RuleEngineAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public RuleEngine ruleEngine(CoreRuleEngine coreRuleEngine, RuleCache ruleCache) {
-        return new RuleEngine(coreRuleEngine, ruleCache);
+    public RuleEngine ruleEngine(CoreRuleEngine coreRuleEngine, RuleCache ruleCache, RuleEngineProperties properties,
+                                 ObjectProvider<RuleEngineMetrics> metrics) {
+        return new RuleEngine(coreRuleEngine, ruleCache, properties, metrics.getIfAvailable(() -> RuleEngineMetrics.NOOP));
     }
 
     @Bean
@@ -72,6 +89,29 @@ public class RuleEngineAutoConfiguration {
         return new RuleEngineClientImpl(ruleEngine, ruleRepository);
     }
 
+    @Bean(name = "ruleEngineAsyncExecutor")
+    @ConditionalOnMissingBean(name = "ruleEngineAsyncExecutor")
+    public ExecutorService ruleEngineAsyncExecutor(RuleEngineProperties properties) {
+        return AsyncRuleEngineClientImpl.defaultExecutor(properties.getAsync().isVirtualThreads());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(AsyncRuleEngineClient.class)
+    public AsyncRuleEngineClient asyncRuleEngineClient(RuleEngineClient ruleEngineClient, RuleEngine ruleEngine,
+                                                       @Qualifier("ruleEngineAsyncExecutor") Executor executor,
+                                                       RuleEngineProperties properties) {
+        return new AsyncRuleEngineClientImpl(ruleEngineClient, ruleEngine, executor,
+                properties.getAsync().getMaxConcurrency(), properties.getAsync().getQueueCapacity());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "rule.engine.watch.enabled", havingValue = "true")
+    public RuleChangeWatcher ruleChangeWatcher(MongoTemplate mongoTemplate, RuleEngine ruleEngine,
+                                               RuleEngineProperties properties) {
+        return new RuleChangeWatcher(mongoTemplate, ruleEngine, properties.getWatch());
+    }
+
     @Bean
     @ConditionalOnMissingBean
     public MongoCustomConversions mongoCustomConversions() {
@@ -82,4 +122,37 @@ public class RuleEngineAutoConfiguration {
         converters.add(new SpecificMongoConverters.DBToSubCategoryConverter());
         return new MongoCustomConversions(converters);
     }
+
+    /**
+     * Publishes engine metrics when Micrometer is on the classpath and a {@link MeterRegistry} is defined.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class MetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public RuleEngineMetrics ruleEngineMetrics(ObjectProvider<MeterRegistry> meterRegistry, CoreRuleEngine coreRuleEngine,
+                                                   ObjectProvider<JCacheCacheManager> cacheManager) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry == null) {
+                return RuleEngineMetrics.NOOP;
+            }
+            JCacheCacheManager jCacheCacheManager = cacheManager.getIfAvailable();
+            return new MicrometerRuleEngineMetrics(registry, coreRuleEngine,
+                    jCacheCacheManager != null ? jCacheCacheManager.getCacheManager() : null);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "reactor.core.publisher.Mono")
+    static class ReactiveClientConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(ReactiveRuleEngineClient.class)
+        public ReactiveRuleEngineClient reactiveRuleEngineClient(AsyncRuleEngineClient asyncRuleEngineClient,
+                                                                 RuleEngineProperties properties) {
+            return new ReactiveRuleEngineClientImpl(asyncRuleEngineClient, properties.getAsync().getMaxConcurrency());
+        }
+    }
 }
@@ -1,17 +1,114 @@
 package tech.neatnet.core.rule.engine.api;
 
+import tech.neatnet.core.rule.engine.domain.ExclusiveRuleGroup;
 import tech.neatnet.core.rule.engine.domain.HitPolicy;
 import tech.neatnet.core.rule.engine.domain.Rule;
 import tech.neatnet.core.rule.engine.domain.RuleExecutionResult;
+import tech.neatnet.core.rule.engine.domain.TreeExecutionResult;
 import tech.neatnet.core.rule.engine.exceptions.RuleEngineClientProcessingException;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface RuleEngineClient {
 
     List<RuleExecutionResult> evaluateRules(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy) throws RuleEngineClientProcessingException;
 
+    /**
+     * Evaluates many inputs against the same rules, resolving the rule set only once.
+     *
+     * @return one result list per input, in input order
+     */
+    List<List<RuleExecutionResult>> evaluateRulesBatch(List<Map<String, Object>> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy) throws RuleEngineClientProcessingException;
+
+    /**
+     * Evaluates the rules keeping only which ones matched; results for the matches are built on demand.
+     */
+    default RuleMatches evaluateMatches(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy) throws RuleEngineClientProcessingException {
+        return evaluateMatches(inputVariables, ruleCategory, subCategory, hitPolicy, null);
+    }
+
+    /**
+     * Evaluates the rules, passing every match to {@code sink} as it is found.
+     *
+     * @param sink receives matches in rule order, may be {@code null}
+     */
+    RuleMatches evaluateMatches(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy, ResultSink sink) throws RuleEngineClientProcessingException;
+
+    /**
+     * Evaluates the rules, passing every match to {@code sink} and keeping nothing. Once warmed up this
+     * path does not allocate; see {@link RuleEngine#evaluateInto}.
+     *
+     * @return the number of matched rules
+     */
+    int evaluateInto(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy, ResultSink sink) throws RuleEngineClientProcessingException;
+
+    /**
+     * A new slot-indexed input laid out for the rules of the category, loading them if needed.
+     */
+    RuleInput newInput(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) throws RuleEngineClientProcessingException;
+
+    /**
+     * {@link #evaluateMatches(Map, BaseRuleCategory, BaseRuleSubCategory, HitPolicy, ResultSink)} for a slot-indexed input.
+     */
+    RuleMatches evaluateMatches(RuleInput input, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy, ResultSink sink) throws RuleEngineClientProcessingException;
+
+    /**
+     * {@link #evaluateInto(Map, BaseRuleCategory, BaseRuleSubCategory, HitPolicy, ResultSink)} for a slot-indexed input.
+     */
+    int evaluateInto(RuleInput input, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy, ResultSink sink) throws RuleEngineClientProcessingException;
+
+    /**
+     * Evaluates the conditions of the rules as decision trees.
+     *
+     * @param recordPath whether each result should carry the branches taken
+     */
+    List<TreeExecutionResult> evaluateTrees(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy, boolean recordPath) throws RuleEngineClientProcessingException;
+
+    /**
+     * Reloads the rules of all loaded categories in the background. Evaluations keep using the
+     * current rules until the reload publishes the new version.
+     *
+     * @return completes with the new rule set version
+     */
+    CompletableFuture<Long> reloadRules();
+
+    /**
+     * Saves a rule. If its category has an {@link InputSchema}, every expression of the rule is
+     * compiled against it first and a rule that does not type-check is rejected.
+     */
     Rule saveRule(Rule rule) throws RuleEngineClientProcessingException;
 
+    /**
+     * The input schema configured for the category, or {@code null} if it has none. Use
+     * {@link InputSchema#accepts(Map)} to check an input before evaluating it.
+     */
+    InputSchema inputSchema(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory);
+
+    /**
+     * The order in which the conditions of each rule of the category are evaluated, as condition
+     * indices by rule id. With {@code ordering.enabled} the engine reorders them from measured cost
+     * and selectivity.
+     */
+    Map<String, List<Integer>> conditionOrder(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) throws RuleEngineClientProcessingException;
+
+    /**
+     * The runs of consecutive rules of the category proven mutually exclusive, which may be evaluated
+     * by hit frequency under {@link HitPolicy#FIRST} without changing which rule matches.
+     */
+    List<ExclusiveRuleGroup> exclusiveGroups(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) throws RuleEngineClientProcessingException;
+
+    /**
+     * Pins the order in which the conditions of a rule are evaluated, overriding adaptive ordering.
+     *
+     * @param order condition indices in evaluation order, or {@code null} to unpin
+     */
+    void pinConditionOrder(String ruleId, List<Integer> order) throws RuleEngineClientProcessingException;
+
+    /**
+     * Hits, misses and size of the result cache, or {@code null} if {@code result-cache.enabled} is off.
+     */
+    CacheStats resultCacheStats();
+
 }
@@ -7,6 +7,7 @@ import tech.neatnet.core.rule.engine.exceptions.RuleEngineClientProcessingExcept
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
@@ -30,6 +31,78 @@ public class RuleEngineClientImpl implements RuleEngineClient {
         return ruleEngine.evaluateMatrices(inputVariables, ruleCategory, subCategory, hitPolicy);
     }
 
+    public List<List<RuleExecutionResult>> evaluateRulesBatch(List<Map<String, Object>> inputVariables,
+            BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy)
+            throws RuleEngineClientProcessingException {
+        log.debug("Evaluating batch of {} inputs, ruleCategory: {}, subCategory: {}, hitPolicy: {}",
+                inputVariables != null ? inputVariables.size() : 0, ruleCategory, subCategory, hitPolicy);
+        if (inputVariables == null) {
+            throw new RuleEngineClientProcessingException("Input variables cannot be empty");
+        }
+        validateCategories(ruleCategory, subCategory, hitPolicy);
+        for (Map<String, Object> input : inputVariables) {
+            validateInputVariables(input);
+            validateInputTypes(input, ruleCategory, subCategory);
+        }
+        return ruleEngine.evaluateMatricesBatch(inputVariables, ruleCategory, subCategory, hitPolicy);
+    }
+
+    public RuleMatches evaluateMatches(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory,
+            BaseRuleSubCategory subCategory, HitPolicy hitPolicy, ResultSink sink)
+            throws RuleEngineClientProcessingException {
+        log.debug("Evaluating matches with input variables: {}, ruleCategory: {}, subCategory: {}, hitPolicy: {}",
+                inputVariables, ruleCategory, subCategory, hitPolicy);
+        validateInputs(inputVariables, ruleCategory, subCategory, hitPolicy);
+        return ruleEngine.evaluateMatches(inputVariables, ruleCategory, subCategory, hitPolicy, sink);
+    }
+
+    public int evaluateInto(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory,
+            BaseRuleSubCategory subCategory, HitPolicy hitPolicy, ResultSink sink)
+            throws RuleEngineClientProcessingException {
+        validateInputs(inputVariables, ruleCategory, subCategory, hitPolicy);
+        if (sink == null) {
+            throw new RuleEngineClientProcessingException("Result sink cannot be null");
+        }
+        return ruleEngine.evaluateInto(inputVariables, ruleCategory, subCategory, hitPolicy, sink);
+    }
+
+    public RuleInput newInput(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory)
+            throws RuleEngineClientProcessingException {
+        if (ruleCategory == null) {
+            throw new RuleEngineClientProcessingException("Rule category cannot be null");
+        }
+        if (subCategory == null) {
+            throw new RuleEngineClientProcessingException("Rule sub category cannot be null");
+        }
+        return ruleEngine.newInput(ruleCategory, subCategory);
+    }
+
+    public RuleMatches evaluateMatches(RuleInput input, BaseRuleCategory ruleCategory,
+            BaseRuleSubCategory subCategory, HitPolicy hitPolicy, ResultSink sink)
+            throws RuleEngineClientProcessingException {
+        validateInputs(input, ruleCategory, subCategory, hitPolicy);
+        return ruleEngine.evaluateMatches(input, ruleCategory, subCategory, hitPolicy, sink);
+    }
+
+    public int evaluateInto(RuleInput input, BaseRuleCategory ruleCategory,
+            BaseRuleSubCategory subCategory, HitPolicy hitPolicy, ResultSink sink)
+            throws RuleEngineClientProcessingException {
+        validateInputs(input, ruleCategory, subCategory, hitPolicy);
+        if (sink == null) {
+            throw new RuleEngineClientProcessingException("Result sink cannot be null");
+        }
+        return ruleEngine.evaluateInto(input, ruleCategory, subCategory, hitPolicy, sink);
+    }
+
+    public List<TreeExecutionResult> evaluateTrees(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory,
+            BaseRuleSubCategory subCategory, HitPolicy hitPolicy, boolean recordPath)
+            throws RuleEngineClientProcessingException {
+        log.debug("Evaluating decision trees with input variables: {}, ruleCategory: {}, subCategory: {}, hitPolicy: {}",
+                inputVariables, ruleCategory, subCategory, hitPolicy);
+        validateInputs(inputVariables, ruleCategory, subCategory, hitPolicy);
+        return ruleEngine.evaluateTrees(inputVariables, ruleCategory, subCategory, hitPolicy, recordPath);
+    }
+
     // public List<RuleExecutionResult> evaluateRules(Map<String, Object>
     // inputVariables, BaseRuleCategory ruleCategory, BaseRuleSubCategory
     // subCategory) throws RuleEngineClientProcessingException {
@@ -42,9 +115,37 @@ public class RuleEngineClientImpl implements RuleEngineClient {
     // }
     private void validateInputs(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory,
             BaseRuleSubCategory subCategory, HitPolicy hitPolicy) throws RuleEngineClientProcessingException {
+        validateInputVariables(inputVariables);
+        validateCategories(ruleCategory, subCategory, hitPolicy);
+        validateInputTypes(inputVariables, ruleCategory, subCategory);
+    }
+
+    private void validateInputTypes(Map<String, Object> inputVariables, BaseRuleCategory ruleCategory,
+            BaseRuleSubCategory subCategory) throws RuleEngineClientProcessingException {
+        String mismatch = ruleEngine.checkInput(inputVariables, ruleCategory, subCategory);
+        if (mismatch != null) {
+            throw new RuleEngineClientProcessingException("Input does not match the schema of "
+                    + ruleCategory.getName() + ":" + subCategory.getName() + ": " + mismatch);
+        }
+    }
+
+    private void validateInputs(RuleInput input, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory,
+            HitPolicy hitPolicy) throws RuleEngineClientProcessingException {
+        if (input == null) {
+            throw new RuleEngineClientProcessingException("Input cannot be null");
+        }
+        validateCategories(ruleCategory, subCategory, hitPolicy);
+        validateInputTypes(input.asMap(), ruleCategory, subCategory);
+    }
+
+    private void validateInputVariables(Map<String, Object> inputVariables) throws RuleEngineClientProcessingException {
         if (inputVariables == null || inputVariables.isEmpty()) {
             throw new RuleEngineClientProcessingException("Input variables cannot be empty");
         }
+    }
+
+    private void validateCategories(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory,
+            HitPolicy hitPolicy) throws RuleEngineClientProcessingException {
         if (ruleCategory == null) {
             throw new RuleEngineClientProcessingException("Rule category cannot be null");
         }
@@ -56,6 +157,11 @@ public class RuleEngineClientImpl implements RuleEngineClient {
         }
     }
 
+    public CompletableFuture<Long> reloadRules() {
+        log.debug("Reloading rules");
+        return ruleEngine.reloadRules();
+    }
+
     public Rule saveRule(Rule rule) throws RuleEngineClientProcessingException {
         if (validateRule(rule)) {
             log.debug("Saving rule: {}", rule);
@@ -64,12 +170,63 @@ public class RuleEngineClientImpl implements RuleEngineClient {
         throw new RuleEngineClientProcessingException("Rule validation failed");
     }
 
-    private boolean validateRule(Rule rule) {
+    private boolean validateRule(Rule rule) throws RuleEngineClientProcessingException {
         log.debug("Validating rule: {}", rule);
+        try {
+            ruleEngine.checkTypes(rule);
+        } catch (RuntimeException e) {
+            throw new RuleEngineClientProcessingException("Rule " + rule.getId()
+                    + " does not match the input schema of its category: " + e.getMessage(), e);
+        }
         return true;
     }
 
-    public boolean saveRules(List<Rule> rules) {
+    public InputSchema inputSchema(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        return ruleEngine.inputSchema(ruleCategory, subCategory);
+    }
+
+    public Map<String, List<Integer>> conditionOrder(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory)
+            throws RuleEngineClientProcessingException {
+        if (ruleCategory == null) {
+            throw new RuleEngineClientProcessingException("Rule category cannot be null");
+        }
+        if (subCategory == null) {
+            throw new RuleEngineClientProcessingException("Rule sub category cannot be null");
+        }
+        return ruleEngine.conditionOrder(ruleCategory, subCategory);
+    }
+
+    public List<ExclusiveRuleGroup> exclusiveGroups(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory)
+            throws RuleEngineClientProcessingException {
+        if (ruleCategory == null) {
+            throw new RuleEngineClientProcessingException("Rule category cannot be null");
+        }
+        if (subCategory == null) {
+            throw new RuleEngineClientProcessingException("Rule sub category cannot be null");
+        }
+        return ruleEngine.exclusiveGroups(ruleCategory, subCategory);
+    }
+
+    public void pinConditionOrder(String ruleId, List<Integer> order) throws RuleEngineClientProcessingException {
+        if (ruleId == null) {
+            throw new RuleEngineClientProcessingException("Rule id cannot be null");
+        }
+        try {
+            ruleEngine.pinConditionOrder(ruleId, order);
+        } catch (IllegalArgumentException e) {
+            throw new RuleEngineClientProcessingException(e.getMessage(), e);
+        }
+    }
+
+    public CacheStats resultCacheStats() {
+        return ruleEngine.resultCacheStats();
+    }
+
+    public boolean saveRules(List<Rule> rules) throws RuleEngineClientProcessingException {
+        for (Rule rule : rules) {
+            validateRule(rule);
+        }
+        log.debug("Saving {} rules", rules.size());
         return ruleRepository.saveAll(rules).size() == rules.size();
     }
 
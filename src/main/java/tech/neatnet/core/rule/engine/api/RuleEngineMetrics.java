@@ -0,0 +1,62 @@
+package tech.neatnet.core.rule.engine.api;
+
+import tech.neatnet.core.rule.engine.domain.HitPolicy;
+
+import java.util.function.Supplier;
+
+/**
+ * Receives measurements from the engine. Implementations are called on the evaluation path and must
+ * not block or contend; the default records nothing.
+ *
+ * @see MicrometerRuleEngineMetrics
+ */
+interface RuleEngineMetrics {
+
+    RuleEngineMetrics NOOP = new RuleEngineMetrics() {
+    };
+
+    /**
+     * Whether evaluations should be timed for this instance. Paths that otherwise do not need the
+     * clock, such as {@link RuleEngine#evaluateInto}, skip reading it when this is {@code false}.
+     */
+    default boolean timed() {
+        return false;
+    }
+
+    /**
+     * One input evaluated against a rule set.
+     *
+     * @param mode           {@code table} or {@code tree}
+     * @param rulesEvaluated rules (or trees) evaluated before the evaluation stopped, zero for results
+     *                       served from the result cache
+     * @param rulesMatched   rules (or trees) that matched
+     */
+    default void evaluated(String mode, BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory,
+                           HitPolicy hitPolicy, long durationNanos, int rulesEvaluated, int rulesMatched) {
+    }
+
+    /**
+     * A batch of inputs evaluated against a rule set.
+     *
+     * @param rulesEvaluated rules evaluated over all inputs
+     * @param rulesMatched   rules matched over all inputs
+     */
+    default void batchEvaluated(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, HitPolicy hitPolicy,
+                                int inputs, long durationNanos, int rulesEvaluated, int rulesMatched) {
+    }
+
+    /**
+     * Rules of one category read from MongoDB.
+     *
+     * @param category    persisted category name
+     * @param subCategory persisted subcategory name
+     */
+    default void rulesLoaded(String category, String subCategory, int rules, long durationNanos) {
+    }
+
+    /**
+     * Called once by an engine with a result cache; {@code stats} is read when metrics are published.
+     */
+    default void bindResultCache(Supplier<CacheStats> stats) {
+    }
+}
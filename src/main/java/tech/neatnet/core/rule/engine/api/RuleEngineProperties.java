@@ -2,9 +2,13 @@ package tech.neatnet.core.rule.engine.api;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Configuration properties for the Rule Engine.
@@ -19,6 +23,27 @@ import java.util.List;
  *     cache:
  *       enabled: true
  *       default-heap-size: 1000
+ *       disk-path: /var/cache/rule-engine
+ *       configs:
+ *         - name: rules
+ *           heap-size: 100
+ *           off-heap-size: 1GB
+ *           disk-size: 8GB
+ *           time-to-live: 1h
+ *     codegen:
+ *       enabled: true
+ *       categories: PRICING:DEFAULT
+ *     schema:
+ *       categories:
+ *         "[PRICING:DEFAULT]":
+ *           orderTotal: Integer
+ *           segment: String
+ *     ordering:
+ *       enabled: true
+ *     result-cache:
+ *       enabled: true
+ *       max-size: 10000
+ *       ttl: 5m
  * </pre>
  */
 @Data
@@ -40,6 +65,56 @@ public class RuleEngineProperties {
      */
     private ExpressionProperties expression = new ExpressionProperties();
 
+    /**
+     * Decision table code generation settings.
+     */
+    private CodegenProperties codegen = new CodegenProperties();
+
+    /**
+     * Batch evaluation settings.
+     */
+    private BatchProperties batch = new BatchProperties();
+
+    /**
+     * Parallel evaluation of large categories.
+     */
+    private ParallelProperties parallel = new ParallelProperties();
+
+    /**
+     * Async client settings.
+     */
+    private AsyncProperties async = new AsyncProperties();
+
+    /**
+     * MongoDB change stream watcher settings.
+     */
+    private WatchProperties watch = new WatchProperties();
+
+    /**
+     * Rule loading settings.
+     */
+    private StoreProperties store = new StoreProperties();
+
+    /**
+     * Local rule snapshot file settings.
+     */
+    private SnapshotProperties snapshot = new SnapshotProperties();
+
+    /**
+     * Typed input schemas.
+     */
+    private SchemaProperties schema = new SchemaProperties();
+
+    /**
+     * Adaptive ordering of the conditions within each rule.
+     */
+    private OrderingProperties ordering = new OrderingProperties();
+
+    /**
+     * Cache of evaluation results by input.
+     */
+    private ResultCacheProperties resultCache = new ResultCacheProperties();
+
     @Data
     public static class ExpressionProperties {
 
@@ -48,6 +123,197 @@ public class RuleEngineProperties {
          * Default: 10000
          */
         private int maxCacheSize = 10_000;
+
+        /**
+         * Maximum total size in bytes of the serialized compiled expressions to cache.
+         * When set, the cache is bounded by weight instead of {@code maxCacheSize}.
+         * Default: 0 (bounded by count)
+         */
+        private long maxCacheWeight = 0;
+    }
+
+    @Data
+    public static class BatchProperties {
+
+        /**
+         * Number of threads a batch is split across. Default: number of available processors
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Minimum number of inputs per thread; smaller batches run on the calling thread. Default: 64
+         */
+        private int minChunkSize = 64;
+    }
+
+    @Data
+    public static class ParallelProperties {
+
+        /**
+         * Minimum number of rules in a category for a single evaluation to be split across threads.
+         * The threads are shared with batch evaluation. Default: 0 (disabled)
+         */
+        private int threshold = 0;
+
+        /**
+         * Number of rules per parallel task. Default: 1024
+         */
+        private int chunkSize = 1024;
+    }
+
+    @Data
+    public static class AsyncProperties {
+
+        /**
+         * Run async evaluations on virtual threads when the JVM supports them (JDK 21+). Default: true
+         */
+        private boolean virtualThreads = true;
+
+        /**
+         * Maximum number of async evaluations running at once; further calls wait in a queue. Default: 256
+         */
+        private int maxConcurrency = 256;
+
+        /**
+         * Maximum number of async evaluations waiting for one of the running ones to finish; further
+         * calls fail with a {@link java.util.concurrent.RejectedExecutionException}. Default: 10000
+         */
+        private int queueCapacity = 10_000;
+    }
+
+    @Data
+    public static class StoreProperties {
+
+        /**
+         * Load rules with a field projection and a hand-written document reader instead of Spring Data
+         * mapping. Loaded rules then have no description or modifiedBy. Default: true
+         */
+        private boolean fastMapping = true;
+
+        /**
+         * Create the index used to load rules by category at startup. Default: true
+         */
+        private boolean createIndexes = true;
+    }
+
+    @Data
+    public static class SnapshotProperties {
+
+        /**
+         * File to keep a copy of the loaded rule sets and their compiled conditions in. Rules are
+         * served from it at startup, before MongoDB is queried. Default: none (disabled)
+         */
+        private String path;
+
+        /**
+         * After starting from the file, reload the rules from MongoDB in the background and publish
+         * the categories that changed. Default: true
+         */
+        private boolean verifyOnStartup = true;
+    }
+
+    @Data
+    public static class SchemaProperties {
+
+        /**
+         * Input variable types by "CATEGORY:SUBCATEGORY" name, then by variable name. Types are class
+         * names; {@code java.lang} classes and primitives may be given by their simple name. Conditions
+         * of a category with a schema are compiled with strong typing.
+         */
+        private Map<String, Map<String, String>> categories = new LinkedHashMap<>();
+
+        /**
+         * Reject evaluations whose input does not match the category's schema. Default: false
+         */
+        private boolean checkInput = false;
+    }
+
+    @Data
+    public static class OrderingProperties {
+
+        /**
+         * Sample the cost and false-rate of conditions and reorder the conditions of each rule so the
+         * cheapest and most selective run first. Default: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * One in this many rule evaluations is timed. Default: 64
+         */
+        private int sampleRate = 64;
+
+        /**
+         * Number of timed rule evaluations of a category between reorderings. Default: 10000
+         */
+        private long reorderInterval = 10_000;
+    }
+
+    @Data
+    public static class ResultCacheProperties {
+
+        /**
+         * Cache the results of {@code evaluateMatrices} and {@code evaluateTrees} by the input variables
+         * the rules read. Only enable it for categories whose actions have no side effects. Default: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of cached evaluations. Default: 10000
+         */
+        private long maxSize = 10_000;
+
+        /**
+         * Time a result stays cached after it is evaluated; zero keeps it until evicted. Default: 5m
+         */
+        private Duration ttl = Duration.ofMinutes(5);
+
+        /**
+         * Categories to cache, as "CATEGORY:SUBCATEGORY" names. If empty, all categories are cached.
+         */
+        private List<String> categories = new ArrayList<>();
+
+        public boolean isEnabledFor(BaseRuleCategory category, BaseRuleSubCategory subCategory) {
+            return enabled && (categories.isEmpty()
+                    || categories.contains(category.getName() + ":" + subCategory.getName()));
+        }
+    }
+
+    @Data
+    public static class WatchProperties {
+
+        /**
+         * Apply changes to the rules collection as they happen. Requires a replica set. Default: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * Collection to watch. Default: rules
+         */
+        private String collection = "rules";
+
+        /**
+         * Delay before reconnecting after the change stream fails. Default: 5s
+         */
+        private Duration retryDelay = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class CodegenProperties {
+
+        /**
+         * Compile decision tables into generated classes. Default: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * Categories to compile, as "CATEGORY:SUBCATEGORY" names. If empty, all categories are compiled.
+         */
+        private List<String> categories = new ArrayList<>();
+
+        public boolean isEnabledFor(BaseRuleCategory category, BaseRuleSubCategory subCategory) {
+            return enabled && (categories.isEmpty()
+                    || categories.contains(category.getName() + ":" + subCategory.getName()));
+        }
     }
 
     @Data
@@ -63,6 +329,12 @@ public class RuleEngineProperties {
          */
         private int defaultHeapSize = 1000;
 
+        /**
+         * Directory for caches with a disk tier. Entries of persistent disk tiers are kept here across
+         * restarts. Required when a cache has a disk tier. Default: none
+         */
+        private String diskPath;
+
         /**
          * Custom cache configurations. If empty, default "rules" cache is created.
          */
@@ -74,8 +346,41 @@ public class RuleEngineProperties {
             private String name;
             private String keyType = "java.lang.String";
             private String valueType = "java.lang.Object";
+
+            /**
+             * Heap tier size in entries. Default: {@code default-heap-size}
+             */
             private Integer heapSize;
 
+            /**
+             * Off-heap tier size. Entries are serialized into direct memory outside the garbage
+             * collected heap. Default: none
+             */
+            private DataSize offHeapSize;
+
+            /**
+             * Disk tier size, stored under {@code rule.engine.cache.disk-path}. Must be larger than
+             * the off-heap tier. Default: none
+             */
+            private DataSize diskSize;
+
+            /**
+             * Keep the disk tier across restarts. The rules cached before a restart are served until
+             * they expire, even if they changed meanwhile, so set {@code timeToLive} with it. Default: false
+             */
+            private boolean diskPersistent = false;
+
+            /**
+             * Time an entry stays cached after it is written. Default: none (no expiry)
+             */
+            private Duration timeToLive;
+
+            /**
+             * Time an entry stays cached after it was last read. Ignored when {@code timeToLive} is
+             * set. Default: none (no expiry)
+             */
+            private Duration timeToIdle;
+
             public Class<?> getKeyTypeClass() {
                 return resolveClass(keyType, String.class);
             }
@@ -0,0 +1,192 @@
+package tech.neatnet.core.rule.engine.api;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Input variables stored in an array indexed by slot, laid out for the rules of one category.
+ * <p>
+ * Obtain one from {@link RuleEngineClient#newInput}, resolve the slots of the variables you set once
+ * with {@link #slot(String)}, and fill it per request with {@link #set(int, Object)}. Conditions then
+ * read variables with an array load instead of a lookup in a map. Variables no condition reads are
+ * kept by name, so decision tree actions can still use them.
+ * <p>
+ * An input is not thread-safe; reuse it on one thread, calling {@link #clear()} between requests.
+ * If the category's rules are reloaded with a different layout, evaluation falls back to reading the
+ * input by name.
+ */
+public final class RuleInput {
+
+    private final InputLayout layout;
+    private final Object[] values;
+    private Map<String, Object> extra;
+    private Map<String, Object> view;
+
+    RuleInput(InputLayout layout) {
+        this.layout = layout;
+        this.values = new Object[layout.size()];
+        Arrays.fill(values, InputLayout.ABSENT);
+    }
+
+    /**
+     * @return the slot of the variable, or {@code -1} if no condition of the category reads it
+     */
+    public int slot(String name) {
+        return layout.slot(name);
+    }
+
+    /**
+     * Sets the variable in a slot returned by {@link #slot(String)}.
+     */
+    public RuleInput set(int slot, Object value) {
+        values[slot] = value;
+        return this;
+    }
+
+    /**
+     * Sets a variable by name.
+     */
+    public RuleInput set(String name, Object value) {
+        int slot = layout.slot(name);
+        if (slot >= 0) {
+            values[slot] = value;
+        } else {
+            if (extra == null) {
+                extra = new HashMap<>();
+            }
+            extra.put(name, value);
+        }
+        return this;
+    }
+
+    /**
+     * Sets every variable of the map, the adapter for callers that already hold their input as a map.
+     */
+    public RuleInput setAll(Map<String, Object> variables) {
+        variables.forEach(this::set);
+        return this;
+    }
+
+    /**
+     * @return the value, or {@code null} if the variable is not set
+     */
+    public Object get(String name) {
+        int slot = layout.slot(name);
+        if (slot >= 0) {
+            Object value = values[slot];
+            return value != InputLayout.ABSENT ? value : null;
+        }
+        return extra != null ? extra.get(name) : null;
+    }
+
+    /**
+     * Unsets every variable.
+     */
+    public RuleInput clear() {
+        Arrays.fill(values, InputLayout.ABSENT);
+        if (extra != null) {
+            extra.clear();
+        }
+        return this;
+    }
+
+    /**
+     * Read-only, live map view of the variables that are set. Evaluation results carry this view, so
+     * copy it before reusing the input if results are kept.
+     */
+    public Map<String, Object> asMap() {
+        Map<String, Object> map = view;
+        if (map == null) {
+            map = new View();
+            view = map;
+        }
+        return map;
+    }
+
+    InputLayout layout() {
+        return layout;
+    }
+
+    /**
+     * The slot values, {@link InputLayout#ABSENT} for unset variables.
+     */
+    Object[] values() {
+        return values;
+    }
+
+    private final class View extends AbstractMap<String, Object> {
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof String name ? RuleInput.this.get(name) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (!(key instanceof String name)) {
+                return false;
+            }
+            int slot = layout.slot(name);
+            return slot >= 0 ? values[slot] != InputLayout.ABSENT : extra != null && extra.containsKey(name);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Entries();
+                }
+
+                @Override
+                public int size() {
+                    int size = extra != null ? extra.size() : 0;
+                    for (Object value : values) {
+                        if (value != InputLayout.ABSENT) {
+                            size++;
+                        }
+                    }
+                    return size;
+                }
+            };
+        }
+    }
+
+    private final class Entries implements Iterator<Map.Entry<String, Object>> {
+        private final Iterator<Map.Entry<String, Object>> extras =
+                extra != null ? Collections.unmodifiableMap(extra).entrySet().iterator() : Collections.emptyIterator();
+        private int slot = next(0);
+
+        private int next(int from) {
+            while (from < values.length && values[from] == InputLayout.ABSENT) {
+                from++;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < values.length || extras.hasNext();
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (slot < values.length) {
+                Map.Entry<String, Object> entry = new AbstractMap.SimpleImmutableEntry<>(layout.name(slot), values[slot]);
+                slot = next(slot + 1);
+                return entry;
+            }
+            if (!extras.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return extras.next();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package tech.neatnet.core.rule.engine.api;
+
+import tech.neatnet.core.rule.engine.domain.Metadata;
+import tech.neatnet.core.rule.engine.domain.Rule;
+import tech.neatnet.core.rule.engine.domain.RuleExecutionResult;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a lean evaluation: which rules of a category matched, as a bitset over rule positions.
+ * <p>
+ * Results are only built when {@link #results()} is called, and only for the matched rules.
+ */
+public final class RuleMatches {
+
+    private final List<Rule> rules;
+    private final long ruleSetVersion;
+    private final BitSet matched;
+    private final int evaluatedCount;
+    private final Metadata metadata;
+    private List<RuleExecutionResult> results;
+
+    RuleMatches(List<Rule> rules, long ruleSetVersion, BitSet matched, int evaluatedCount, Map<String, Object> inputVariables,
+                long startTimeNanos, long endTimeNanos) {
+        this.rules = rules;
+        this.ruleSetVersion = ruleSetVersion;
+        this.matched = matched;
+        this.evaluatedCount = evaluatedCount;
+        this.metadata = Metadata.builder()
+                .inputVariables(inputVariables)
+                .startTimeNanos(startTimeNanos)
+                .endTimeNanos(endTimeNanos)
+                .build();
+    }
+
+    /**
+     * Number of matched rules.
+     */
+    public int count() {
+        return matched.cardinality();
+    }
+
+    public boolean isMatched(int ruleIndex) {
+        return matched.get(ruleIndex);
+    }
+
+    /**
+     * Positions of the matched rules within the category. The returned set is a copy.
+     */
+    public BitSet matchedIndices() {
+        return (BitSet) matched.clone();
+    }
+
+    public List<String> matchedIds() {
+        List<String> ids = new ArrayList<>(count());
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            ids.add(rules.get(i).getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Number of rules looked at before evaluation finished; less than the category size when
+     * {@code FIRST} stopped early.
+     */
+    public int evaluatedCount() {
+        return evaluatedCount;
+    }
+
+    /**
+     * Version of the rules this evaluation ran against.
+     */
+    public long ruleSetVersion() {
+        return ruleSetVersion;
+    }
+
+    /**
+     * Input and timing of the whole evaluation.
+     */
+    public Metadata metadata() {
+        return metadata;
+    }
+
+    /**
+     * Results for the matched rules, in rule order, built on first call. All results share {@link #metadata()}.
+     */
+    public List<RuleExecutionResult> results() {
+        if (results == null) {
+            List<RuleExecutionResult> built = new ArrayList<>(count());
+            for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+                Rule rule = rules.get(i);
+                built.add(RuleExecutionResult.builder()
+                        .metadata(metadata)
+                        .rule(rule)
+                        .ruleSetVersion(ruleSetVersion)
+                        .ruleCriteriaMet(true)
+                        .results(rule.getResults())
+                        .build());
+            }
+            results = built;
+        }
+        return results;
+    }
+}
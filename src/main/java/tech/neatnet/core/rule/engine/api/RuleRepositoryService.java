@@ -2,18 +2,41 @@ package tech.neatnet.core.rule.engine.api;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
+import org.bson.Document;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
 import tech.neatnet.core.rule.engine.domain.Rule;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 @Slf4j
 public class RuleRepositoryService {
 
     private final RuleRepository ruleRepository;
 
+    /**
+     * Used to load categories through {@link RuleDocumentReader}, or {@code null} to load them through the repository.
+     */
+    private final MongoOperations mongoOperations;
+
+    private final RuleEngineMetrics metrics;
+
     public RuleRepositoryService(RuleRepository ruleRepository) {
+        this(ruleRepository, null);
+    }
+
+    public RuleRepositoryService(RuleRepository ruleRepository, MongoOperations mongoOperations) {
+        this(ruleRepository, mongoOperations, RuleEngineMetrics.NOOP);
+    }
+
+    RuleRepositoryService(RuleRepository ruleRepository, MongoOperations mongoOperations, RuleEngineMetrics metrics) {
         this.ruleRepository = ruleRepository;
+        this.mongoOperations = mongoOperations;
+        this.metrics = metrics;
     }
 
     @Cacheable(cacheResolver = "customCacheResolver", keyGenerator = "ruleKeyGenerator")
@@ -22,7 +45,43 @@ public class RuleRepositoryService {
         String categoryKey = convertCategoryToString(baseRuleCategory);
         String subCategoryKey = convertCategoryToString(baseRuleSubCategory);
         log.debug("Loading rules from DB for category: {}, subcategory: {}", categoryKey, subCategoryKey);
-        return ruleRepository.findRulesByBaseRuleCategoryAndBaseRuleSubCategory(categoryKey, subCategoryKey);
+        long startTime = System.nanoTime();
+        Collection<Rule> rules = mongoOperations != null
+                ? findRules(categoryKey, subCategoryKey)
+                : ruleRepository.findRulesByBaseRuleCategoryAndBaseRuleSubCategory(categoryKey, subCategoryKey);
+        metrics.rulesLoaded(categoryKey, subCategoryKey, rules != null ? rules.size() : 0, System.nanoTime() - startTime);
+        return rules;
+    }
+
+    /**
+     * Same query as the repository method, with a projection and {@link RuleDocumentReader} instead of Spring Data mapping.
+     */
+    private Collection<Rule> findRules(String categoryKey, String subCategoryKey) {
+        Document filter = new Document("baseRuleCategory", categoryKey)
+                .append("baseRuleSubCategory", subCategoryKey)
+                .append("active", true);
+        List<Rule> rules = new ArrayList<>();
+        for (Document document : mongoOperations.getCollection(mongoOperations.getCollectionName(Rule.class))
+                .find(filter)
+                .projection(RuleDocumentReader.PROJECTION)) {
+            rules.add(RuleDocumentReader.read(document));
+        }
+        return rules;
+    }
+
+    /**
+     * Creates the index the category query runs on, if it does not exist.
+     */
+    static void ensureIndexes(MongoOperations mongoOperations) {
+        try {
+            mongoOperations.indexOps(Rule.class).ensureIndex(new Index()
+                    .on("baseRuleCategory", Sort.Direction.ASC)
+                    .on("baseRuleSubCategory", Sort.Direction.ASC)
+                    .on("active", Sort.Direction.ASC)
+                    .named("category_subcategory_active"));
+        } catch (RuntimeException e) {
+            log.warn("Could not create rule indexes: {}", e.getMessage());
+        }
     }
 
     @Cacheable(value = "rules", key = "'allRules'")
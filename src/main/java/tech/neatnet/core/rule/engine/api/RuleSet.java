@@ -0,0 +1,379 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.neatnet.core.rule.engine.domain.Condition;
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of the rules of one (category, subcategory) together with the structures
+ * derived from them when they are loaded.
+ * <p>
+ * The rules are copied into {@link FrozenRule}s when the snapshot is built, with unmodifiable
+ * collections and setters that throw, so neither the rule cache, callers holding the loaded objects
+ * nor callers handed a rule in a result can change what an evaluation sees. Condition
+ * expressions are compiled up front, and identical conditions of different rules share a predicate id
+ * so an evaluation runs each of them once. A rule set is built once per load and shared by all
+ * evaluations against it; a reload builds a new one with a higher {@link #version()}.
+ */
+@Slf4j
+final class RuleSet {
+
+    private final long version;
+    private final List<Rule> rules;
+    private final Serializable[][] compiledConditions;
+    private final int[][] predicates;
+    private final EqualityIndex equalityIndex;
+    private final RangeIndex rangeIndex;
+    private final CompiledDecisionTable compiledTable;
+    private final InputSchema schema;
+    private final InputLayout layout;
+    private final ExclusiveGroups exclusiveGroups;
+    private final int[][] conditionOrder;
+    private final int[] ruleOrder;
+    private final ConditionStats conditionStats;
+    private volatile CompiledDecisionTrees decisionTrees;
+    private volatile InputLayout treeLayout;
+
+    private RuleSet(long version, List<Rule> rules, Serializable[][] compiledConditions, int[][] predicates,
+                    EqualityIndex equalityIndex, RangeIndex rangeIndex, CompiledDecisionTable compiledTable,
+                    InputSchema schema, InputLayout layout, ExclusiveGroups exclusiveGroups) {
+        this.version = version;
+        this.rules = rules;
+        this.compiledConditions = compiledConditions;
+        this.predicates = predicates;
+        this.equalityIndex = equalityIndex;
+        this.rangeIndex = rangeIndex;
+        this.compiledTable = compiledTable;
+        this.schema = schema;
+        this.layout = layout;
+        this.exclusiveGroups = exclusiveGroups;
+        this.conditionOrder = null;
+        this.ruleOrder = null;
+        this.conditionStats = null;
+    }
+
+    private RuleSet(RuleSet ruleSet, long version, int[][] conditionOrder, int[] ruleOrder, ConditionStats conditionStats) {
+        this.version = version;
+        this.rules = ruleSet.rules;
+        this.compiledConditions = ruleSet.compiledConditions;
+        this.predicates = ruleSet.predicates;
+        this.equalityIndex = ruleSet.equalityIndex;
+        this.rangeIndex = ruleSet.rangeIndex;
+        this.compiledTable = ruleSet.compiledTable;
+        this.schema = ruleSet.schema;
+        this.layout = ruleSet.layout;
+        this.exclusiveGroups = ruleSet.exclusiveGroups;
+        this.conditionOrder = conditionOrder;
+        this.ruleOrder = ruleOrder;
+        this.conditionStats = conditionStats;
+        this.decisionTrees = ruleSet.decisionTrees;
+        this.treeLayout = ruleSet.treeLayout;
+    }
+
+    /**
+     * Builds a rule set.
+     *
+     * @param source         the loaded rules
+     * @param version        version of the snapshot this rule set belongs to
+     * @param compile        whether to generate a {@link CompiledDecisionTable} for the rules
+     * @param coreRuleEngine compiles the condition expressions
+     * @param schema         input schema the expressions are compiled against, or {@code null}
+     */
+    static RuleSet of(Collection<Rule> source, long version, boolean compile, CoreRuleEngine coreRuleEngine,
+                      InputSchema schema) {
+        return of(source, version, compile, coreRuleEngine, schema, null);
+    }
+
+    /**
+     * Builds a rule set reusing condition expressions compiled earlier, as restored from a
+     * {@link RuleSnapshotFile}. Conditions without one are compiled. With a schema nothing is reused,
+     * since the file does not record whether its expressions were compiled against it.
+     *
+     * @param precompiled compiled expressions by rule and condition index, or {@code null}
+     */
+    static RuleSet of(Collection<Rule> source, long version, boolean compile, CoreRuleEngine coreRuleEngine,
+                      InputSchema schema, Serializable[][] precompiled) {
+        if (schema != null) {
+            precompiled = null;
+        }
+        List<Rule> rules = new ArrayList<>(source != null ? source.size() : 0);
+        if (source != null) {
+            source.forEach(rule -> rules.add(freeze(rule)));
+        }
+        Serializable[][] compiledConditions = new Serializable[rules.size()][];
+        Set<String> variables = new LinkedHashSet<>();
+        for (int i = 0; i < rules.size(); i++) {
+            List<Condition> conditions = rules.get(i).getConditions();
+            compiledConditions[i] = new Serializable[conditions.size()];
+            for (int c = 0; c < conditions.size(); c++) {
+                String condition = conditions.get(c).getCondition();
+                Serializable compiled = precompiled != null && i < precompiled.length && c < precompiled[i].length
+                        ? precompiled[i][c] : null;
+                compiledConditions[i][c] = compiled != null
+                        ? compiled : compileCondition(coreRuleEngine, condition, schema);
+                String[] inputs = coreRuleEngine.inputs(condition, schema);
+                if (inputs != null) {
+                    Collections.addAll(variables, inputs);
+                }
+            }
+        }
+        CompiledDecisionTable compiledTable = compile ? DecisionTableCompiler.compile(rules) : null;
+        return new RuleSet(version, Collections.unmodifiableList(rules), compiledConditions, predicates(rules),
+                EqualityIndex.build(rules), RangeIndex.build(rules), compiledTable, schema, InputLayout.of(variables),
+                ExclusiveGroups.analyze(rules));
+    }
+
+    /**
+     * Numbers the distinct conditions of the rules: conditions with the same expression and the same
+     * {@code inValues} get the same id.
+     *
+     * @return predicate ids by rule and condition index, or {@code null} if no condition is repeated
+     */
+    private static int[][] predicates(List<Rule> rules) {
+        Map<Predicate, Integer> ids = new HashMap<>();
+        int[][] predicates = new int[rules.size()][];
+        int conditions = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            List<Condition> ruleConditions = rules.get(i).getConditions();
+            predicates[i] = new int[ruleConditions.size()];
+            for (int c = 0; c < ruleConditions.size(); c++) {
+                Condition condition = ruleConditions.get(c);
+                List<Object> inValues = condition.getInValues() != null && !condition.getInValues().isEmpty()
+                        ? condition.getInValues() : null;
+                predicates[i][c] = ids.computeIfAbsent(new Predicate(condition.getCondition(), inValues), key -> ids.size());
+                conditions++;
+            }
+        }
+        if (ids.size() == conditions) {
+            return null;
+        }
+        log.debug("{} conditions share {} predicates", conditions, ids.size());
+        return predicates;
+    }
+
+    private record Predicate(String condition, List<Object> inValues) {
+    }
+
+    /**
+     * An expression that does not compile is left to {@link CoreRuleEngine#evaluateCondition}, so the
+     * error surfaces when the condition is evaluated, as it did before rule sets were precompiled. One
+     * that does not type-check against the schema is evaluated untyped the same way.
+     */
+    private static Serializable compileCondition(CoreRuleEngine coreRuleEngine, String condition, InputSchema schema) {
+        try {
+            return coreRuleEngine.compile(condition, schema);
+        } catch (RuntimeException e) {
+            log.warn("Could not compile condition '{}': {}", condition, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Copies a rule into a {@link FrozenRule} with unmodifiable collections, down to the lists and maps
+     * nested in its results. A rule without conditions gets an empty list, and {@code inValues} become
+     * {@link InValues} so membership tests are hash lookups.
+     */
+    private static Rule freeze(Rule rule) {
+        List<Condition> conditions = new ArrayList<>();
+        if (rule.getConditions() != null) {
+            rule.getConditions().forEach(condition -> conditions.add(freeze(condition)));
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> results = (Map<String, Object>) freezeValue(rule.getResults());
+        return new FrozenRule(rule, Collections.unmodifiableList(conditions), results);
+    }
+
+    private static Condition freeze(Condition condition) {
+        if (condition == null) {
+            return null;
+        }
+        return new FrozenCondition(condition, InValues.of(condition.getInValues()),
+                freeze(condition.getTrueBranch()), freeze(condition.getFalseBranch()));
+    }
+
+    private static Object freezeValue(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>(Math.max(4, map.size() * 4 / 3 + 1));
+            map.forEach((key, element) -> copy.put(key, freezeValue(element)));
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(element -> copy.add(freezeValue(element)));
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    long version() {
+        return version;
+    }
+
+    List<Rule> rules() {
+        return rules;
+    }
+
+    /**
+     * Whether {@code source} holds the same rules, in the same order, as this rule set.
+     */
+    boolean hasRules(Collection<Rule> source) {
+        if (source == null || source.size() != rules.size()) {
+            return source == null && rules.isEmpty();
+        }
+        int i = 0;
+        for (Rule rule : source) {
+            if (!freeze(rule).equals(rules.get(i++))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compiled expression of condition {@code c} of rule {@code i}, or {@code null} if it is empty or
+     * did not compile.
+     */
+    Serializable compiledCondition(int i, int c) {
+        return compiledConditions[i][c];
+    }
+
+    /**
+     * Predicate id of condition {@code c} of rule {@code i}, or {@code -1} if no condition of the rule
+     * set is shared and outcomes need not be remembered.
+     */
+    int predicate(int i, int c) {
+        return predicates != null ? predicates[i][c] : -1;
+    }
+
+    /**
+     * The same rules evaluated in another order.
+     *
+     * @param conditionOrder condition indices in evaluation order by rule, {@code null} for a rule (or
+     *                       all of them) evaluated in stored order
+     * @param ruleOrder      rule indices in evaluation order under {@code FIRST}, permuted only within
+     *                       {@link #exclusiveGroups()}, or {@code null} for the stored order
+     * @param conditionStats where evaluations record condition costs and hits, or {@code null} to not sample
+     */
+    RuleSet withOrder(int[][] conditionOrder, int[] ruleOrder, ConditionStats conditionStats, long version) {
+        return new RuleSet(this, version, conditionOrder, ruleOrder, conditionStats);
+    }
+
+    /**
+     * The same rule set published as another version.
+     */
+    RuleSet withVersion(long version) {
+        return new RuleSet(this, version, conditionOrder, ruleOrder, conditionStats);
+    }
+
+    /**
+     * Runs of rules proven mutually exclusive.
+     */
+    ExclusiveGroups exclusiveGroups() {
+        return exclusiveGroups;
+    }
+
+    /**
+     * Rule indices in evaluation order under {@code FIRST}, or {@code null} for the stored order.
+     */
+    int[] ruleOrder() {
+        return ruleOrder;
+    }
+
+    /**
+     * Condition indices of rule {@code i} in evaluation order, or {@code null} for the stored order.
+     */
+    int[] conditionOrder(int i) {
+        return conditionOrder != null ? conditionOrder[i] : null;
+    }
+
+    /**
+     * The condition samples of this rule set, or {@code null} if conditions are not reordered adaptively.
+     */
+    ConditionStats conditionStats() {
+        return conditionStats;
+    }
+
+    /**
+     * Slots of the input variables read by the rules' conditions.
+     */
+    InputLayout layout() {
+        return layout;
+    }
+
+    EqualityIndex equalityIndex() {
+        return equalityIndex;
+    }
+
+    RangeIndex rangeIndex() {
+        return rangeIndex;
+    }
+
+    /**
+     * The generated evaluator for this rule set, or {@code null} if code generation is off for it.
+     */
+    CompiledDecisionTable compiledTable() {
+        return compiledTable;
+    }
+
+    /**
+     * The rules' conditions as flattened decision trees, compiled on first use. Rule sets that are
+     * only evaluated as decision tables never pay for it.
+     */
+    CompiledDecisionTrees decisionTrees(CoreRuleEngine coreRuleEngine) {
+        CompiledDecisionTrees trees = decisionTrees;
+        if (trees == null) {
+            synchronized (this) {
+                trees = decisionTrees;
+                if (trees == null) {
+                    trees = CompiledDecisionTrees.compile(rules, coreRuleEngine, schema);
+                    decisionTrees = trees;
+                }
+            }
+        }
+        return trees;
+    }
+
+    /**
+     * The input variables read by the rules' decision trees: their conditions, branches and actions.
+     * Collected on first use, like {@link #decisionTrees}.
+     */
+    InputLayout treeLayout(CoreRuleEngine coreRuleEngine) {
+        InputLayout layout = treeLayout;
+        if (layout == null) {
+            Set<String> variables = new LinkedHashSet<>();
+            Deque<Condition> pending = new ArrayDeque<>();
+            rules.forEach(rule -> rule.getConditions().forEach(condition -> {
+                if (condition != null) {
+                    pending.push(condition);
+                }
+            }));
+            while (!pending.isEmpty()) {
+                Condition condition = pending.pop();
+                Collections.addAll(variables, coreRuleEngine.inputs(condition.getCondition(), schema));
+                Collections.addAll(variables, coreRuleEngine.inputs(condition.getAction(), schema));
+                if (condition.getTrueBranch() != null) {
+                    pending.push(condition.getTrueBranch());
+                }
+                if (condition.getFalseBranch() != null) {
+                    pending.push(condition.getFalseBranch());
+                }
+            }
+            layout = InputLayout.of(variables);
+            treeLayout = layout;
+        }
+        return layout;
+    }
+}
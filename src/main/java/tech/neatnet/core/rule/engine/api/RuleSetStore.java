@@ -0,0 +1,588 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.neatnet.core.rule.engine.domain.Condition;
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory store of {@link RuleSet} snapshots, keyed by category and subcategory.
+ * <p>
+ * Evaluations read the current {@link Snapshot} through a two-level map lookup that allocates nothing
+ * and never touches the rule cache. A category seen for the first time is loaded from the
+ * {@link RuleCache} and added in a new snapshot. {@link #reload()} rebuilds every loaded category and
+ * publishes all of them with one reference swap, so an evaluation sees either the old or the new
+ * rules of every category, never a mix within one rule set.
+ * <p>
+ * With a {@link RuleSnapshotFile}, every published snapshot is also written to disk, and
+ * {@link #restore()} serves the rule sets from it at startup.
+ * <p>
+ * With {@code ordering.enabled}, rule sets sample the cost and outcome of their conditions and
+ * {@link #reorder(RuleSet)} publishes a new version with the conditions of each rule reordered.
+ * Orders pinned with {@link #pin(String, int[])} take precedence and are kept across reloads;
+ * adaptive orders start over whenever a rule set is rebuilt.
+ * <p>
+ * Rule sets are built, and the rule cache is queried, without holding a lock; concurrent first calls
+ * for a category share one load. Only copying and publishing a snapshot is serialized. A change
+ * computed from a snapshot that was replaced meanwhile is computed again, and a load or reload that
+ * read the rule cache before a rule changed reads it again.
+ */
+@Slf4j
+final class RuleSetStore {
+
+    private final CoreRuleEngine coreRuleEngine;
+    private final RuleCache ruleCache;
+    private final RuleEngineProperties properties;
+    private final RuleSnapshotFile snapshotFile;
+    private final InputSchemas schemas;
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(0, Collections.emptyMap()));
+    private final Map<String, int[]> pinnedOrders = new ConcurrentHashMap<>();
+    private final Map<Map.Entry<BaseRuleCategory, BaseRuleSubCategory>, CompletableFuture<RuleSet>> loads =
+            new ConcurrentHashMap<>();
+    private final ReentrantLock publishing = new ReentrantLock();
+    /**
+     * Counts changes that may make rules read from the rule cache stale; only modified while publishing.
+     */
+    private volatile long changes;
+
+    /**
+     * @param snapshotFile file every published snapshot is written to, or {@code null}
+     */
+    RuleSetStore(CoreRuleEngine coreRuleEngine, RuleCache ruleCache, RuleEngineProperties properties,
+                 RuleSnapshotFile snapshotFile) {
+        this.coreRuleEngine = coreRuleEngine;
+        this.ruleCache = ruleCache;
+        this.properties = properties;
+        this.snapshotFile = snapshotFile;
+        this.schemas = new InputSchemas(properties.getSchema());
+    }
+
+    /**
+     * Returns the rule set for the category, loading it on first use.
+     */
+    RuleSet get(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        RuleSet ruleSet = current.get().get(ruleCategory, subCategory);
+        return ruleSet != null ? ruleSet : load(ruleCategory, subCategory);
+    }
+
+    /**
+     * The configured input schema of the category, or {@code null}.
+     */
+    InputSchema schema(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        return schemas.get(ruleCategory, subCategory);
+    }
+
+    boolean contains(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        return current.get().get(ruleCategory, subCategory) != null;
+    }
+
+    /**
+     * Version of the current snapshot.
+     */
+    long version() {
+        return current.get().version();
+    }
+
+    /**
+     * Loads one category that is not in the current snapshot. Concurrent first calls for a category
+     * share one load, so they query the rule cache once.
+     */
+    private RuleSet load(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        Map.Entry<BaseRuleCategory, BaseRuleSubCategory> key = new AbstractMap.SimpleImmutableEntry<>(ruleCategory, subCategory);
+        CompletableFuture<RuleSet> loading = new CompletableFuture<>();
+        CompletableFuture<RuleSet> shared = loads.putIfAbsent(key, loading);
+        if (shared != null) {
+            try {
+                return shared.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            RuleSet ruleSet = loadAndPublish(ruleCategory, subCategory);
+            loading.complete(ruleSet);
+            return ruleSet;
+        } catch (RuntimeException e) {
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, loading);
+        }
+    }
+
+    private RuleSet loadAndPublish(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+        while (true) {
+            RuleSet ruleSet = current.get().get(ruleCategory, subCategory);
+            if (ruleSet != null) {
+                return ruleSet;
+            }
+            long changesSeen = changes;
+            RuleSet built = build(ruleCategory, subCategory, 0);
+            publishing.lock();
+            try {
+                Snapshot snapshot = current.get();
+                ruleSet = snapshot.get(ruleCategory, subCategory);
+                if (ruleSet != null) {
+                    return ruleSet;
+                }
+                if (changes != changesSeen) {
+                    log.debug("Rules changed while loading {}:{}, loading again", ruleCategory, subCategory);
+                    continue;
+                }
+                long version = snapshot.version() + 1;
+                ruleSet = built.withVersion(version);
+                Map<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> ruleSets = copy(snapshot.ruleSets());
+                ruleSets.computeIfAbsent(ruleCategory, key -> new HashMap<>()).put(subCategory, ruleSet);
+                publish(new Snapshot(version, ruleSets));
+                log.debug("Loaded {} rules for {}:{} as version {}", ruleSet.rules().size(), ruleCategory, subCategory, version);
+                return ruleSet;
+            } finally {
+                publishing.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reloads every category in the current snapshot from the rule cache and publishes the result.
+     * Categories whose rules did not change keep their rule set; if none changed, nothing is published.
+     *
+     * @return the version of the current snapshot afterwards
+     */
+    long reload() {
+        ruleCache.reloadRules();
+        // loads that read the rule cache before it was reloaded read it again
+        long changesSeen = changed();
+        while (true) {
+            Snapshot snapshot = current.get();
+            Map<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> rebuilt = new HashMap<>();
+            for (Map.Entry<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> byCategory : snapshot.ruleSets().entrySet()) {
+                for (Map.Entry<BaseRuleSubCategory, RuleSet> entry : byCategory.getValue().entrySet()) {
+                    Collection<Rule> rules = ruleCache.findRules(byCategory.getKey(), entry.getKey());
+                    if (!entry.getValue().hasRules(rules)) {
+                        rebuilt.computeIfAbsent(byCategory.getKey(), key -> new HashMap<>())
+                                .put(entry.getKey(), build(byCategory.getKey(), entry.getKey(), rules, 0));
+                    }
+                }
+            }
+            publishing.lock();
+            try {
+                if (changes != changesSeen) {
+                    log.debug("Rules changed while reloading, reloading again");
+                    changesSeen = changes;
+                    continue;
+                }
+                Snapshot latest = current.get();
+                long version = latest.version() + 1;
+                Map<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> ruleSets = copy(latest.ruleSets());
+                int changed = 0;
+                for (Map.Entry<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> byCategory : rebuilt.entrySet()) {
+                    for (Map.Entry<BaseRuleSubCategory, RuleSet> entry : byCategory.getValue().entrySet()) {
+                        ruleSets.get(byCategory.getKey()).put(entry.getKey(), entry.getValue().withVersion(version));
+                        changed++;
+                    }
+                }
+                if (changed == 0) {
+                    log.info("Reloaded rules for {} categories, none changed", ruleSets.size());
+                    return latest.version();
+                }
+                publish(new Snapshot(version, ruleSets));
+                log.info("Reloaded rules for {} categories, {} rule sets changed, as version {}", ruleSets.size(), changed, version);
+                return version;
+            } finally {
+                publishing.unlock();
+            }
+        }
+    }
+
+    /**
+     * Publishes the rule sets stored in the snapshot file, if there is one, without querying the rule
+     * cache. Conditions compiled when the file was written are not compiled again.
+     *
+     * @return whether rule sets were restored
+     */
+    boolean restore() {
+        RuleSnapshotFile.Contents contents = snapshotFile != null ? snapshotFile.read() : null;
+        if (contents == null) {
+            return false;
+        }
+        List<RuleSet> restored = new ArrayList<>(contents.entries().size());
+        for (RuleSnapshotFile.Entry entry : contents.entries()) {
+            restored.add(ordered(RuleSet.of(entry.rules(), contents.version(),
+                    properties.getCodegen().isEnabledFor(entry.ruleCategory(), entry.subCategory()), coreRuleEngine,
+                    schemas.get(entry.ruleCategory(), entry.subCategory()), entry.compiledConditions()), contents.version()));
+        }
+        publishing.lock();
+        try {
+            Map<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> ruleSets = copy(current.get().ruleSets());
+            for (int e = 0; e < restored.size(); e++) {
+                RuleSnapshotFile.Entry entry = contents.entries().get(e);
+                ruleSets.computeIfAbsent(entry.ruleCategory(), key -> new HashMap<>()).put(entry.subCategory(), restored.get(e));
+            }
+            current.set(new Snapshot(Math.max(contents.version(), current.get().version()), ruleSets));
+        } finally {
+            publishing.unlock();
+        }
+        log.info("Restored {} rule sets from snapshot version {}", contents.entries().size(), contents.version());
+        return true;
+    }
+
+    /**
+     * Applies a change to one rule to the loaded rule sets and republishes only the affected ones.
+     * <p>
+     * An updated rule keeps its position; a new rule is appended, as a fresh query would return it
+     * after the existing ones. A change whose {@code version} (then {@code dateModified}) is older
+     * than the published rule is ignored, so redelivered events cannot roll a rule back. Categories
+     * that are not loaded are left alone; they read the current rules on first use.
+     *
+     * @param ruleId id of the changed rule
+     * @param rule   the rule as now stored, or {@code null} if it was deleted
+     * @return whether a new snapshot was published
+     */
+    boolean apply(String ruleId, Rule rule) {
+        if (ruleId == null) {
+            return false;
+        }
+        // loads that read the rule cache before the change read it again
+        changed();
+        Boolean applied;
+        do {
+            applied = apply(current.get(), ruleId, rule);
+        } while (applied == null);
+        return applied;
+    }
+
+    /**
+     * @return whether a new snapshot was published, or {@code null} if {@code snapshot} was replaced meanwhile
+     */
+    private Boolean apply(Snapshot snapshot, String ruleId, Rule rule) {
+        BaseRuleCategory oldCategory = null;
+        BaseRuleSubCategory oldSubCategory = null;
+        Rule published = null;
+        for (Map.Entry<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> byCategory : snapshot.ruleSets().entrySet()) {
+            for (Map.Entry<BaseRuleSubCategory, RuleSet> entry : byCategory.getValue().entrySet()) {
+                for (Rule candidate : entry.getValue().rules()) {
+                    if (ruleId.equals(candidate.getId())) {
+                        oldCategory = byCategory.getKey();
+                        oldSubCategory = entry.getKey();
+                        published = candidate;
+                    }
+                }
+            }
+        }
+        if (rule != null && published != null && isStale(rule, published)) {
+            log.debug("Ignoring stale change to rule {} (version {})", ruleId, rule.getVersion());
+            return false;
+        }
+        boolean keep = rule != null && rule.isActive();
+        boolean targetLoaded = keep && snapshot.get(rule.getBaseRuleCategory(), rule.getBaseRuleSubCategory()) != null;
+        if (published == null && !targetLoaded) {
+            return false;
+        }
+
+        long version = snapshot.version() + 1;
+        Map<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> ruleSets = copy(snapshot.ruleSets());
+        boolean placed = false;
+        if (published != null) {
+            List<Rule> rules = new ArrayList<>(snapshot.get(oldCategory, oldSubCategory).rules());
+            int position = indexOf(rules, ruleId);
+            if (keep && oldCategory.equals(rule.getBaseRuleCategory()) && oldSubCategory.equals(rule.getBaseRuleSubCategory())) {
+                rules.set(position, rule);
+                placed = true;
+            } else {
+                rules.remove(position);
+            }
+            ruleSets.get(oldCategory).put(oldSubCategory, build(oldCategory, oldSubCategory, rules, version));
+        }
+        if (targetLoaded && !placed) {
+            List<Rule> rules = new ArrayList<>(ruleSets.get(rule.getBaseRuleCategory()).get(rule.getBaseRuleSubCategory()).rules());
+            rules.add(rule);
+            ruleSets.get(rule.getBaseRuleCategory()).put(rule.getBaseRuleSubCategory(),
+                    build(rule.getBaseRuleCategory(), rule.getBaseRuleSubCategory(), rules, version));
+        }
+        if (!publish(snapshot, new Snapshot(version, ruleSets))) {
+            return null;
+        }
+        log.debug("Applied change to rule {} as version {}", ruleId, version);
+        return true;
+    }
+
+    /**
+     * Reorders the conditions of the rules of a published rule set from its samples, see
+     * {@link ConditionStats#order}, and the rules of its exclusive runs by hits, see
+     * {@link ConditionStats#rowOrder}. Rules with a pinned order, or with a condition that may have
+     * side effects, keep their condition order. Does nothing if the rule set has been replaced meanwhile.
+     *
+     * @return whether a new snapshot was published
+     */
+    boolean reorder(RuleSet ruleSet) {
+        ConditionStats stats = ruleSet.conditionStats();
+        if (stats == null || find(current.get(), ruleSet) == null) {
+            return false;
+        }
+        List<Rule> rules = ruleSet.rules();
+        int[][] order = new int[rules.size()][];
+        int reordered = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            int[] current = ruleSet.conditionOrder(i);
+            order[i] = current;
+            if (pinnedOrders.containsKey(rules.get(i).getId()) || !isReorderable(rules.get(i))) {
+                continue;
+            }
+            int[] stored = current != null ? current : identity(rules.get(i).getConditions().size());
+            int[] next = stats.order(i, stored);
+            if (next != stored) {
+                order[i] = next;
+                reordered++;
+            }
+        }
+        int[] ruleOrder = ruleSet.ruleOrder();
+        if (ruleSet.exclusiveGroups().size() > 0) {
+            int[] current = ruleOrder != null ? ruleOrder : identity(rules.size());
+            int[] next = stats.rowOrder(ruleSet.exclusiveGroups(), current);
+            if (next != current) {
+                ruleOrder = next;
+                reordered++;
+            }
+        }
+        if (reordered == 0) {
+            return false;
+        }
+        RuleSet next = ruleSet.withOrder(order, ruleOrder, newStats(rules), 0);
+        while (true) {
+            Snapshot snapshot = current.get();
+            Map.Entry<BaseRuleCategory, BaseRuleSubCategory> key = find(snapshot, ruleSet);
+            if (key == null) {
+                return false;
+            }
+            long version = snapshot.version() + 1;
+            Map<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> ruleSets = copy(snapshot.ruleSets());
+            ruleSets.get(key.getKey()).put(key.getValue(), next.withVersion(version));
+            if (publish(snapshot, new Snapshot(version, ruleSets))) {
+                log.info("Reordered {} rules and runs of {}:{} as version {}", reordered, key.getKey(), key.getValue(), version);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Pins the order in which the conditions of a rule are evaluated, or unpins it. A loaded rule set
+     * holding the rule is republished with the new order.
+     *
+     * @param order condition indices in evaluation order, or {@code null} to unpin
+     * @throws IllegalArgumentException if the order is not a permutation of the loaded rule's conditions
+     */
+    void pin(String ruleId, int[] order) {
+        for (Map.Entry<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> byCategory : current.get().ruleSets().entrySet()) {
+            for (Map.Entry<BaseRuleSubCategory, RuleSet> entry : byCategory.getValue().entrySet()) {
+                int i = indexOf(entry.getValue().rules(), ruleId);
+                if (i >= 0 && order != null && !isPermutation(order, entry.getValue().rules().get(i).getConditions().size())) {
+                    throw new IllegalArgumentException("Order " + Arrays.toString(order)
+                            + " is not a permutation of the conditions of rule " + ruleId);
+                }
+            }
+        }
+        if (order != null) {
+            pinnedOrders.put(ruleId, order.clone());
+        } else if (pinnedOrders.remove(ruleId) == null) {
+            return;
+        }
+        // loads that built the rule set before the pin build it again
+        changed();
+        while (true) {
+            Snapshot snapshot = current.get();
+            long version = snapshot.version() + 1;
+            Map<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> ruleSets = copy(snapshot.ruleSets());
+            boolean changed = false;
+            for (Map<BaseRuleSubCategory, RuleSet> bySubCategory : ruleSets.values()) {
+                for (Map.Entry<BaseRuleSubCategory, RuleSet> entry : bySubCategory.entrySet()) {
+                    RuleSet ruleSet = entry.getValue();
+                    int i = indexOf(ruleSet.rules(), ruleId);
+                    if (i >= 0) {
+                        int[][] orders = new int[ruleSet.rules().size()][];
+                        for (int r = 0; r < orders.length; r++) {
+                            orders[r] = r == i ? pinnedOrders.get(ruleId) : ruleSet.conditionOrder(r);
+                        }
+                        entry.setValue(ruleSet.withOrder(orders, ruleSet.ruleOrder(), ruleSet.conditionStats() != null
+                                ? newStats(ruleSet.rules()) : null, version));
+                        changed = true;
+                    }
+                }
+            }
+            if (!changed) {
+                return;
+            }
+            if (publish(snapshot, new Snapshot(version, ruleSets))) {
+                log.info("{} the condition order of rule {} as version {}", order != null ? "Pinned" : "Unpinned", ruleId, version);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Applies pinned orders to a newly built rule set and starts sampling it if ordering is enabled.
+     */
+    private RuleSet ordered(RuleSet ruleSet, long version) {
+        int[][] orders = null;
+        if (!pinnedOrders.isEmpty()) {
+            List<Rule> rules = ruleSet.rules();
+            for (int i = 0; i < rules.size(); i++) {
+                int[] pinned = rules.get(i).getId() != null ? pinnedOrders.get(rules.get(i).getId()) : null;
+                if (pinned != null && isPermutation(pinned, rules.get(i).getConditions().size())) {
+                    if (orders == null) {
+                        orders = new int[rules.size()][];
+                    }
+                    orders[i] = pinned;
+                }
+            }
+        }
+        ConditionStats stats = newStats(ruleSet.rules());
+        return orders != null || stats != null ? ruleSet.withOrder(orders, null, stats, version) : ruleSet;
+    }
+
+    private ConditionStats newStats(List<Rule> rules) {
+        RuleEngineProperties.OrderingProperties ordering = properties.getOrdering();
+        return ordering.isEnabled() ? new ConditionStats(rules, ordering.getSampleRate(), ordering.getReorderInterval()) : null;
+    }
+
+    private static boolean isReorderable(Rule rule) {
+        if (rule.getConditions().size() < 2) {
+            return false;
+        }
+        for (Condition condition : rule.getConditions()) {
+            if (!ConditionStats.isSideEffectFree(condition.getCondition())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPermutation(int[] order, int conditions) {
+        if (order.length != conditions) {
+            return false;
+        }
+        boolean[] seen = new boolean[conditions];
+        for (int c : order) {
+            if (c < 0 || c >= conditions || seen[c]) {
+                return false;
+            }
+            seen[c] = true;
+        }
+        return true;
+    }
+
+    private static int[] identity(int conditions) {
+        int[] order = new int[conditions];
+        for (int c = 0; c < conditions; c++) {
+            order[c] = c;
+        }
+        return order;
+    }
+
+    private static Map.Entry<BaseRuleCategory, BaseRuleSubCategory> find(Snapshot snapshot, RuleSet ruleSet) {
+        for (Map.Entry<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> byCategory : snapshot.ruleSets().entrySet()) {
+            for (Map.Entry<BaseRuleSubCategory, RuleSet> entry : byCategory.getValue().entrySet()) {
+                if (entry.getValue() == ruleSet) {
+                    return Map.entry(byCategory.getKey(), entry.getKey());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Publishes {@code next} unless the current snapshot is no longer {@code expected}.
+     */
+    private boolean publish(Snapshot expected, Snapshot next) {
+        publishing.lock();
+        try {
+            if (current.get() != expected) {
+                return false;
+            }
+            publish(next);
+            return true;
+        } finally {
+            publishing.unlock();
+        }
+    }
+
+    /**
+     * Must be called while publishing.
+     */
+    private void publish(Snapshot snapshot) {
+        current.set(snapshot);
+        if (snapshotFile != null) {
+            snapshotFile.writeAsync(snapshot);
+        }
+    }
+
+    /**
+     * Records a change that may make rules already read from the rule cache stale.
+     *
+     * @return the new count of changes
+     */
+    private long changed() {
+        publishing.lock();
+        try {
+            return ++changes;
+        } finally {
+            publishing.unlock();
+        }
+    }
+
+    private static boolean isStale(Rule change, Rule published) {
+        if (change.getVersion() != published.getVersion()) {
+            return change.getVersion() < published.getVersion();
+        }
+        return change.getDateModified() != null && published.getDateModified() != null
+                && change.getDateModified().isBefore(published.getDateModified());
+    }
+
+    private static int indexOf(List<Rule> rules, String ruleId) {
+        for (int i = 0; i < rules.size(); i++) {
+            if (ruleId.equals(rules.get(i).getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private RuleSet build(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, Collection<Rule> rules, long version) {
+        return ordered(RuleSet.of(rules, version, properties.getCodegen().isEnabledFor(ruleCategory, subCategory), coreRuleEngine,
+                schemas.get(ruleCategory, subCategory)), version);
+    }
+
+    private RuleSet build(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, long version) {
+        return build(ruleCategory, subCategory, ruleCache.findRules(ruleCategory, subCategory), version);
+    }
+
+    private static Map<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> copy(
+            Map<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> ruleSets) {
+        Map<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> copy = new HashMap<>();
+        ruleSets.forEach((ruleCategory, bySubCategory) -> copy.put(ruleCategory, new HashMap<>(bySubCategory)));
+        return copy;
+    }
+
+    /**
+     * The rule sets published together. Never modified after construction.
+     */
+    record Snapshot(long version, Map<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> ruleSets) {
+
+        RuleSet get(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory) {
+            Map<BaseRuleSubCategory, RuleSet> bySubCategory = ruleSets.get(ruleCategory);
+            return bySubCategory != null ? bySubCategory.get(subCategory) : null;
+        }
+    }
+}
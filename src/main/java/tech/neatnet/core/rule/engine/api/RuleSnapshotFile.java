@@ -0,0 +1,298 @@
+package tech.neatnet.core.rule.engine.api;
+
+import lombok.extern.slf4j.Slf4j;
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Local file holding the published rule sets and their compiled condition expressions.
+ * <p>
+ * The file starts with a fixed header (magic, format, snapshot version, number of rule sets) followed
+ * by Java-serialized rule sets. Each compiled expression is serialized on its own, so one that does
+ * not serialize is simply recompiled on restore. The file is written to a temporary file and moved
+ * into place, and read through a memory mapping.
+ * <p>
+ * Reading only deserializes the rule and category classes, MVEL's compiled expression classes and
+ * the {@code java.base} strings, numbers, dates and collections rules are made of. A file holding
+ * any other class is ignored, and a compiled expression holding one is recompiled.
+ */
+@Slf4j
+final class RuleSnapshotFile implements AutoCloseable {
+
+    private static final int MAGIC = 0x52554C45;
+    private static final int FORMAT = 1;
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+    private static final int MAX_DEPTH = 1000;
+
+    private static final Set<String> JAVA_CLASSES = Set.of(
+            "java.lang.String", "java.lang.Boolean", "java.lang.Character", "java.lang.Number", "java.lang.Byte",
+            "java.lang.Short", "java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double",
+            "java.lang.Enum", "java.math.BigDecimal", "java.math.BigInteger", "java.time.Instant", "java.time.Ser",
+            "java.util.Date", "java.util.ArrayList", "java.util.LinkedList", "java.util.Arrays$ArrayList",
+            "java.util.Map$Entry", "java.util.HashMap", "java.util.LinkedHashMap", "java.util.TreeMap", "java.util.HashSet",
+            "java.util.LinkedHashSet", "java.util.TreeSet", "java.util.CollSer",
+            "java.util.concurrent.ConcurrentHashMap", "java.util.concurrent.ConcurrentHashMap$Segment");
+    private static final List<String> JAVA_PACKAGES = List.of("java.util.Collections$", "java.util.ImmutableCollections$");
+    private static final String DOMAIN_PACKAGE = "tech.neatnet.core.rule.engine.domain.";
+    private static final List<String> COMPILED_PACKAGES = List.of("org.mvel2.", "java.util.concurrent.locks.");
+
+    private static final ObjectInputFilter RULES_FILTER = info -> check(info, false);
+    private static final ObjectInputFilter COMPILED_FILTER = info -> check(info, true);
+
+    /**
+     * A rule set as stored in the file.
+     */
+    record Entry(BaseRuleCategory ruleCategory, BaseRuleSubCategory subCategory, List<Rule> rules,
+                 Serializable[][] compiledConditions) {
+    }
+
+    /**
+     * Contents of a snapshot file.
+     */
+    record Contents(long version, List<Entry> entries) {
+    }
+
+    private final Path path;
+    private final AtomicReference<RuleSetStore.Snapshot> pending = new AtomicReference<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rule-engine-snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    RuleSnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Writes the snapshot in the background. Snapshots published while a write is queued replace it,
+     * so only the latest one is written.
+     */
+    void writeAsync(RuleSetStore.Snapshot snapshot) {
+        if (pending.getAndSet(snapshot) == null) {
+            writer.execute(() -> {
+                RuleSetStore.Snapshot latest = pending.getAndSet(null);
+                if (latest != null) {
+                    write(latest);
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the snapshot, replacing the file. Failures are logged; the engine keeps running without a file.
+     */
+    void write(RuleSetStore.Snapshot snapshot) {
+        int size = snapshot.ruleSets().values().stream().mapToInt(Map::size).sum();
+        Path temporary = null;
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+                DataOutputStream header = new DataOutputStream(file);
+                header.writeInt(MAGIC);
+                header.writeInt(FORMAT);
+                header.writeLong(snapshot.version());
+                header.writeInt(size);
+                header.flush();
+                ObjectOutputStream out = new ObjectOutputStream(file);
+                for (Map.Entry<BaseRuleCategory, Map<BaseRuleSubCategory, RuleSet>> byCategory : snapshot.ruleSets().entrySet()) {
+                    for (Map.Entry<BaseRuleSubCategory, RuleSet> entry : byCategory.getValue().entrySet()) {
+                        List<Rule> rules = entry.getValue().rules();
+                        out.writeObject(byCategory.getKey());
+                        out.writeObject(entry.getKey());
+                        out.writeObject(new ArrayList<>(rules));
+                        for (int r = 0; r < rules.size(); r++) {
+                            int conditions = rules.get(r).getConditions().size();
+                            out.writeInt(conditions);
+                            for (int c = 0; c < conditions; c++) {
+                                out.writeObject(serialize(entry.getValue().compiledCondition(r, c)));
+                            }
+                        }
+                    }
+                }
+                out.flush();
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote rule snapshot version {} with {} rule sets to {}", snapshot.version(), size, path);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write rule snapshot to {}: {}", path, e.getMessage());
+            deleteQuietly(temporary);
+        }
+    }
+
+    private static void deleteQuietly(Path temporary) {
+        if (temporary != null) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                log.debug("Could not delete {}", temporary, e);
+            }
+        }
+    }
+
+    /**
+     * Reads the file.
+     *
+     * @return the contents, or {@code null} if there is no file or it cannot be read
+     */
+    Contents read() {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                log.warn("Ignoring rule snapshot {} with unknown format", path);
+                return null;
+            }
+            long version = buffer.getLong();
+            int size = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(size);
+            try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(buffer))) {
+                in.setObjectInputFilter(RULES_FILTER);
+                for (int e = 0; e < size; e++) {
+                    BaseRuleCategory ruleCategory = (BaseRuleCategory) in.readObject();
+                    BaseRuleSubCategory subCategory = (BaseRuleSubCategory) in.readObject();
+                    @SuppressWarnings("unchecked")
+                    List<Rule> rules = (List<Rule>) in.readObject();
+                    Serializable[][] compiledConditions = new Serializable[rules.size()][];
+                    for (int r = 0; r < rules.size(); r++) {
+                        compiledConditions[r] = new Serializable[in.readInt()];
+                        for (int c = 0; c < compiledConditions[r].length; c++) {
+                            compiledConditions[r][c] = deserialize((byte[]) in.readObject());
+                        }
+                    }
+                    entries.add(new Entry(ruleCategory, subCategory, rules, compiledConditions));
+                }
+            }
+            log.info("Read rule snapshot version {} with {} rule sets from {}", version, size, path);
+            return new Contents(version, entries);
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            log.warn("Could not read rule snapshot {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Finishes a queued write, waiting for it up to {@link #CLOSE_TIMEOUT}.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Rule snapshot was not written within {}", CLOSE_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] serialize(Serializable compiled) {
+        if (compiled == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(compiled);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Serializable deserialize(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            in.setObjectInputFilter(COMPILED_FILTER);
+            return (Serializable) in.readObject();
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Allows the classes rules are made of, and with {@code compiled} also MVEL's.
+     */
+    private static ObjectInputFilter.Status check(ObjectInputFilter.FilterInfo info, boolean compiled) {
+        if (info.depth() > MAX_DEPTH) {
+            return ObjectInputFilter.Status.REJECTED;
+        }
+        Class<?> type = info.serialClass();
+        if (type == null) {
+            return ObjectInputFilter.Status.UNDECIDED;
+        }
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        String name = type.getName();
+        boolean allowed = type.isPrimitive()
+                || type == Object.class
+                || JAVA_CLASSES.contains(name)
+                || JAVA_PACKAGES.stream().anyMatch(name::startsWith)
+                || name.startsWith(DOMAIN_PACKAGE)
+                || BaseRuleCategory.class.isAssignableFrom(type)
+                || BaseRuleSubCategory.class.isAssignableFrom(type)
+                || compiled && (COMPILED_PACKAGES.stream().anyMatch(name::startsWith) || type == Class.class);
+        return allowed ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
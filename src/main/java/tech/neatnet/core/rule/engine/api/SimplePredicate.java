@@ -0,0 +1,226 @@
+package tech.neatnet.core.rule.engine.api;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A comparison of a single input variable against a literal, recognised in a
+ * condition string such as {@code customerType == 'premium'} or {@code orderTotal >= 100}.
+ * <p>
+ * Only the small subset whose MVEL semantics can be reproduced exactly is recognised:
+ * a plain identifier on one side, a string, boolean or decimal literal on the other,
+ * and one of {@code == != < <= > >=}. Anything else is left to MVEL.
+ */
+record SimplePredicate(String variable, Operator operator, Object literal) {
+
+    enum Operator {
+        EQ("=="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * Operator to use when the operands are swapped, e.g. {@code 5 < x} becomes {@code x > 5}.
+         */
+        Operator flip() {
+            return switch (this) {
+                case LT -> GT;
+                case LE -> GE;
+                case GT -> LT;
+                case GE -> LE;
+                default -> this;
+            };
+        }
+
+        static Operator of(String symbol) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operator: " + symbol);
+        }
+    }
+
+    private static final String OPERAND = "([A-Za-z_$][A-Za-z0-9_$]*|'[^'\\\\]*'|\"[^\"\\\\]*\"|-?\\d+(?:\\.\\d+)?)";
+    private static final Pattern COMPARISON =
+            Pattern.compile("^\\s*" + OPERAND + "\\s*(==|!=|<=|>=|<|>)\\s*" + OPERAND + "\\s*$");
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+    private static final List<String> RESERVED = List.of("true", "false", "null", "nil", "empty", "inValues");
+
+    /**
+     * Parses a single comparison. Returns {@code null} if the expression is not a simple predicate.
+     */
+    static SimplePredicate parse(String expression) {
+        if (expression == null) {
+            return null;
+        }
+        Matcher matcher = COMPARISON.matcher(stripParentheses(expression));
+        if (!matcher.matches()) {
+            return null;
+        }
+        String left = matcher.group(1);
+        String right = matcher.group(3);
+        Operator operator = Operator.of(matcher.group(2));
+        if (isVariable(left) && !isVariable(right)) {
+            Object literal = parseLiteral(right);
+            return literal != null ? new SimplePredicate(left, operator, literal) : null;
+        }
+        if (isVariable(right) && !isVariable(left)) {
+            Object literal = parseLiteral(left);
+            return literal != null ? new SimplePredicate(right, operator.flip(), literal) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Splits an expression on its top-level {@code &&} operators and parses every conjunct.
+     * Conjuncts that are not simple predicates are skipped; {@link Conjunction#complete()}
+     * tells whether the whole expression is covered by the returned predicates.
+     */
+    static Conjunction parseConjunction(String expression) {
+        if (expression == null || expression.isBlank()) {
+            return Conjunction.EMPTY;
+        }
+        List<String> parts = splitTopLevelAnd(stripParentheses(expression));
+        if (parts == null) {
+            return Conjunction.EMPTY;
+        }
+        List<SimplePredicate> predicates = new ArrayList<>(parts.size());
+        for (String part : parts) {
+            SimplePredicate predicate = parse(part);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        return new Conjunction(Collections.unmodifiableList(predicates), predicates.size() == parts.size());
+    }
+
+    /**
+     * Normalises an input value so that it can be compared with a parsed literal by {@code equals}.
+     * Returns {@code null} for values whose MVEL comparison semantics are not reproduced here
+     * (floats, characters, arbitrary objects, non-finite doubles).
+     */
+    static Object normalize(Object value) {
+        if (value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue()).stripTrailingZeros();
+        }
+        if (value instanceof Double d) {
+            return Double.isFinite(d) ? BigDecimal.valueOf(d).stripTrailingZeros() : null;
+        }
+        if (value instanceof BigDecimal bd) {
+            return bd.stripTrailingZeros();
+        }
+        if (value instanceof BigInteger bi) {
+            return new BigDecimal(bi).stripTrailingZeros();
+        }
+        return null;
+    }
+
+    private static boolean isVariable(String operand) {
+        return IDENTIFIER.matcher(operand).matches() && !RESERVED.contains(operand);
+    }
+
+    private static Object parseLiteral(String operand) {
+        char first = operand.charAt(0);
+        if (first == '\'' || first == '"') {
+            return operand.substring(1, operand.length() - 1);
+        }
+        if ("true".equals(operand) || "false".equals(operand)) {
+            return Boolean.valueOf(operand);
+        }
+        if (first == '-' || Character.isDigit(first)) {
+            return new BigDecimal(operand).stripTrailingZeros();
+        }
+        return null;
+    }
+
+    private static String stripParentheses(String expression) {
+        String trimmed = expression.trim();
+        while (trimmed.startsWith("(") && closingParenthesis(trimmed, 0) == trimmed.length() - 1) {
+            trimmed = trimmed.substring(1, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+
+    private static int closingParenthesis(String expression, int open) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = open; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the top-level {@code &&} operands, or {@code null} if the expression contains
+     * top-level operators that bind looser than {@code &&} and therefore cannot be split.
+     */
+    private static List<String> splitTopLevelAnd(String expression) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        char quote = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            switch (c) {
+                case '\'', '"' -> quote = c;
+                case '(', '[', '{' -> depth++;
+                case ')', ']', '}' -> depth--;
+                default -> {
+                    if (depth != 0) {
+                        break;
+                    }
+                    if (c == '|' || c == '?' || c == ';') {
+                        return null;
+                    }
+                    if (c == '&' && i + 1 < expression.length() && expression.charAt(i + 1) == '&') {
+                        parts.add(expression.substring(start, i));
+                        start = i + 2;
+                        i++;
+                    }
+                }
+            }
+        }
+        parts.add(expression.substring(start));
+        return parts;
+    }
+
+    /**
+     * The simple predicates found in one expression.
+     *
+     * @param predicates parsed conjuncts, in source order
+     * @param complete   {@code true} if the expression is exactly the conjunction of {@code predicates}
+     */
+    record Conjunction(List<SimplePredicate> predicates, boolean complete) {
+        static final Conjunction EMPTY = new Conjunction(List.of(), false);
+    }
+}
@@ -42,16 +42,7 @@ public class SpecificMongoConverters {
 
         @Override
         public BaseRuleCategory convert(String source) {
-            try {
-                String[] split = source.split(":");
-                Class<?> clazz = Class.forName(split[0]);
-                if (BaseRuleCategory.class.isAssignableFrom(clazz)) {
-                    return (BaseRuleCategory) clazz.getMethod("valueOf", String.class).invoke(null, split[1]);
-                }
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-            return null;
+            return CategoryRegistry.resolve(source, BaseRuleCategory.class);
         }
 
         @Override
@@ -66,16 +57,7 @@ public class SpecificMongoConverters {
 
         @Override
         public BaseRuleSubCategory convert(String source) {
-            try {
-                String[] split = source.split(":");
-                Class<?> clazz = Class.forName(split[0]);
-                if (BaseRuleSubCategory.class.isAssignableFrom(clazz)) {
-                    return (BaseRuleSubCategory) clazz.getMethod("valueOf", String.class).invoke(null, split[1]);
-                }
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-            return null;
+            return CategoryRegistry.resolve(source, BaseRuleSubCategory.class);
         }
 
         @Override
@@ -0,0 +1,40 @@
+package tech.neatnet.core.rule.engine.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A run of consecutive rules of a category that no input can match more than one of. Under
+ * {@link HitPolicy#FIRST} the engine may evaluate the rules of a run in any order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExclusiveRuleGroup {
+    /**
+     * Index of the first rule of the run.
+     */
+    private int fromIndex;
+    /**
+     * Index after the last rule of the run.
+     */
+    private int toIndex;
+    /**
+     * Ids of the rules of the run, in stored order.
+     */
+    private List<String> ruleIds;
+    /**
+     * Variables whose conditions proved the rules exclusive.
+     */
+    private Set<String> variables;
+    /**
+     * Ids of the rules of the run in the order they are evaluated under {@link HitPolicy#FIRST}.
+     */
+    private List<String> evaluationOrder;
+}
@@ -15,6 +15,10 @@ public class RuleExecutionResult {
 
     private Metadata metadata;
     private Rule rule;
+    /**
+     * Version of the rules the result was evaluated against; increases with every reload.
+     */
+    private long ruleSetVersion;
     private boolean ruleCriteriaMet;
     private Map<String, Object> results;
 }
@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 
@@ -14,8 +15,24 @@ import java.util.Map;
 @AllArgsConstructor
 public class TreeExecutionResult {
     private Rule rule;
+    /**
+     * Version of the rules the result was evaluated against; increases with every reload.
+     */
+    private long ruleSetVersion;
     private Condition condition;
     private boolean ruleCriteriaMet;
     private Map<String, Object> results;
+    /**
+     * Nodes from the root to the node where evaluation ended. Only set when the path is recorded.
+     */
     private List<Condition> executedNodes;
+    /**
+     * Branches taken from the root: bit {@code i} is set if the condition at depth {@code i} was true.
+     * Only set when the path is recorded.
+     */
+    private BitSet branchPath;
+    /**
+     * Number of conditions evaluated on the path.
+     */
+    private int pathLength;
 }
@@ -0,0 +1,167 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import tech.neatnet.core.rule.engine.domain.*;
+import tech.neatnet.core.rule.engine.exceptions.RuleEngineClientProcessingException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncRuleEngineClientTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrencyIsBoundedAndColdCategoryLoadedOnce() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger loads = new AtomicInteger();
+        List<Rule> rules = List.of(Rule.builder()
+                .conditions(List.of(Condition.builder().condition("orderTotal > 100").build()))
+                .build());
+        RuleCache ruleCache = mock(RuleCache.class);
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenAnswer(invocation -> {
+            loads.incrementAndGet();
+            sleep();
+            return rules;
+        });
+        RuleEngine ruleEngine = new RuleEngine(new CoreRuleEngine(), ruleCache, new RuleEngineProperties());
+        RuleEngineClient client = mock(RuleEngineClient.class);
+        when(client.evaluateRules(any(), any(), any(), any())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep();
+            running.decrementAndGet();
+            return ruleEngine.evaluateMatrices(invocation.getArgument(0), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+        });
+        AsyncRuleEngineClient asyncClient = new AsyncRuleEngineClientImpl(client, ruleEngine, executor, 2);
+
+        List<CompletableFuture<List<RuleExecutionResult>>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(asyncClient.evaluateRulesAsync(Map.of("orderTotal", i * 50), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i * 50 > 100, futures.get(i).get().get(0).isRuleCriteriaMet());
+        }
+        assertTrue(maxRunning.get() <= 2, "at most 2 evaluations in flight, was " + maxRunning.get());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testFailuresAndReactiveOrdering() throws Exception {
+        RuleEngine ruleEngine = mock(RuleEngine.class);
+        when(ruleEngine.isLoaded(Category.PRICING, Category.DEFAULT)).thenReturn(true);
+        RuleEngineClient client = mock(RuleEngineClient.class);
+        when(client.evaluateRules(any(), any(), any(), any())).thenAnswer(invocation -> {
+            Map<String, Object> input = invocation.getArgument(0);
+            if (input.isEmpty()) {
+                throw new RuleEngineClientProcessingException("Input variables cannot be empty");
+            }
+            Thread.sleep(50 - (int) input.get("delay"));
+            return List.of(RuleExecutionResult.builder().results(input).build());
+        });
+        AsyncRuleEngineClient asyncClient = new AsyncRuleEngineClientImpl(client, ruleEngine, executor, 4);
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> asyncClient.evaluateRulesAsync(Map.of(), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST).get());
+        assertInstanceOf(RuleEngineClientProcessingException.class, error.getCause());
+
+        ReactiveRuleEngineClient reactiveClient = new ReactiveRuleEngineClientImpl(asyncClient, 4);
+        List<Object> delays = reactiveClient.evaluateRules(
+                        Flux.range(0, 8).map(i -> Map.<String, Object>of("delay", i * 5)),
+                        Category.PRICING, Category.DEFAULT, HitPolicy.FIRST)
+                .map(results -> results.get(0).getResults().get("delay"))
+                .collectList()
+                .block();
+        assertEquals(List.of(0, 5, 10, 15, 20, 25, 30, 35), delays);
+        verify(ruleEngine, times(0)).load(any(), any());
+    }
+
+    @Test
+    public void testRejectsCallsBeyondQueueCapacity() throws Exception {
+        RuleEngine ruleEngine = mock(RuleEngine.class);
+        when(ruleEngine.isLoaded(Category.PRICING, Category.DEFAULT)).thenReturn(true);
+        CountDownLatch release = new CountDownLatch(1);
+        RuleEngineClient client = mock(RuleEngineClient.class);
+        when(client.evaluateRules(any(), any(), any(), any())).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+        AsyncRuleEngineClient asyncClient = new AsyncRuleEngineClientImpl(client, ruleEngine, executor, 1, 2);
+
+        List<CompletableFuture<List<RuleExecutionResult>>> accepted = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            accepted.add(asyncClient.evaluateRulesAsync(Map.of("i", i), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST));
+        }
+        CompletableFuture<List<RuleExecutionResult>> rejected =
+                asyncClient.evaluateRulesAsync(Map.of("i", 3), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+
+        ExecutionException error = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+        release.countDown();
+        for (CompletableFuture<List<RuleExecutionResult>> future : accepted) {
+            assertEquals(List.of(), future.get());
+        }
+        assertEquals(List.of(), asyncClient.evaluateRulesAsync(Map.of("i", 4), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST).get());
+    }
+
+    @Test
+    public void testFailsQueuedCallsTheExecutorRejects() throws Exception {
+        RuleEngine ruleEngine = mock(RuleEngine.class);
+        when(ruleEngine.isLoaded(Category.PRICING, Category.DEFAULT)).thenReturn(true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RuleEngineClient client = mock(RuleEngineClient.class);
+        when(client.evaluateRules(any(), any(), any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return List.of();
+        });
+        ExecutorService delegate = Executors.newSingleThreadExecutor();
+        AsyncRuleEngineClient asyncClient = new AsyncRuleEngineClientImpl(client, ruleEngine, delegate, 1);
+
+        CompletableFuture<List<RuleExecutionResult>> running =
+                asyncClient.evaluateRulesAsync(Map.of("i", 0), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+        CompletableFuture<List<RuleExecutionResult>> queued =
+                asyncClient.evaluateRulesAsync(Map.of("i", 1), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // the queued call is handed to the delegate by the running one, after the delegate shut down
+        delegate.shutdown();
+        release.countDown();
+
+        assertEquals(List.of(), running.get(5, TimeUnit.SECONDS));
+        ExecutionException error = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
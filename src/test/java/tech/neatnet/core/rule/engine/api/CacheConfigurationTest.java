@@ -0,0 +1,48 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.jcache.JCacheCacheManager;
+import org.springframework.util.unit.DataSize;
+import tech.neatnet.core.rule.engine.domain.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CacheConfigurationTest {
+
+    @Test
+    public void testKeepsPersistentDiskTierAcrossRestarts(@TempDir Path directory) {
+        Rule rule = Rule.builder()
+                .id("gold")
+                .active(true)
+                .baseRuleCategory(Category.PRICING)
+                .baseRuleSubCategory(Category.DEFAULT)
+                .conditions(List.of(Condition.builder().condition("segment == 'GOLD'").build()))
+                .results(Map.of("discount", 10))
+                .build();
+        RuleEngineProperties properties = new RuleEngineProperties();
+        RuleEngineProperties.CacheProperties.CacheConfig config = new RuleEngineProperties.CacheProperties.CacheConfig();
+        config.setName("tiered-rules");
+        config.setHeapSize(1);
+        config.setOffHeapSize(DataSize.ofMegabytes(4));
+        config.setDiskSize(DataSize.ofMegabytes(16));
+        config.setDiskPersistent(true);
+        config.setTimeToLive(Duration.ofHours(1));
+        properties.getCache().setConfigs(List.of(config));
+        properties.getCache().setDiskPath(directory.toString());
+
+        CacheConfiguration first = new CacheConfiguration(properties);
+        first.jCacheCacheManager().getCache("tiered-rules").put("PRICING:DEFAULT", List.of(rule));
+        first.closePersistentCaches();
+
+        CacheConfiguration second = new CacheConfiguration(properties);
+        JCacheCacheManager restarted = second.jCacheCacheManager();
+        assertEquals(List.of(rule), restarted.getCache("tiered-rules").get("PRICING:DEFAULT").get());
+        second.closePersistentCaches();
+    }
+}
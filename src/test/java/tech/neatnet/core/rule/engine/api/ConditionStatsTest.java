@@ -0,0 +1,23 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConditionStatsTest {
+
+    @Test
+    public void testTreatsMethodCallsAsSideEffectsUnlessReadOnly() {
+        assertTrue(ConditionStats.isSideEffectFree("orderTotal >= 100 && (segment == 'GOLD' || vip)"));
+        assertTrue(ConditionStats.isSideEffectFree("tags.contains('new') && name.startsWith ('A')"));
+        assertTrue(ConditionStats.isSideEffectFree("!items.isEmpty() && items.size() > 2"));
+        assertTrue(ConditionStats.isSideEffectFree("note == 'call list.add(x)'"));
+
+        assertFalse(ConditionStats.isSideEffectFree("counter.incrementAndGet() > 3"));
+        assertFalse(ConditionStats.isSideEffectFree("seen.add(customerId)"));
+        assertFalse(ConditionStats.isSideEffectFree("queue.poll() != null"));
+        assertFalse(ConditionStats.isSideEffectFree("total = orderTotal"));
+        assertFalse(ConditionStats.isSideEffectFree("attempts++ < 3"));
+    }
+}
@@ -0,0 +1,74 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CoreRuleEngineTest {
+
+    @Test
+    public void testExpressionCacheEvictsInsteadOfClearingWhenFull() {
+        CoreRuleEngine coreRuleEngine = new CoreRuleEngine(100);
+        Map<String, Object> data = Map.of("value", 5);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(coreRuleEngine.evaluateCondition("value > 1", data));
+            coreRuleEngine.evaluateCondition("value > " + (i + 10), data);
+        }
+
+        CacheStats stats = coreRuleEngine.getCacheStats();
+        assertTrue(stats.size() <= 100);
+        assertEquals(1_001, stats.missCount());
+        assertEquals(999, stats.hitCount());
+        assertTrue(stats.evictionCount() >= 900);
+        assertTrue(stats.totalLoadTimeNanos() > 0);
+    }
+
+    @Test
+    public void testExpressionCacheBoundedByWeight() {
+        CoreRuleEngine coreRuleEngine = new CoreRuleEngine(10_000, 20_000);
+        Map<String, Object> data = Map.of("value", 5);
+
+        for (int i = 0; i < 500; i++) {
+            coreRuleEngine.evaluateCondition("value > " + i, data);
+        }
+
+        CacheStats stats = coreRuleEngine.getCacheStats();
+        assertTrue(stats.size() < 500);
+        assertTrue(stats.evictionCount() > 0);
+    }
+
+    @Test
+    public void testInValuesDoNotMutateImmutableInput() {
+        CoreRuleEngine coreRuleEngine = new CoreRuleEngine();
+        Map<String, Object> input = Map.of("merchantId", "m-2");
+
+        assertTrue(coreRuleEngine.evaluate("inValues contains merchantId", input, Optional.of(new String[]{"m-1", "m-2"})));
+
+        InputVariableResolverFactory variables = new InputVariableResolverFactory(input);
+        assertFalse(coreRuleEngine.evaluateCondition("inValues contains merchantId", variables.forCondition(List.of("m-3"))));
+        assertTrue(coreRuleEngine.evaluateCondition("limit = 2; limit > 1 && merchantId == 'm-2'", variables.forCondition(null)));
+        assertEquals(Map.of("merchantId", "m-2"), input);
+    }
+
+    @Test
+    public void testDoesNotCacheExpressionsThatFailToCompile() {
+        CoreRuleEngine coreRuleEngine = new CoreRuleEngine();
+        Map<String, Object> data = Map.of("value", 5);
+
+        assertThrows(RuntimeException.class, () -> coreRuleEngine.evaluateCondition("value >", data));
+        assertThrows(RuntimeException.class, () -> coreRuleEngine.evaluateCondition("value >", data));
+
+        CacheStats stats = coreRuleEngine.getCacheStats();
+        assertEquals(0, stats.size());
+        assertEquals(2, stats.missCount());
+        assertEquals(0, stats.hitCount());
+    }
+}
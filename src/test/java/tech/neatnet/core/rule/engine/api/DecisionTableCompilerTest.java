@@ -0,0 +1,123 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import tech.neatnet.core.rule.engine.domain.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DecisionTableCompilerTest {
+
+    private static final List<String> CONDITIONS = List.of(
+            "orderTotal > 100", "orderTotal <= 250.5", "100 < orderTotal && orderTotal < 500",
+            "orderTotal == 150", "orderTotal != 0.1", "quantity >= 3", "quantity == 1",
+            "customerType == 'premium'", "customerType != 'basic'", "vip == true", "vip != false",
+            "customerType.length() > 3", "quantity * 2 > orderTotal");
+
+    @Test
+    public void testCompiledTableMatchesInterpretedEvaluation() {
+        Random random = new Random(42);
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            List<Condition> conditions = new ArrayList<>();
+            for (int c = random.nextInt(3) + 1; c > 0; c--) {
+                conditions.add(Condition.builder().condition(CONDITIONS.get(random.nextInt(CONDITIONS.size()))).build());
+            }
+            rules.add(Rule.builder().id(String.valueOf(i)).conditions(conditions).results(Map.of("row", i)).build());
+        }
+
+        RuleEngineProperties compiled = new RuleEngineProperties();
+        compiled.getCodegen().setEnabled(true);
+        RuleCache ruleCache = mock(RuleCache.class);
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(rules);
+        RuleEngine compiledEngine = new RuleEngine(new CoreRuleEngine(), ruleCache, compiled);
+        RuleEngine interpretedEngine = new RuleEngine(new CoreRuleEngine(), ruleCache, new RuleEngineProperties());
+
+        List<Object> totals = List.of(0, 100, 150, 250.5, 500, 0.1, 99.99, 100L, 250.50000000000003, 1e300);
+        List<Object> quantities = List.of(1, 3, 2L, 0.5);
+        List<Object> types = List.of("premium", "basic", "gold");
+        for (int i = 0; i < 200; i++) {
+            Map<String, Object> input = new HashMap<>();
+            input.put("orderTotal", totals.get(random.nextInt(totals.size())));
+            input.put("quantity", quantities.get(random.nextInt(quantities.size())));
+            input.put("customerType", types.get(random.nextInt(types.size())));
+            input.put("vip", random.nextBoolean());
+            for (HitPolicy hitPolicy : HitPolicy.values()) {
+                assertEquals(matches(interpretedEngine.evaluateMatrices(input, Category.PRICING, Category.DEFAULT, hitPolicy)),
+                        matches(compiledEngine.evaluateMatrices(input, Category.PRICING, Category.DEFAULT, hitPolicy)),
+                        "input " + input + " with " + hitPolicy);
+            }
+        }
+    }
+
+    @Test
+    public void testUnsupportedInputTypeFallsBack() {
+        List<Rule> rules = List.of(Rule.builder()
+                .conditions(List.of(Condition.builder().condition("orderTotal > 100").build()))
+                .build());
+        CompiledDecisionTable table = DecisionTableCompiler.compile(rules);
+
+        assertNotNull(table);
+        assertNotNull(table.match(Map.of("orderTotal", 150), false));
+        assertNull(table.match(Map.of("orderTotal", "150"), false));
+        assertNull(table.match(Map.of("other", 1), false));
+    }
+
+    @Test
+    public void testGeneratedMethodsStayBelowJitSizeLimit() {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            rules.add(Rule.builder()
+                    .id("band-" + i)
+                    .conditions(List.of(
+                            Condition.builder().condition("orderTotal >= " + (i * 10) + " && orderTotal < " + (i * 10 + 10)).build(),
+                            Condition.builder().condition("quantity > " + i + " && customerType == 'premium'").build()))
+                    .build());
+        }
+
+        Map<String, Integer> sizes = methodSizes(DecisionTableCompiler.bytecode(rules));
+        assertTrue(sizes.size() > 3, "rows should be split over several methods: " + sizes);
+        sizes.forEach((method, size) -> assertTrue(size <= 6000, method + " has " + size + " bytes of bytecode"));
+    }
+
+    /**
+     * Code length of every method, measured by copying the class and resolving a label after the last instruction.
+     */
+    private static Map<String, Integer> methodSizes(byte[] bytecode) {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        ClassWriter writer = new ClassWriter(0);
+        new ClassReader(bytecode).accept(new ClassVisitor(Opcodes.ASM9, writer) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9, super.visitMethod(access, name, descriptor, signature, exceptions)) {
+                    @Override
+                    public void visitMaxs(int maxStack, int maxLocals) {
+                        Label end = new Label();
+                        super.visitLabel(end);
+                        sizes.put(name, end.getOffset());
+                        super.visitMaxs(maxStack, maxLocals);
+                    }
+                };
+            }
+        }, 0);
+        return sizes;
+    }
+
+    private static List<String> matches(List<RuleExecutionResult> results) {
+        return results.stream()
+                .map(r -> r.getRule().getId() + "=" + r.isRuleCriteriaMet())
+                .toList();
+    }
+}
@@ -0,0 +1,69 @@
+package tech.neatnet.core.rule.engine.api;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import tech.neatnet.core.rule.engine.domain.*;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MicrometerRuleEngineMetricsTest {
+
+    @Test
+    public void testRecordsEvaluationMetrics() {
+        Rule small = Rule.builder()
+                .id("small")
+                .conditions(List.of(Condition.builder().condition("orderTotal < 100").build()))
+                .build();
+        Rule large = Rule.builder()
+                .id("large")
+                .conditions(List.of(Condition.builder().condition("orderTotal >= 100").build()))
+                .build();
+        RuleCache ruleCache = mock(RuleCache.class);
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(List.of(small, large));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CoreRuleEngine core = new CoreRuleEngine();
+        RuleEngine metered = new RuleEngine(core, ruleCache, new RuleEngineProperties(),
+                new MicrometerRuleEngineMetrics(registry, core, null));
+
+        metered.evaluateMatrices(Map.of("orderTotal", 50), Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT);
+        metered.evaluateMatrices(Map.of("orderTotal", 150), Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT);
+
+        assertEquals(2, registry.get("rule.engine.evaluation")
+                .tags("category", Category.PRICING.getName(), "subcategory", Category.DEFAULT.getName(),
+                        "hit.policy", "COLLECT", "mode", "table")
+                .timer().count());
+        assertEquals(4, registry.get("rule.engine.rules.evaluated").functionCounter().count());
+        assertEquals(2, registry.get("rule.engine.rules.matched").functionCounter().count());
+        assertEquals(2, registry.get("rule.engine.expression.cache.misses").functionCounter().count());
+    }
+
+    @Test
+    public void testRecordsResultCacheHitsAsEvaluations() {
+        Rule small = Rule.builder()
+                .id("small")
+                .conditions(List.of(Condition.builder().condition("orderTotal < 100").build()))
+                .build();
+        RuleCache ruleCache = mock(RuleCache.class);
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(List.of(small));
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getResultCache().setEnabled(true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CoreRuleEngine core = new CoreRuleEngine();
+        RuleEngine metered = new RuleEngine(core, ruleCache, properties, new MicrometerRuleEngineMetrics(registry, core, null));
+
+        metered.evaluateMatrices(Map.of("orderTotal", 50), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+        metered.evaluateMatrices(Map.of("orderTotal", 50), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+
+        assertEquals(1, metered.resultCacheStats().hitCount());
+        assertEquals(2, registry.get("rule.engine.evaluation")
+                .tags("hit.policy", "FIRST", "mode", "table")
+                .timer().count());
+        assertEquals(1, registry.get("rule.engine.rules.evaluated").functionCounter().count());
+        assertEquals(2, registry.get("rule.engine.rules.matched").functionCounter().count());
+    }
+}
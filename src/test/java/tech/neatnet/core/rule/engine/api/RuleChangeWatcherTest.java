@@ -0,0 +1,115 @@
+package tech.neatnet.core.rule.engine.api;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RuleChangeWatcherTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testResumesSkipsPoisonEventsAndStartsOverAfterInvalidation() throws Exception {
+        Document badDocument = new Document("_id", "bad");
+        Document goodDocument = new Document("_id", "good");
+        Rule good = Rule.builder().id("good").build();
+        BsonDocument afterGood = token("after-good");
+        BsonDocument invalidated = token("invalidated");
+
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        ChangeStreamIterable<Document> stream = mock(ChangeStreamIterable.class);
+        MongoConverter converter = mock(MongoConverter.class);
+        when(mongoTemplate.getCollection("rules")).thenReturn(collection);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(converter.read(Rule.class, badDocument)).thenThrow(new IllegalStateException("unreadable"));
+        when(converter.read(Rule.class, goodDocument)).thenReturn(good);
+        when(collection.watch()).thenReturn(stream);
+        when(stream.fullDocument(any())).thenReturn(stream);
+        when(stream.resumeAfter(any())).thenReturn(stream);
+
+        // a dropped connection resumes after the last applied event
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> first = mock(MongoChangeStreamCursor.class);
+        when(first.hasNext()).thenReturn(true, true).thenThrow(new MongoException("connection lost"));
+        ChangeStreamDocument<Document> poison = change(OperationType.INSERT, "bad", badDocument, token("after-bad"));
+        ChangeStreamDocument<Document> insert = change(OperationType.INSERT, "good", goodDocument, afterGood);
+        when(first.next()).thenReturn(poison, insert);
+        // an invalidating event reloads and opens a new stream without its token
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> second = mock(MongoChangeStreamCursor.class);
+        when(second.hasNext()).thenReturn(true);
+        ChangeStreamDocument<Document> invalidate = change(OperationType.INVALIDATE, null, null, invalidated);
+        when(second.next()).thenReturn(invalidate);
+        // a rejected resume token reloads and starts over too
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> third = mock(MongoChangeStreamCursor.class);
+        when(third.hasNext()).thenReturn(true).thenThrow(new MongoCommandException(
+                new BsonDocument("code", new BsonInt32(260)).append("errmsg", new BsonString("invalid resume token")),
+                new ServerAddress()));
+        ChangeStreamDocument<Document> update = change(OperationType.UPDATE, "good", goodDocument, token("after-update"));
+        when(third.next()).thenReturn(update);
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> fourth = mock(MongoChangeStreamCursor.class);
+        CountDownLatch done = new CountDownLatch(1);
+        when(fourth.hasNext()).thenAnswer(invocation -> {
+            done.countDown();
+            return false;
+        });
+        when(stream.cursor()).thenReturn(first, second, third, fourth);
+
+        RuleEngine ruleEngine = mock(RuleEngine.class);
+        when(ruleEngine.reloadRules()).thenReturn(CompletableFuture.completedFuture(2L));
+        when(ruleEngine.applyRuleChange(anyString(), any())).thenReturn(true);
+        RuleEngineProperties.WatchProperties properties = new RuleEngineProperties.WatchProperties();
+        properties.setRetryDelay(Duration.ofMillis(10));
+        RuleChangeWatcher watcher = new RuleChangeWatcher(mongoTemplate, ruleEngine, properties);
+
+        watcher.start();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        watcher.stop();
+
+        verify(ruleEngine, never()).applyRuleChange(eq("bad"), any());
+        verify(ruleEngine, times(2)).applyRuleChange("good", good);
+        verify(ruleEngine, times(2)).reloadRules();
+        verify(stream, times(1)).resumeAfter(any());
+        verify(stream).resumeAfter(afterGood);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamDocument<Document> change(OperationType type, String id, Document document, BsonDocument token) {
+        ChangeStreamDocument<Document> change = mock(ChangeStreamDocument.class);
+        when(change.getOperationType()).thenReturn(type);
+        when(change.getDocumentKey()).thenReturn(id != null ? new BsonDocument("_id", new BsonString(id)) : null);
+        when(change.getFullDocument()).thenReturn(document);
+        when(change.getResumeToken()).thenReturn(token);
+        return change;
+    }
+
+    private static BsonDocument token(String value) {
+        return new BsonDocument("_data", new BsonString(value));
+    }
+}
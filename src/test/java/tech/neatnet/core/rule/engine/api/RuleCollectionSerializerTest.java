@@ -0,0 +1,39 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.junit.jupiter.api.Test;
+import tech.neatnet.core.rule.engine.domain.*;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RuleCollectionSerializerTest {
+
+    @Test
+    public void testWritesRuleListsInCompactForm() throws Exception {
+        Rule rule = Rule.builder()
+                .id("gold")
+                .active(true)
+                .baseRuleCategory(Category.PRICING)
+                .baseRuleSubCategory(Category.DEFAULT)
+                .ruleType(RuleType.DECISION_TABLE)
+                .conditions(List.of(Condition.builder().condition("segment == 'GOLD'")
+                        .inValues(List.of("GOLD", 7, new BigDecimal("1.50"))).build()))
+                .results(new LinkedHashMap<>(Map.of("discount", 10, "label", "gold")))
+                .build();
+        RuleCollectionSerializer serializer = new RuleCollectionSerializer(getClass().getClassLoader());
+
+        ByteBuffer compact = serializer.serialize(List.of(rule));
+        ByteBuffer java = serializer.serialize(new ArrayList<>(List.of(rule, "not a rule")));
+
+        assertTrue(compact.remaining() < java.remaining());
+        assertEquals(List.of(rule), serializer.read(compact));
+        assertEquals(List.of(rule, "not a rule"), serializer.read(java));
+    }
+}
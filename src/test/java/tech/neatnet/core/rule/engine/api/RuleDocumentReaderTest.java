@@ -0,0 +1,72 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import tech.neatnet.core.rule.engine.domain.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class RuleDocumentReaderTest {
+
+    @Test
+    public void testReadsWhatSpringDataWrites() {
+        MongoCustomConversions conversions = new RuleEngineAutoConfiguration().mongoCustomConversions();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Rule rule = Rule.builder()
+                .id("65a0c0ffee00000000000001")
+                .dateCreated(now)
+                .dateModified(now)
+                .modifiedBy("someone")
+                .version(3)
+                .active(true)
+                .name("Loan Approval")
+                .description("not loaded")
+                .baseRuleCategory(Category.WORKFLOW)
+                .baseRuleSubCategory(Category.DEFAULT)
+                .ruleType(RuleType.DECISION_TREE)
+                .conditions(List.of(Condition.builder()
+                        .condition("age >= 21")
+                        .inValues(List.of("a", 1, Map.of("nested", true)))
+                        .trueBranch(Condition.builder().action("'APPROVED'").build())
+                        .falseBranch(Condition.builder().action("'REJECTED'").build())
+                        .build()))
+                .results(Map.of("limit", 1000, "tags", List.of("x", "y"), "terms", Map.of("rate", 2.5)))
+                .build();
+        Document document = new Document();
+        converter.write(rule, document);
+        document.remove("description");
+        document.remove("modifiedBy");
+
+        Rule expected = converter.read(Rule.class, document);
+        Rule actual = RuleDocumentReader.read(document);
+
+        assertEquals(expected, actual);
+        assertSame(Category.WORKFLOW, actual.getBaseRuleCategory());
+        assertNull(actual.getDescription());
+    }
+
+    @Test
+    public void testCategoryRegistryResolvesPersistedNames() {
+        String persisted = Category.class.getName() + ":PRICING";
+        assertSame(Category.PRICING, CategoryRegistry.resolve(persisted, BaseRuleCategory.class));
+        assertSame(Category.PRICING, CategoryRegistry.resolve(persisted, BaseRuleSubCategory.class));
+        assertNull(CategoryRegistry.resolve(String.class.getName() + ":x", BaseRuleCategory.class));
+    }
+}
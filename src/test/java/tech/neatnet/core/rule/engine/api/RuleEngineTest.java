@@ -3,17 +3,36 @@ package tech.neatnet.core.rule.engine.api;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mvel2.integration.VariableResolverFactory;
 import tech.neatnet.core.rule.engine.domain.*;
+import tech.neatnet.core.rule.engine.exceptions.RuleEngineClientProcessingException;
 
+import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.ArgumentMatchers.anyMap;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,9 +44,12 @@ public class RuleEngineTest {
     @Mock
     private RuleCache ruleCache;
 
-    @InjectMocks
     private RuleEngine ruleEngine;
 
+    @BeforeEach
+    public void setUp() {
+        ruleEngine = new RuleEngine(coreRuleEngine, ruleCache, new RuleEngineProperties());
+    }
 
     @Test
     public void testEvaluateMatrices() {
@@ -37,11 +59,11 @@ public class RuleEngineTest {
         HitPolicy hitPolicy = HitPolicy.FIRST;
 
         Rule rule = new Rule();
-        rule.setConditions(Collections.emptyList());
+        rule.setConditions(List.of(Condition.builder().condition("true").build()));
         rule.setResults(new HashMap<>());
 
         when(ruleCache.findRules(ruleCategory, subCategory)).thenReturn(Collections.singletonList(rule));
-        when(coreRuleEngine.evaluateCondition(anyString(), anyMap())).thenReturn(true);
+        when(coreRuleEngine.evaluateCondition(anyString(), any(VariableResolverFactory.class))).thenReturn(true);
 
         List<RuleExecutionResult> results = ruleEngine.evaluateMatrices(inputVariables, ruleCategory, subCategory, hitPolicy);
 
@@ -49,5 +71,548 @@ public class RuleEngineTest {
         assertEquals(true, results.get(0).isRuleCriteriaMet());
     }
 
+    @Test
+    public void testEvaluateMatricesSkipsRulesExcludedByEqualityIndex() {
+        Map<String, Object> inputVariables = new HashMap<>(Map.of("country", "FR", "orderTotal", 150));
+
+        Rule germany = Rule.builder()
+                .conditions(List.of(
+                        Condition.builder().condition("country == 'DE'").build(),
+                        Condition.builder().condition("orderTotal > 100").build()))
+                .results(Map.of("vat", 19))
+                .build();
+        Rule france = Rule.builder()
+                .conditions(List.of(
+                        Condition.builder().condition("'FR' == country").build(),
+                        Condition.builder().condition("orderTotal > 100").build()))
+                .results(Map.of("vat", 20))
+                .build();
+
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(List.of(germany, france));
+        when(coreRuleEngine.evaluateCondition(eq("orderTotal > 100"), any(VariableResolverFactory.class))).thenReturn(true);
+
+        List<RuleExecutionResult> results = ruleEngine.evaluateMatrices(inputVariables, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT);
+
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).isRuleCriteriaMet());
+        assertTrue(results.get(1).isRuleCriteriaMet());
+        assertEquals(Map.of("vat", 20), results.get(1).getResults());
+        verify(coreRuleEngine, times(1)).evaluateCondition(anyString(), any(VariableResolverFactory.class));
+    }
+
     // Add more tests here for other methods in RuleEngine class
-}
\ No newline at end of file
+
+    @Test
+    public void testEvaluateMatricesBatchKeepsInputOrder() {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getBatch().setParallelism(4);
+        properties.getBatch().setMinChunkSize(16);
+        Rule small = Rule.builder()
+                .conditions(List.of(Condition.builder().condition("orderTotal < 100").build()))
+                .results(Map.of("tier", "small"))
+                .build();
+        Rule large = Rule.builder()
+                .conditions(List.of(Condition.builder().condition("orderTotal >= 100").build()))
+                .results(Map.of("tier", "large"))
+                .build();
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(List.of(small, large));
+
+        List<Map<String, Object>> inputs = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            inputs.add(Map.of("orderTotal", i));
+        }
+        try (RuleEngine batchEngine = new RuleEngine(new CoreRuleEngine(), ruleCache, properties)) {
+            List<List<RuleExecutionResult>> results = batchEngine.evaluateMatricesBatch(inputs, Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+
+            assertEquals(300, results.size());
+            for (int i = 0; i < 300; i++) {
+                List<RuleExecutionResult> forInput = results.get(i);
+                RuleExecutionResult last = forInput.get(forInput.size() - 1);
+                assertEquals(i < 100 ? "small" : "large", last.getResults().get("tier"));
+                assertEquals(inputs.get(i), last.getMetadata().getInputVariables());
+            }
+        }
+    }
+
+    @Test
+    public void testParallelEvaluationMatchesSequential() {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String condition = i == 1500 ? "unknownVariable > 1" : "orderTotal % 500 == " + (i % 500);
+            rules.add(Rule.builder()
+                    .id(String.valueOf(i))
+                    .conditions(List.of(Condition.builder().condition(condition).build()))
+                    .build());
+        }
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(rules);
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getParallel().setThreshold(100);
+        properties.getParallel().setChunkSize(128);
+
+        RuleEngine sequentialEngine = new RuleEngine(new CoreRuleEngine(), ruleCache, new RuleEngineProperties());
+        try (RuleEngine parallelEngine = new RuleEngine(new CoreRuleEngine(), ruleCache, properties)) {
+            for (int total : new int[]{3, 250, 499}) {
+                Map<String, Object> input = Map.of("orderTotal", total);
+                List<RuleExecutionResult> expected = sequentialEngine.evaluateMatrices(input, Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+                List<RuleExecutionResult> actual = parallelEngine.evaluateMatrices(input, Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+
+                assertEquals(total + 1, actual.size());
+                assertEquals(expected.stream().map(RuleExecutionResult::isRuleCriteriaMet).toList(),
+                        actual.stream().map(RuleExecutionResult::isRuleCriteriaMet).toList());
+                // COLLECT reaches the failing rule in both modes
+                assertThrows(RuntimeException.class, () -> parallelEngine.evaluateMatrices(input, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT));
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluateTreesStopsAtFirstMatchAcrossRules() {
+        Condition discountTree = Condition.builder()
+                .condition("orderTotal > 100")
+                .trueBranch(Condition.builder()
+                        .condition("customerType == 'premium'")
+                        .trueBranch(Condition.builder().action("orderTotal * 0.2").build())
+                        .falseBranch(Condition.builder().action("orderTotal * 0.1").build())
+                        .build())
+                .build();
+        Rule discount = Rule.builder().id("discount").conditions(List.of(discountTree)).build();
+        Rule fallback = Rule.builder().id("fallback")
+                .conditions(List.of(Condition.builder().action("0").build()))
+                .build();
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(List.of(discount, fallback));
+        RuleEngine treeEngine = new RuleEngine(new CoreRuleEngine(), ruleCache, new RuleEngineProperties());
+
+        List<TreeExecutionResult> results = treeEngine.evaluateTrees(
+                Map.of("orderTotal", 200, "customerType", "basic"), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST, true);
+        assertEquals(1, results.size());
+        TreeExecutionResult result = results.get(0);
+        assertTrue(result.isRuleCriteriaMet());
+        assertEquals(20.0, ((Number) result.getResults().get("orderTotal * 0.1")).doubleValue(), 1e-9);
+        assertEquals(2, result.getPathLength());
+        assertTrue(result.getBranchPath().get(0));
+        assertFalse(result.getBranchPath().get(1));
+        assertEquals(3, result.getExecutedNodes().size());
+
+        // no false branch below 100: the first tree ends without a match and the next rule is evaluated
+        results = treeEngine.evaluateTrees(
+                Map.of("orderTotal", 50, "customerType", "basic"), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).isRuleCriteriaMet());
+        assertEquals("fallback", results.get(1).getRule().getId());
+        assertNull(results.get(1).getExecutedNodes());
+    }
+
+    @Test
+    public void testEvaluateMatchesReportsOnlyMatchedRules() {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rules.add(Rule.builder()
+                    .id("r" + i)
+                    .conditions(List.of(Condition.builder().condition("orderTotal % 5 == " + (i % 5)).build()))
+                    .results(Map.of("rule", i))
+                    .build());
+        }
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(rules);
+        RuleEngine leanEngine = new RuleEngine(new CoreRuleEngine(), ruleCache, new RuleEngineProperties());
+
+        List<Integer> sunk = new ArrayList<>();
+        RuleMatches matches = leanEngine.evaluateMatches(Map.of("orderTotal", 12), Category.PRICING, Category.DEFAULT,
+                HitPolicy.COLLECT, (index, rule) -> sunk.add(index));
+        assertEquals(List.of(2, 7, 12, 17), sunk);
+        assertEquals(List.of("r2", "r7", "r12", "r17"), matches.matchedIds());
+        assertEquals(20, matches.evaluatedCount());
+        assertEquals(4, matches.results().size());
+        assertEquals(7, matches.results().get(1).getResults().get("rule"));
+
+        RuleMatches first = leanEngine.evaluateMatches(Map.of("orderTotal", 12), Category.PRICING, Category.DEFAULT,
+                HitPolicy.FIRST, null);
+        assertEquals(List.of("r2"), first.matchedIds());
+        assertEquals(3, first.evaluatedCount());
+    }
+
+    @Test
+    public void testReloadPublishesNewVersionAndFreezesRules() throws Exception {
+        Rule small = Rule.builder()
+                .id("small")
+                .conditions(new ArrayList<>(List.of(Condition.builder().condition("orderTotal < 100").build())))
+                .results(new HashMap<>(Map.of("tier", "small")))
+                .build();
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(List.of(small));
+        RuleEngine storeEngine = new RuleEngine(new CoreRuleEngine(), ruleCache, new RuleEngineProperties());
+
+        RuleExecutionResult before = storeEngine.evaluateMatrices(Map.of("orderTotal", 50), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST).get(0);
+        assertTrue(before.isRuleCriteriaMet());
+        // changing the loaded objects does not affect the published rules
+        small.getConditions().get(0).setCondition("orderTotal >= 100");
+        small.getResults().put("tier", "changed");
+        assertTrue(storeEngine.evaluateMatrices(Map.of("orderTotal", 50), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST).get(0).isRuleCriteriaMet());
+        assertThrows(UnsupportedOperationException.class, () -> before.getRule().getResults().put("tier", "x"));
+        assertThrows(UnsupportedOperationException.class, () -> before.getRule().setConditions(new ArrayList<>()));
+        assertThrows(UnsupportedOperationException.class, () -> before.getRule().getConditions().get(0).setCondition("false"));
+        Rule copy = before.getRule().toBuilder().id("copy").build();
+        copy.setName("editable");
+        assertEquals(small.getId(), before.getRule().getId());
+
+        long version = storeEngine.reloadRules().get();
+        storeEngine.close();
+        RuleExecutionResult after = storeEngine.evaluateMatrices(Map.of("orderTotal", 50), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST).get(0);
+        assertFalse(after.isRuleCriteriaMet());
+        assertTrue(version > before.getRuleSetVersion());
+        assertEquals(version, after.getRuleSetVersion());
+        verify(ruleCache, times(2)).findRules(Category.PRICING, Category.DEFAULT);
+        verify(ruleCache).reloadRules();
+    }
+
+    @Test
+    public void testApplyRuleChangeRepublishesOnlyAffectedCategory() {
+        Rule first = Rule.builder().id("a").version(1).active(true)
+                .baseRuleCategory(Category.PRICING).baseRuleSubCategory(Category.DEFAULT)
+                .conditions(List.of(Condition.builder().condition("orderTotal > 100").build()))
+                .build();
+        Rule second = Rule.builder().id("b").version(1).active(true)
+                .baseRuleCategory(Category.PRICING).baseRuleSubCategory(Category.DEFAULT)
+                .conditions(List.of(Condition.builder().condition("orderTotal > 10").build()))
+                .build();
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(List.of(first, second));
+        RuleEngine watchedEngine = new RuleEngine(new CoreRuleEngine(), ruleCache, new RuleEngineProperties());
+        Map<String, Object> input = Map.of("orderTotal", 50);
+        assertEquals(List.of(false, true), matched(watchedEngine.evaluateMatrices(input, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT)));
+
+        // update keeps the rule's position
+        assertTrue(watchedEngine.applyRuleChange("a", first.toBuilder().version(2)
+                .conditions(List.of(Condition.builder().condition("orderTotal > 20").build())).build()));
+        assertEquals(List.of(true, true), matched(watchedEngine.evaluateMatrices(input, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT)));
+
+        // a redelivered older version is ignored
+        assertFalse(watchedEngine.applyRuleChange("a", first));
+        assertEquals(List.of(true, true), matched(watchedEngine.evaluateMatrices(input, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT)));
+
+        // deletes and deactivations remove the rule, inserts append
+        assertTrue(watchedEngine.applyRuleChange("b", null));
+        assertTrue(watchedEngine.applyRuleChange("a", first.toBuilder().version(3).active(false).build()));
+        assertTrue(watchedEngine.applyRuleChange("c", second.toBuilder().id("c").build()));
+        List<RuleExecutionResult> results = watchedEngine.evaluateMatrices(input, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT);
+        assertEquals(List.of("c"), results.stream().map(r -> r.getRule().getId()).toList());
+
+        // categories that were never loaded are not touched
+        assertFalse(watchedEngine.applyRuleChange("d", second.toBuilder().id("d").baseRuleSubCategory(Category.PRICING).build()));
+        verify(ruleCache, times(1)).findRules(Category.PRICING, Category.DEFAULT);
+    }
+
+    private static List<Boolean> matched(List<RuleExecutionResult> results) {
+        return results.stream().map(RuleExecutionResult::isRuleCriteriaMet).toList();
+    }
+
+    @Test
+    public void testCompilesConditionsAgainstInputSchema() throws Exception {
+        Rule gold = Rule.builder()
+                .id("gold")
+                .baseRuleCategory(Category.PRICING)
+                .baseRuleSubCategory(Category.DEFAULT)
+                .conditions(List.of(
+                        Condition.builder().condition("orderTotal >= 100 && segment == 'GOLD'").build(),
+                        Condition.builder().condition("inValues contains segment").inValues(List.of("GOLD")).build()))
+                .build();
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(List.of(gold));
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getSchema().getCategories().put("PRICING:DEFAULT", Map.of("orderTotal", "int", "segment", "String"));
+        properties.getSchema().setCheckInput(true);
+        RuleEngine typed = new RuleEngine(new CoreRuleEngine(), ruleCache, properties);
+        RuleRepository ruleRepository = mock(RuleRepository.class);
+        RuleEngineClientImpl client = new RuleEngineClientImpl(typed, ruleRepository);
+
+        RuleMatches matches = client.evaluateMatches(Map.of("orderTotal", 150, "segment", "GOLD"), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+        assertEquals(List.of("gold"), matches.matchedIds());
+        assertTrue(client.inputSchema(Category.PRICING, Category.DEFAULT).accepts(Map.of("orderTotal", 150)));
+
+        RuleEngineClientProcessingException badInput = assertThrows(RuleEngineClientProcessingException.class,
+                () -> client.evaluateMatches(Map.of("orderTotal", "150"), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST));
+        assertTrue(badInput.getMessage().contains("orderTotal"));
+
+        Rule undeclared = gold.toBuilder()
+                .conditions(List.of(Condition.builder().condition("customerTier > 1").build()))
+                .build();
+        assertThrows(RuleEngineClientProcessingException.class, () -> client.saveRule(undeclared));
+        Rule wrongMethod = gold.toBuilder()
+                .conditions(List.of(Condition.builder().condition("orderTotal.isEmpty()").build()))
+                .build();
+        assertThrows(RuleEngineClientProcessingException.class, () -> client.saveRule(wrongMethod));
+        verify(ruleRepository, never()).save(any());
+        assertThrows(RuleEngineClientProcessingException.class, () -> client.saveRules(List.of(gold, undeclared)));
+        verify(ruleRepository, never()).saveAll(any());
+        when(ruleRepository.saveAll(List.of(gold))).thenReturn(List.of(gold));
+        assertTrue(client.saveRules(List.of(gold)));
+        typed.close();
+    }
+
+    @Test
+    public void testReadsEachInputVariableOncePerEvaluation() {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rules.add(Rule.builder()
+                    .id("rule-" + i)
+                    .conditions(List.of(Condition.builder().condition("orderTotal >= " + (i * 100) + " && segment != 'S" + i + "'").build()))
+                    .build());
+        }
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(rules);
+        RuleEngine slotted = new RuleEngine(new CoreRuleEngine(), ruleCache, new RuleEngineProperties());
+        Map<String, Integer> reads = new HashMap<>();
+        Map<String, Object> input = new HashMap<>(Map.of("orderTotal", 150, "segment", "S0", "note", "x")) {
+            @Override
+            public Object get(Object key) {
+                reads.merge((String) key, 1, Integer::sum);
+                return super.get(key);
+            }
+        };
+
+        RuleMatches fromMap = slotted.evaluateMatches(input, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, null);
+        assertEquals(List.of("rule-1"), fromMap.matchedIds());
+        assertEquals(1, reads.get("orderTotal"));
+        assertEquals(1, reads.get("segment"));
+
+        RuleInput ruleInput = slotted.newInput(Category.PRICING, Category.DEFAULT);
+        assertTrue(ruleInput.slot("orderTotal") >= 0);
+        assertEquals(-1, ruleInput.slot("note"));
+        ruleInput.set(ruleInput.slot("orderTotal"), 150).set("segment", "S0").set("note", "x");
+        RuleMatches fromInput = slotted.evaluateMatches(ruleInput, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, null);
+        assertEquals(fromMap.matchedIds(), fromInput.matchedIds());
+        assertEquals(Map.of("orderTotal", 150, "segment", "S0", "note", "x"), ruleInput.asMap());
+
+        int[] matches = new int[1];
+        ruleInput.clear().setAll(Map.of("orderTotal", 250, "segment", "S0"));
+        assertEquals(2, slotted.evaluateInto(ruleInput, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, (index, rule) -> matches[0]++));
+        assertEquals(2, matches[0]);
+        slotted.close();
+    }
+
+    @Test
+    public void testMatchesInValuesByValue() {
+        List<Object> merchants = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            merchants.add(i * 7);
+        }
+        List<Rule> rules = List.of(
+                Rule.builder().id("merchant").conditions(List.of(
+                        Condition.builder().condition("inValues contains merchantId").inValues(merchants).build())).build(),
+                Rule.builder().id("country").conditions(List.of(
+                        Condition.builder().condition("inValues contains country").inValues(List.of("DE", 0, 3L)).build())).build());
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(rules);
+        RuleEngine hashed = new RuleEngine(new CoreRuleEngine(), ruleCache, new RuleEngineProperties());
+
+        assertEquals(List.of("merchant", "country"), hashed.evaluateMatches(Map.of("merchantId", 349_986L, "country", "DE"),
+                Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, null).matchedIds());
+        assertEquals(List.of("country"), hashed.evaluateMatches(Map.of("merchantId", 349_987, "country", 0L),
+                Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, null).matchedIds());
+        assertEquals(List.of(), hashed.evaluateMatches(Map.of("merchantId", "0", "country", "FR"),
+                Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, null).matchedIds());
+        assertEquals(merchants, InValues.of(merchants));
+        hashed.close();
+    }
+
+    @Test
+    public void testEvaluatesSharedConditionsOncePerInput() {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            rules.add(Rule.builder()
+                    .id("rule-" + i)
+                    .conditions(List.of(
+                            Condition.builder().condition("amount > 10").build(),
+                            Condition.builder().condition("channel != 'store'").build(),
+                            Condition.builder().condition("amount < " + (i * 100)).build()))
+                    .build());
+        }
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(rules);
+        when(coreRuleEngine.evaluateCondition(anyString(), any(VariableResolverFactory.class))).thenReturn(true);
+        when(coreRuleEngine.evaluateCondition(eq("amount < 0"), any(VariableResolverFactory.class))).thenReturn(false);
+
+        // big decimals are not narrowed by the range index, so every condition goes through the memo
+        RuleMatches matches = ruleEngine.evaluateMatches(Map.of("amount", new BigDecimal("50"), "channel", "web"), Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, null);
+        assertEquals(List.of("rule-1", "rule-2", "rule-3"), matches.matchedIds());
+        verify(coreRuleEngine, times(1)).evaluateCondition(eq("amount > 10"), any(VariableResolverFactory.class));
+        verify(coreRuleEngine, times(1)).evaluateCondition(eq("channel != 'store'"), any(VariableResolverFactory.class));
+
+        ruleEngine.evaluateMatches(Map.of("amount", new BigDecimal("5"), "channel", "web"), Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, null);
+        verify(coreRuleEngine, times(2)).evaluateCondition(eq("amount > 10"), any(VariableResolverFactory.class));
+        verify(coreRuleEngine, times(12)).evaluateCondition(anyString(), any(VariableResolverFactory.class));
+    }
+
+    @Test
+    public void testSkipsRulesOutsideIndexedRanges() {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            List<Condition> conditions = new ArrayList<>();
+            conditions.add(Condition.builder().condition("orderTotal >= " + (i * 100) + " && orderTotal < " + ((i + 1) * 100)).build());
+            if (i % 2 == 0) {
+                conditions.add(Condition.builder().condition("quantity >= 10").build());
+            }
+            conditions.add(Condition.builder().condition("region ~= 'E.*'").build());
+            rules.add(Rule.builder().id("band-" + i).conditions(conditions).build());
+        }
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(rules);
+        when(coreRuleEngine.evaluateCondition(eq("region ~= 'E.*'"), any(VariableResolverFactory.class))).thenReturn(true);
+
+        RuleMatches matches = ruleEngine.evaluateMatches(Map.of("orderTotal", 1350, "quantity", 5, "region", "EU"),
+                Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, null);
+        assertEquals(List.of("band-13"), matches.matchedIds());
+        verify(coreRuleEngine, times(1)).evaluateCondition(anyString(), any(VariableResolverFactory.class));
+
+        List<RuleExecutionResult> results = ruleEngine.evaluateMatrices(Map.of("orderTotal", 1250.0, "quantity", 5, "region", "EU"),
+                Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT);
+        assertEquals(200, results.size());
+        assertTrue(results.stream().noneMatch(RuleExecutionResult::isRuleCriteriaMet));
+        verify(coreRuleEngine, times(1)).evaluateCondition(anyString(), any(VariableResolverFactory.class));
+    }
+
+    @Test
+    public void testCachesResultsByTheVariablesRulesRead() throws Exception {
+        Rule rule = Rule.builder()
+                .id("premium")
+                .conditions(List.of(Condition.builder().condition("segment ~= 'G.*'").build()))
+                .results(Map.of("discount", 10))
+                .build();
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(List.of(rule));
+        when(coreRuleEngine.evaluateCondition(anyString(), any(VariableResolverFactory.class))).thenReturn(true);
+        when(coreRuleEngine.inputs(anyString(), any())).thenReturn(new String[]{"segment"});
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getResultCache().setEnabled(true);
+        RuleEngine cached = new RuleEngine(coreRuleEngine, ruleCache, properties);
+
+        List<RuleExecutionResult> first = cached.evaluateMatrices(Map.of("segment", "GOLD", "requestId", "a"),
+                Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+        List<RuleExecutionResult> second = cached.evaluateMatrices(Map.of("segment", "GOLD", "requestId", "b"),
+                Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+        assertEquals(Map.of("discount", 10), second.get(0).getResults());
+        assertEquals("b", second.get(0).getMetadata().getInputVariables().get("requestId"));
+        assertEquals(first.get(0).getRuleSetVersion(), second.get(0).getRuleSetVersion());
+        verify(coreRuleEngine, times(1)).evaluateCondition(anyString(), any(VariableResolverFactory.class));
+        assertEquals(1, cached.resultCacheStats().hitCount());
+        assertEquals(1, cached.resultCacheStats().missCount());
+
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT))
+                .thenReturn(List.of(rule.toBuilder().results(Map.of("discount", 15)).build()));
+        cached.reloadRules().get();
+        List<RuleExecutionResult> reloaded = cached.evaluateMatrices(Map.of("segment", "GOLD"),
+                Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+        assertEquals(Map.of("discount", 15), reloaded.get(0).getResults());
+        verify(coreRuleEngine, times(2)).evaluateCondition(anyString(), any(VariableResolverFactory.class));
+        cached.close();
+    }
+
+    @Test
+    public void testReordersConditionsByCostAndSelectivity() throws Exception {
+        Rule rule = Rule.builder()
+                .id("premium")
+                .conditions(List.of(
+                        Condition.builder().condition("segment ~= '[A-Z]+'").build(),
+                        Condition.builder().condition("amount > 1000").build()))
+                .build();
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(List.of(rule));
+        when(coreRuleEngine.evaluateCondition(eq("segment ~= '[A-Z]+'"), any(VariableResolverFactory.class))).thenAnswer(invocation -> {
+            LockSupport.parkNanos(100_000);
+            return true;
+        });
+        when(coreRuleEngine.evaluateCondition(eq("amount > 1000"), any(VariableResolverFactory.class))).thenReturn(false);
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getOrdering().setEnabled(true);
+        properties.getOrdering().setSampleRate(1);
+        properties.getOrdering().setReorderInterval(64);
+        RuleEngine adaptive = new RuleEngine(coreRuleEngine, ruleCache, properties);
+        Map<String, Object> input = Map.of("segment", "GOLD", "amount", 10);
+
+        for (int i = 0; i < 64; i++) {
+            adaptive.evaluateMatches(input, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, null);
+        }
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!adaptive.conditionOrder(Category.PRICING, Category.DEFAULT).get("premium").equals(List.of(1, 0))
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Map.of("premium", List.of(1, 0)), adaptive.conditionOrder(Category.PRICING, Category.DEFAULT));
+
+        clearInvocations(coreRuleEngine);
+        assertEquals(List.of(), adaptive.evaluateMatches(input, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, null).matchedIds());
+        verify(coreRuleEngine, never()).evaluateCondition(eq("segment ~= '[A-Z]+'"), any(VariableResolverFactory.class));
+
+        assertThrows(IllegalArgumentException.class, () -> adaptive.pinConditionOrder("premium", List.of(0, 0)));
+        adaptive.pinConditionOrder("premium", List.of(0, 1));
+        assertEquals(List.of(0, 1), adaptive.conditionOrder(Category.PRICING, Category.DEFAULT).get("premium"));
+        adaptive.close();
+    }
+
+    @Test
+    public void testOrdersExclusiveRulesByHitsUnderFirst() throws Exception {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rules.add(Rule.builder()
+                    .id("band-" + i)
+                    .conditions(List.of(Condition.builder().condition("amount >= " + (i * 10) + " && amount < " + (i * 10 + 10)).build()))
+                    .build());
+        }
+        rules.add(Rule.builder().id("any").conditions(List.of(Condition.builder().condition("amount >= 0").build())).build());
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(rules);
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getOrdering().setEnabled(true);
+        properties.getOrdering().setSampleRate(1);
+        properties.getOrdering().setReorderInterval(64);
+        RuleEngine adaptive = new RuleEngine(new CoreRuleEngine(), ruleCache, properties);
+
+        List<ExclusiveRuleGroup> groups = adaptive.exclusiveGroups(Category.PRICING, Category.DEFAULT);
+        assertEquals(1, groups.size());
+        assertEquals(0, groups.get(0).getFromIndex());
+        assertEquals(10, groups.get(0).getToIndex());
+        assertEquals(Set.of("amount"), groups.get(0).getVariables());
+
+        for (int i = 0; i < 200; i++) {
+            adaptive.evaluateMatches(Map.of("amount", 95), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST, null);
+        }
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!adaptive.exclusiveGroups(Category.PRICING, Category.DEFAULT).get(0).getEvaluationOrder().get(0).equals("band-9")
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("band-9", adaptive.exclusiveGroups(Category.PRICING, Category.DEFAULT).get(0).getEvaluationOrder().get(0));
+
+        RuleMatches hot = adaptive.evaluateMatches(Map.of("amount", 95), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST, null);
+        assertEquals(List.of("band-9"), hot.matchedIds());
+        assertEquals(1, hot.evaluatedCount());
+        assertEquals(List.of("band-0"), adaptive.evaluateMatches(Map.of("amount", 5), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST, null).matchedIds());
+        assertEquals(List.of("any"), adaptive.evaluateMatches(Map.of("amount", 150), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST, null).matchedIds());
+        // the full results keep the stored order
+        List<RuleExecutionResult> results = adaptive.evaluateMatrices(Map.of("amount", 95), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+        assertEquals(rules.subList(0, 10), results.stream().map(RuleExecutionResult::getRule).toList());
+        assertEquals(List.of(false, false, false, false, false, false, false, false, false, true), matched(results));
+        adaptive.close();
+    }
+
+    @Test
+    public void testLoadsColdCategoriesWithoutBlockingEachOther() throws Exception {
+        Rule rule = Rule.builder().id("any").conditions(List.of(Condition.builder().condition("true").build())).build();
+        CountDownLatch pricingQueried = new CountDownLatch(1);
+        CountDownLatch releasePricing = new CountDownLatch(1);
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenAnswer(invocation -> {
+            pricingQueried.countDown();
+            releasePricing.await();
+            return List.of(rule);
+        });
+        when(ruleCache.findRules(Category.WORKFLOW, Category.DEFAULT)).thenReturn(List.of(rule));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> pricing = executor.submit(() -> ruleEngine.load(Category.PRICING, Category.DEFAULT));
+            Future<?> sharedPricing = executor.submit(() -> ruleEngine.load(Category.PRICING, Category.DEFAULT));
+            assertTrue(pricingQueried.await(5, TimeUnit.SECONDS));
+
+            // a slow first load of one category does not hold up another one
+            ruleEngine.load(Category.WORKFLOW, Category.DEFAULT);
+            assertTrue(ruleEngine.isLoaded(Category.WORKFLOW, Category.DEFAULT));
+            assertFalse(ruleEngine.isLoaded(Category.PRICING, Category.DEFAULT));
+
+            releasePricing.countDown();
+            pricing.get(5, TimeUnit.SECONDS);
+            sharedPricing.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(ruleEngine.isLoaded(Category.PRICING, Category.DEFAULT));
+        verify(ruleCache, times(1)).findRules(Category.PRICING, Category.DEFAULT);
+    }
+}
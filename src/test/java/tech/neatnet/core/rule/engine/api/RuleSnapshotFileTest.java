@@ -0,0 +1,78 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.neatnet.core.rule.engine.domain.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RuleSnapshotFileTest {
+
+    @Test
+    public void testRestoresRuleSetsFromSnapshotFile(@TempDir Path directory) {
+        Rule small = Rule.builder()
+                .id("small")
+                .active(true)
+                .conditions(List.of(Condition.builder().condition("orderTotal < 100").build()))
+                .results(Map.of("tier", "small"))
+                .build();
+        RuleCache ruleCache = mock(RuleCache.class);
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(List.of(small));
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.getSnapshot().setPath(directory.resolve("rules.snapshot").toString());
+        properties.getSnapshot().setVerifyOnStartup(false);
+        RuleEngine writing = new RuleEngine(new CoreRuleEngine(), ruleCache, properties);
+        writing.evaluateMatrices(Map.of("orderTotal", 50), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+        writing.close();
+
+        RuleSnapshotFile.Contents contents = new RuleSnapshotFile(directory.resolve("rules.snapshot")).read();
+        assertEquals(writing.rulesVersion(), contents.version());
+        assertNotNull(contents.entries().get(0).compiledConditions()[0][0]);
+
+        RuleCache emptyCache = mock(RuleCache.class);
+        RuleEngine restored = new RuleEngine(new CoreRuleEngine(), emptyCache, properties);
+        List<RuleExecutionResult> results = restored.evaluateMatrices(Map.of("orderTotal", 50), Category.PRICING, Category.DEFAULT, HitPolicy.FIRST);
+        restored.close();
+        assertTrue(results.get(0).isRuleCriteriaMet());
+        assertEquals("small", results.get(0).getRule().getId());
+        assertEquals(contents.version(), results.get(0).getRuleSetVersion());
+        verify(emptyCache, never()).findRules(any(), any());
+    }
+
+    @Test
+    public void testIgnoresFileWithClassesOutsideRules(@TempDir Path directory) throws Exception {
+        Path path = directory.resolve("rules.snapshot");
+        try (OutputStream file = Files.newOutputStream(path)) {
+            DataOutputStream header = new DataOutputStream(file);
+            header.writeInt(0x52554C45);
+            header.writeInt(1);
+            header.writeLong(1);
+            header.writeInt(1);
+            header.flush();
+            ObjectOutputStream out = new ObjectOutputStream(file);
+            out.writeObject(Category.PRICING);
+            out.writeObject(Category.DEFAULT);
+            // any class that is not part of a rule, standing in for a deserialization gadget
+            out.writeObject(new ArrayList<>(List.of(new File("/tmp"))));
+            out.flush();
+        }
+
+        assertNull(new RuleSnapshotFile(path).read());
+    }
+}
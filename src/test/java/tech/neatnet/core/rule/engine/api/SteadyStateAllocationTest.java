@@ -0,0 +1,75 @@
+package tech.neatnet.core.rule.engine.api;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import tech.neatnet.core.rule.engine.domain.Category;
+import tech.neatnet.core.rule.engine.domain.Condition;
+import tech.neatnet.core.rule.engine.domain.HitPolicy;
+import tech.neatnet.core.rule.engine.domain.Rule;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs in its own JVM (see the {@code allocation} surefire execution): once Mockito has mocked
+ * {@link CoreRuleEngine} its methods are instrumented, and the instrumentation allocates on every call.
+ */
+@Tag("allocation")
+public class SteadyStateAllocationTest {
+
+    @Test
+    public void testSteadyStateEvaluationDoesNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported());
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rules.add(Rule.builder()
+                    .id("rule-" + i)
+                    .conditions(List.of(
+                            Condition.builder().condition("segment == 'S" + (i % 5) + "'").build(),
+                            Condition.builder().condition("orderTotal >= " + (i * 10)).build(),
+                            Condition.builder().condition("inValues contains country").inValues(List.of("DE", "FR")).build()))
+                    .build());
+        }
+        RuleCache ruleCache = mock(RuleCache.class);
+        when(ruleCache.findRules(Category.PRICING, Category.DEFAULT)).thenReturn(rules);
+        RuleEngine ruleEngine = new RuleEngine(new CoreRuleEngine(), ruleCache, new RuleEngineProperties());
+        Map<String, Object> input = Map.of("segment", "S2", "orderTotal", 150, "country", "DE");
+        int[] matches = new int[1];
+        ResultSink sink = (ruleIndex, rule) -> matches[0]++;
+
+        int evaluations = 20_000;
+        for (int i = 0; i < evaluations; i++) {
+            ruleEngine.evaluateInto(input, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, sink);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < evaluations; i++) {
+            ruleEngine.evaluateInto(input, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, sink);
+        }
+        long bytesPerEvaluation = (threads.getCurrentThreadAllocatedBytes() - before) / evaluations;
+
+        RuleInput ruleInput = ruleEngine.newInput(Category.PRICING, Category.DEFAULT).setAll(input);
+        for (int i = 0; i < evaluations; i++) {
+            ruleEngine.evaluateInto(ruleInput, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, sink);
+        }
+        before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < evaluations; i++) {
+            ruleEngine.evaluateInto(ruleInput, Category.PRICING, Category.DEFAULT, HitPolicy.COLLECT, sink);
+        }
+        long bytesPerSlottedEvaluation = (threads.getCurrentThreadAllocatedBytes() - before) / evaluations;
+        ruleEngine.close();
+
+        assertEquals(4 * evaluations * 3, matches[0]);
+        assertTrue(bytesPerEvaluation < 8, "allocated " + bytesPerEvaluation + " bytes per evaluation");
+        assertTrue(bytesPerSlottedEvaluation < 8, "allocated " + bytesPerSlottedEvaluation + " bytes per evaluation of a RuleInput");
+    }
+}